@@ -7,20 +7,39 @@ import com.hyd.ssdb.conn.Connection;
 import com.hyd.ssdb.conn.ConnectionPool;
 import com.hyd.ssdb.conn.ConnectionPoolManager;
 import com.hyd.ssdb.conn.PoolAndConnection;
+import com.hyd.ssdb.metrics.MetricsRecorder;
+import com.hyd.ssdb.protocol.Block;
 import com.hyd.ssdb.protocol.Request;
 import com.hyd.ssdb.protocol.Response;
 import com.hyd.ssdb.protocol.WriteRequest;
+import com.hyd.ssdb.util.Bytes;
 import com.hyd.ssdb.util.IdScore;
 import com.hyd.ssdb.util.KeyValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * 实现 SsdbClient 的一些底层方法
@@ -34,6 +53,17 @@ public abstract class AbstractClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractClient.class);
 
+    private static final AtomicInteger WORKER_COUNTER = new AtomicInteger();
+
+    /**
+     * 缺省的线程池，用于同时向多个 Cluster 发送请求
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hydrogen-ssdb-worker-" + WORKER_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * 管理所有的 SSDB 连接
      */
@@ -44,6 +74,36 @@ public abstract class AbstractClient {
      */
     private Charset charset = DEFAULT_CHARSET;
 
+    /**
+     * 同时向多个 Cluster 发送请求时使用的线程池
+     */
+    private Executor executor = DEFAULT_EXECUTOR;
+
+    /**
+     * 同时向多个 Cluster 发送请求时，等待每个 Cluster 回应的最长时间（毫秒），0 表示不限制
+     */
+    private long clusterTimeout = 0;
+
+    /**
+     * 同时向多个 Cluster 发送请求时，如果部分 Cluster 失败，是否仍然返回其他 Cluster 的结果
+     */
+    private boolean allowPartialResults = false;
+
+    /**
+     * 对冲读取的配置，为 null 表示不使用对冲读取
+     */
+    private volatile HedgePolicy hedgePolicy;
+
+    /**
+     * 合并并发的相同读取请求，为 null 表示不合并
+     */
+    private volatile RequestCoalescer requestCoalescer;
+
+    /**
+     * 记录响应时间等运行数据，为 null 表示不记录
+     */
+    private volatile MetricsRecorder metricsRecorder;
+
     //////////////////////////////////////////////////////////////
 
     public AbstractClient(Sharding sharding) {
@@ -58,6 +118,89 @@ public abstract class AbstractClient {
         return charset;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 设置同时向多个 Cluster 发送请求时使用的线程池。这个线程池也用于 {@link PagedScanIterator} 的预取等任务，
+     * 线程池中的任务可能再次提交任务并等待其结果，所以线程数不能有上限，否则可能死锁
+     *
+     * @param executor 线程池，线程数不能有上限
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public long getClusterTimeout() {
+        return clusterTimeout;
+    }
+
+    /**
+     * 设置同时向多个 Cluster 发送请求时，等待每个 Cluster 回应的最长时间
+     *
+     * @param clusterTimeout 最长时间（毫秒），0 表示不限制（仍然受 Socket 超时时间限制）
+     */
+    public void setClusterTimeout(long clusterTimeout) {
+        this.clusterTimeout = clusterTimeout;
+    }
+
+    public boolean isAllowPartialResults() {
+        return allowPartialResults;
+    }
+
+    /**
+     * 设置同时向多个 Cluster 发送请求时，如果部分 Cluster 失败或超时，是否仍然返回其他 Cluster 的结果。
+     * 缺省为 false，即任何一个 Cluster 失败都会抛出异常
+     *
+     * @param allowPartialResults 是否允许返回部分结果
+     */
+    public void setAllowPartialResults(boolean allowPartialResults) {
+        this.allowPartialResults = allowPartialResults;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * 设置对冲读取。开启之后，发送给有多台服务器的 Cluster 的读取命令如果在一段延迟之后还没有回应，
+     * 就再发送给另一台服务器，采用先到的回应
+     *
+     * @param hedgePolicy 对冲读取的配置，为 null 表示关闭
+     */
+    public void setHedgePolicy(HedgePolicy hedgePolicy) {
+        this.hedgePolicy = hedgePolicy;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * 设置请求合并。开启之后，多个线程同时发送的相同读取命令只会发送一次，共享同一个回应
+     *
+     * @param requestCoalescer 请求合并对象，为 null 表示关闭
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * 设置记录运行数据的对象。开启之后，每个请求的响应时间、收发的字节数、借出连接的等待时间，
+     * 以及重发、超时和切换服务器的次数都会交给它记录。内置的实现是 {@link com.hyd.ssdb.metrics.ClientMetrics}
+     *
+     * @param metricsRecorder 记录运行数据的对象，为 null 表示关闭
+     */
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+        this.connectionPoolManager.setMetricsRecorder(metricsRecorder);
+    }
+
     /**
      * 获取负载均衡策略（可用于在运行时变更配置）
      *
@@ -123,8 +266,42 @@ public abstract class AbstractClient {
      * @return 执行结果
      */
     public Response sendRequest(Request request) {
+        RequestCoalescer requestCoalescer = this.requestCoalescer;
+        if (requestCoalescer == null) {
+            return sendRequestWithRetry(request);
+        }
+
+        if (requestCoalescer.isCoalescable(request)) {
+            return requestCoalescer.send(request, this::sendRequestWithRetry);
+        } else if (request instanceof WriteRequest) {
+            try {
+                return sendRequestWithRetry(request);
+            } finally {
+                requestCoalescer.writeCompleted();
+            }
+        } else {
+            return sendRequestWithRetry(request);
+        }
+    }
+
+    // 发送一个命令，连接失败时切换服务器重新发送
+    private Response sendRequestWithRetry(Request request) {
 
         SsdbException.clearThreadLocal();
+
+        HedgePolicy hedgePolicy = this.hedgePolicy;
+        if (hedgePolicy != null && !(request instanceof WriteRequest)
+            && request.getForceServer() == null && request.getKey() != null) {
+
+            Cluster cluster = getSharding().getClusterByKey(request.getKey());
+            if (cluster.getServers().size() > 1) {
+                Response response = sendHedgedRequest(request, cluster, hedgePolicy);
+                if (response != null) {
+                    return response;
+                }
+            }
+        }
+
         boolean needResend;
         Response response = null;
 
@@ -147,7 +324,7 @@ public abstract class AbstractClient {
                     LOG.debug("choose server " + connection.getHost() + ":" + connection.getPort());
                 }
 
-                response = sendRequest(request, connection);
+                response = sendRequest(request, connection, connectionPool.getServer(), poolAndConnection.getCluster());
                 needResend = false;
             } catch (SsdbServerException | SsdbNoServerAvailableException | SsdbNoClusterAvailableException e) {
                 SsdbException.clearThreadLocal();
@@ -158,6 +335,7 @@ public abstract class AbstractClient {
                 // 标记不可用的服务器，这样下次循环就会切换到其他服务器了
                 if (connection != null) {
                     connectionPoolManager.reportInvalidConnection(connection);
+                    recordRetry(request, connectionPool.getServer());
                 }
                 needResend = true;
             } catch (SsdbException e) {
@@ -183,50 +361,434 @@ public abstract class AbstractClient {
     }
 
     /**
-     * 发送指定请求到所有 Cluster，并收集返回的 Response 对象
-     * TODO 如果将来需要让发送请求的过程并发执行，则需修改这里
+     * 发送指定请求到所有 Cluster，并收集返回的 Response 对象。如果有 Cluster 失败，
+     * 则根据 {@link #setAllowPartialResults(boolean)} 的配置抛出异常或者只返回成功的部分
      *
      * @param request 请求
      *
-     * @return Response 对象集合
+     * @return Response 对象集合，按照 Cluster 的顺序排列
      */
     protected List<Response> sendRequestToAll(Request request) {
-        List<PoolAndConnection> pacList = connectionPoolManager.getAllClusterConnections(request);
-        List<Response> responseList = new ArrayList<>();
+        ScatterResult result = sendRequestToAllClusters(request);
+
+        if (!result.isComplete()) {
+            if (allowPartialResults) {
+                LOG.warn("Request '" + request.getHeader() + "' failed on clusters: " + result.getFailures().keySet());
+            } else {
+                Throwable cause = result.getFailures().values().iterator().next();
+                if (cause instanceof SsdbException) {
+                    throw (SsdbException) cause;
+                } else {
+                    throw new SsdbException(cause);
+                }
+            }
+        }
+
+        return result.getResponses();
+    }
+
+    /**
+     * 同时发送指定请求到所有 Cluster，等待所有 Cluster 返回或超时
+     *
+     * @param request 请求
+     *
+     * @return 各个 Cluster 的回应，以及失败的 Cluster
+     */
+    public ScatterResult sendRequestToAllClusters(Request request) {
+        List<Cluster> clusters = getSharding().getClusters();
+        ScatterResult result = new ScatterResult();
+
+        // 只有一个 Cluster 时直接在当前线程中执行
+        if (clusters.size() == 1) {
+            try {
+                result.addResponse(sendRequestToCluster(request, clusters.get(0)));
+            } catch (Exception e) {
+                result.addFailure(clusters.get(0), e);
+            }
+            return result;
+        }
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>(clusters.size());
+        for (Cluster cluster : clusters) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                SsdbException.clearThreadLocal();
+                return sendRequestToCluster(request, cluster);
+            }, executor));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(clusterTimeout);
+        for (int i = 0; i < clusters.size(); i++) {
+            Cluster cluster = clusters.get(i);
+            try {
+                result.addResponse(waitFor(futures.get(i), deadline));
+            } catch (ExecutionException e) {
+                result.addFailure(cluster, e.getCause());
+            } catch (TimeoutException e) {
+                recordClusterTimeout(request, cluster);
+                result.addFailure(cluster, new SsdbClientException(
+                    "Cluster '" + cluster.getId() + "' timed out after " + clusterTimeout + "ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.addFailure(cluster, new SsdbClientException(e));
+            }
+        }
 
-        for (PoolAndConnection pac : pacList) {
-            Connection connection = pac.getConnection();
+        return result;
+    }
+
+    /**
+     * 同时发送多个请求（通常每个请求对应不同的 Cluster），等待所有请求完成。任何一个请求失败都会抛出异常
+     *
+     * @param requests 请求
+     *
+     * @return 执行结果，与 requests 的顺序一致
+     */
+    protected List<Response> sendRequestsInParallel(List<Request> requests) {
+        if (requests.size() == 1) {
+            return Collections.singletonList(sendRequest(requests.get(0)));
+        }
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                SsdbException.clearThreadLocal();
+                return sendRequest(request);
+            }, executor));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(clusterTimeout);
+        List<Response> responses = new ArrayList<>(requests.size());
+        for (CompletableFuture<Response> future : futures) {
             try {
-                responseList.add(sendRequest(request, connection));
+                responses.add(waitFor(future, deadline));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof SsdbException ? (SsdbException) cause : new SsdbException(cause);
+            } catch (TimeoutException e) {
+                Request request = requests.get(responses.size());
+                recordClusterTimeout(request, getSharding().getClusterByKey(request.getKey()));
+                throw new SsdbClientException("Request timed out after " + clusterTimeout + "ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SsdbClientException(e);
+            }
+        }
+        return responses;
+    }
+
+    // 等待请求完成，如果配置了 clusterTimeout，则最多等到 deadline
+    private Response waitFor(CompletableFuture<Response> future, long deadline)
+        throws InterruptedException, ExecutionException, TimeoutException {
+
+        if (clusterTimeout > 0) {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } else {
+            return future.get();
+        }
+    }
+
+    /**
+     * 以对冲方式发送读取命令：先发送给一台服务器，如果超过延迟还没有回应，再发送给另一台服务器，
+     * 采用先到的回应。较慢的请求仍然会在线程池中执行完毕并读取回应，然后正常归还连接。
+     *
+     * @return 执行结果。如果两台服务器都因为连接问题失败，则返回 null，由调用者按照普通方式重新发送
+     */
+    private Response sendHedgedRequest(Request request, Cluster cluster, HedgePolicy hedgePolicy) {
+        Server primary = cluster.getRandomServer();
+        CompletableFuture<Response> first = sendRequestToServerAsync(request, primary, cluster, hedgePolicy);
+
+        CompletableFuture<Response> result = first;
+        try {
+            return first.get(hedgePolicy.getDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Server secondary = pickOtherServer(cluster, primary);
+            if (secondary != null) {
+                hedgePolicy.hedgeSent();
+                CompletableFuture<Response> second = sendRequestToServerAsync(request, secondary, cluster, hedgePolicy);
+                result = firstResponse(first, second, hedgePolicy);
+            }
+        } catch (ExecutionException e) {
+            return handleHedgeFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SsdbClientException(e);
+        }
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            return handleHedgeFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SsdbClientException(e);
+        }
+    }
+
+    // 服务器返回的错误直接抛出；连接问题返回 null，让调用者重新发送
+    private Response handleHedgeFailure(Throwable cause) {
+        if (cause instanceof SsdbClientException) {
+            LOG.error("Hedged request failed", cause);
+            return null;
+        }
+        throw cause instanceof SsdbException ? (SsdbException) cause : new SsdbException(cause);
+    }
+
+    // 从 cluster 中选择 primary 之外的一台服务器
+    private Server pickOtherServer(Cluster cluster, Server primary) {
+        List<Server> servers = cluster.getServers();
+        int size = servers.size();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            Server server = servers.get((start + i) % size);
+            if (!server.equals(primary)) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    // 返回先正常完成的结果；服务器返回的错误也算作回应。两个都因为连接问题失败时，以后一个异常结束
+    private CompletableFuture<Response> firstResponse(
+        CompletableFuture<Response> first, CompletableFuture<Response> second, HedgePolicy hedgePolicy) {
+
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        first.whenComplete((response, e) -> completeHedge(result, response, e, failures));
+        second.whenComplete((response, e) -> {
+            if (completeHedge(result, response, e, failures)) {
+                hedgePolicy.hedgeWon();
+            }
+        });
+        return result;
+    }
+
+    // 返回 result 是否由本次调用完成
+    private boolean completeHedge(CompletableFuture<Response> result, Response response, Throwable e, AtomicInteger failures) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause == null) {
+            return result.complete(response);
+        } else if (!(cause instanceof SsdbClientException) || failures.incrementAndGet() == 2) {
+            return result.completeExceptionally(cause);
+        }
+        return false;
+    }
+
+    // 在对冲读取的线程池中发送请求到指定的服务器
+    private CompletableFuture<Response> sendRequestToServerAsync(
+        Request request, Server server, Cluster cluster, HedgePolicy hedgePolicy) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            SsdbException.clearThreadLocal();
+            PoolAndConnection poolAndConnection = connectionPoolManager.getConnection(server);
+            Connection connection = poolAndConnection.getConnection();
+            try {
+                long start = System.nanoTime();
+                Response response = sendRequest(request, connection, server, cluster);
+                hedgePolicy.recordLatency(System.nanoTime() - start);
+                return response;
+            } catch (SsdbServerException e) {
+                throw e;
+            } catch (SsdbClientException e) {
+                connectionPoolManager.reportInvalidConnection(connection);
+                throw e;
+            } finally {
+                poolAndConnection.getConnectionPool().returnObject(connection);
+            }
+        }, hedgePolicy.getExecutor());
+    }
+
+    /**
+     * 发送请求到指定的 Cluster。如果收发失败，则将服务器标记为不可用，然后尝试该 Cluster 的其他服务器。
+     * 用于需要逐个 Cluster 处理的场合，例如导出全部数据
+     *
+     * @param request 请求
+     * @param cluster 集群
+     *
+     * @return 执行结果
+     */
+    public Response sendRequestToCluster(Request request, Cluster cluster) {
+        while (true) {
+            PoolAndConnection poolAndConnection = connectionPoolManager.getConnection(request, cluster);
+            Connection connection = poolAndConnection.getConnection();
+            try {
+                return sendRequest(request, connection, poolAndConnection.getConnectionPool().getServer(), cluster);
+            } catch (SsdbServerException e) {
+                throw e;
+            } catch (SsdbClientException e) {
+                LOG.error("Connection error", e);
+                connectionPoolManager.reportInvalidConnection(connection);
+                recordRetry(request, poolAndConnection.getConnectionPool().getServer());
             } finally {
-                pac.getConnectionPool().returnObject(connection);
+                poolAndConnection.getConnectionPool().returnObject(connection);
+            }
+        }
+    }
+
+    /**
+     * 以管道方式发送多个命令。命令按照 key 所属的 Cluster 分组，同一组的命令在同一个连接上
+     * 一次性发送，然后按顺序读取回应。如果一组命令中包含写入操作，则整组发送给主服务器。
+     * <p>
+     * 发送失败时不会重发，因为无法知道哪些写入已经生效。
+     *
+     * @param requests 要发送的命令
+     *
+     * @return 执行结果，与 requests 的顺序一致
+     */
+    protected List<Response> sendPipeline(List<Request> requests) {
+        List<Response> responses = sendPipelineUnchecked(requests);
+
+        // 所有回应都读取完毕之后再检查，这样出错时连接中不会残留未读取的内容
+        for (int i = 0; i < responses.size(); i++) {
+            checkResponse(requests.get(i), responses.get(i));
+        }
+
+        return responses;
+    }
+
+    /**
+     * 以管道方式发送多个命令，但不检查回应是否为错误信息，由调用者逐个检查
+     *
+     * @param requests 要发送的命令
+     *
+     * @return 执行结果，与 requests 的顺序一致
+     *
+     * @see #sendPipeline(List)
+     */
+    protected List<Response> sendPipelineUnchecked(List<Request> requests) {
+
+        if (requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        SsdbException.clearThreadLocal();
+
+        // {Cluster -> 命令在 requests 中的位置}
+        Map<Cluster, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Cluster cluster = getSharding().getClusterByKey(requests.get(i).getKey());
+            groups.computeIfAbsent(cluster, c -> new ArrayList<>()).add(i);
+        }
+
+        Response[] responses = new Response[requests.size()];
+        RequestCoalescer requestCoalescer = this.requestCoalescer;
+        try {
+            for (List<Integer> indexes : groups.values()) {
+                sendPipeline(requests, indexes, responses);
+            }
+        } finally {
+            if (requestCoalescer != null && requests.stream().anyMatch(r -> r instanceof WriteRequest)) {
+                requestCoalescer.writeCompleted();
+            }
+        }
+
+        return Arrays.asList(responses);
+    }
+
+    // 在同一个连接上发送一组命令，回应存放到 responses 的对应位置
+    private void sendPipeline(List<Request> requests, List<Integer> indexes, Response[] responses) {
+
+        // 用于选择连接的命令：只要有一个写入操作，就要选择主服务器
+        Request routingRequest = requests.get(indexes.get(0));
+        for (Integer index : indexes) {
+            if (requests.get(index) instanceof WriteRequest) {
+                routingRequest = requests.get(index);
+                break;
             }
         }
-        return responseList;
+
+        PoolAndConnection poolAndConnection = connectionPoolManager.getConnection(routingRequest);
+        ConnectionPool connectionPool = poolAndConnection.getConnectionPool();
+        Connection connection = poolAndConnection.getConnection();
+
+        try {
+            List<Request> group = new ArrayList<>(indexes.size());
+            for (Integer index : indexes) {
+                group.add(requests.get(index));
+            }
+
+            connection.send(group);
+            for (Integer index : indexes) {
+                responses[index] = connection.receivePacket(this.charset);
+            }
+
+        } catch (SsdbClientException e) {
+            connectionPoolManager.reportInvalidConnection(connection);
+            throw e;
+        } catch (SsdbException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SsdbException(e);
+        } finally {
+            connectionPool.returnObject(connection);
+        }
     }
 
-    // 发送一个命令，但不会把连接返回给连接池（内部使用）
-    private Response sendRequest(Request request, Connection connection) {
+    // 发送一个命令，但不会把连接返回给连接池（内部使用）。收到回应后记录服务器的响应时间
+    private Response sendRequest(Request request, Connection connection, Server server, Cluster cluster) {
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        long bytesSent = connection.getBytesSent();
+        long bytesReceived = connection.getBytesReceived();
+        long start = System.nanoTime();
+        boolean success = false;
+
         try {
-            byte[] bytes = request.toBytes();
-            connection.send(bytes);
+            connection.send(request);
             Response response = connection.receivePacket(this.charset);
-            checkResponse(request.getHeader().toString(), response);
+            server.getStats().recordLatency(System.nanoTime() - start);
+
+            checkResponse(request, response);
+            success = true;
             return response;
 
+        } catch (SsdbSocketFailedException e) {
+            if (e.getCause() instanceof SocketTimeoutException) {
+                recordTimeout(request, server);
+            }
+            throw e;
         } catch (SsdbException e) {
             throw e;
         } catch (Exception e) {
             throw new SsdbException(e);
+        } finally {
+            if (metricsRecorder != null) {
+                String command = request.getHeader().toString();
+                metricsRecorder.requestCompleted(command, server, cluster, System.nanoTime() - start, success);
+                metricsRecorder.bytesTransferred(command, server,
+                    connection.getBytesSent() - bytesSent, connection.getBytesReceived() - bytesReceived);
+            }
+        }
+    }
+
+    private void recordRetry(Request request, Server server) {
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        if (metricsRecorder != null) {
+            metricsRecorder.requestRetried(request.getHeader().toString(), server);
+        }
+    }
+
+    private void recordTimeout(Request request, Server server) {
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        if (metricsRecorder != null) {
+            metricsRecorder.requestTimedOut(request.getHeader().toString(), server);
+        }
+    }
+
+    private void recordClusterTimeout(Request request, Cluster cluster) {
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        if (metricsRecorder != null) {
+            metricsRecorder.clusterTimedOut(request.getHeader().toString(), cluster);
         }
     }
 
-    // 检查服务器回应，如果是错误回应则抛出一个异常
-    private static void checkResponse(String requestHeader, Response response) {
-        String header = response.getHead().toString();
-        LOG.debug("RESPONSE(" + requestHeader + "): [" + header + "] - (" + response.getBody().size() + " blocks)");
+    // 检查服务器回应，如果是错误回应则抛出一个异常。正常的回应直接按字节判断，不需要解码
+    static void checkResponse(Request request, Response response) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RESPONSE(" + request.getHeader() + "): [" + response.getHead() + "] - (" + response.getBody().size() + " blocks)");
+        }
 
-        if (!(header.equals("ok") || header.equals("not_found"))) {
+        if (!(response.isOk() || response.isNotFound())) {
+            String header = response.getHead().toString();
             SsdbException e = new SsdbException("Server return error: '" + header + "'");
             e.setServerErrorCode(header);
             throw e;
@@ -419,4 +981,88 @@ public abstract class AbstractClient {
         }
         return result;
     }
+
+    /**
+     * 合并多个 Cluster 返回的有序 key 列表，合并结果仍然按照 key 的字节顺序排列。
+     * 每个 Cluster 都返回了自己的前 limit 个 key 时，合并后的前 limit 个就是整体的前 limit 个
+     *
+     * @param responseList 各个 Cluster 的回应，每个回应中的 key 都是有序的
+     * @param descending   是否为倒序
+     * @param limit        最多返回的数量，小于 0 表示不限
+     *
+     * @return 合并后的 key 列表
+     */
+    protected List<String> mergeSortedBlocks(List<Response> responseList, boolean descending, int limit) {
+        List<List<Block>> lists = new ArrayList<>(responseList.size());
+        for (Response response : responseList) {
+            lists.add(response.getBody());
+        }
+
+        List<Block> merged = mergeSorted(lists, Block::getData, descending, limit);
+        List<String> result = new ArrayList<>(merged.size());
+        for (Block block : merged) {
+            result.add(block.toString(this.charset));
+        }
+        return result;
+    }
+
+    /**
+     * 合并多个 Cluster 返回的有序键值对列表，合并结果仍然按照 key 的字节顺序排列
+     *
+     * @param responseList 各个 Cluster 的回应，每个回应中的键值对都是按 key 排序的
+     * @param descending   是否为倒序
+     * @param limit        最多返回的数量，小于 0 表示不限
+     *
+     * @return 合并后的键值对列表
+     */
+    protected List<KeyValue> mergeSortedKeyValues(List<Response> responseList, boolean descending, int limit) {
+        List<List<KeyValue>> lists = new ArrayList<>(responseList.size());
+        for (Response response : responseList) {
+            lists.add(response.getKeyValues());
+        }
+        return mergeSorted(lists, KeyValue::getKey, descending, limit);
+    }
+
+    // 多路归并，每个列表本身必须是有序的。取够 limit 个就停止
+    static <T> List<T> mergeSorted(
+        List<List<T>> lists, Function<T, byte[]> keyOf, boolean descending, int limit) {
+
+        int total = 0;
+        for (List<T> list : lists) {
+            total += list.size();
+        }
+        if (limit >= 0) {
+            total = Math.min(total, limit);
+        }
+
+        List<T> result = new ArrayList<>(total);
+        if (lists.size() == 1) {
+            result.addAll(lists.get(0).subList(0, total));
+            return result;
+        }
+
+        // 队列中的元素为 {列表序号, 元素序号}
+        PriorityQueue<int[]> queue = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> {
+            int c = Bytes.compare(keyOf.apply(lists.get(a[0]).get(a[1])), keyOf.apply(lists.get(b[0]).get(b[1])));
+            return descending ? -c : c;
+        });
+
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                queue.add(new int[]{i, 0});
+            }
+        }
+
+        while (!queue.isEmpty() && result.size() < total) {
+            int[] cursor = queue.poll();
+            List<T> list = lists.get(cursor[0]);
+            result.add(list.get(cursor[1]));
+
+            if (++cursor[1] < list.size()) {
+                queue.add(cursor);
+            }
+        }
+
+        return result;
+    }
 }
@@ -0,0 +1,620 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.Sharding;
+import com.hyd.ssdb.conn.AsyncConnection;
+import com.hyd.ssdb.conn.AsyncConnectionManager;
+import com.hyd.ssdb.protocol.Block;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.WriteRequest;
+import com.hyd.ssdb.sharding.ConsistentHashSharding;
+import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.KeyValue;
+import com.hyd.ssdb.util.Num;
+import com.hyd.ssdb.util.Str;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 异步客户端。每个命令方法都立即返回一个 CompletableFuture，请求通过非阻塞连接发送，
+ * 同一个连接上可以同时有多个未完成的请求，不需要为每个并发请求占用一个连接。
+ * <p>
+ * 命令方法覆盖 {@link SsdbClient} 中常用的 key-value、hash、zset 和队列命令，包括 multi_get、multi_set、
+ * keys、scan 等跨 Cluster 的命令（同时发送到各个 Cluster 再合并结果）。其他命令可以通过 {@link #sendRequest(Object...)} 发送。
+ * <p>
+ * 注意：CompletableFuture 的回调（thenApply、thenAccept 等）默认在 I/O 线程中执行，
+ * 如果回调中有耗时操作，请使用 thenApplyAsync 等方法，否则会阻塞其他请求的收发。
+ * <p>
+ * 应用关闭时，需要调用 {@link #close()} 方法释放资源。
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AsyncSsdbClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncSsdbClient.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * 缺省的线程池，用于连接出错后重新发送请求
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hydrogen-ssdb-async-retry-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AsyncConnectionManager connectionManager;
+
+    private final Charset charset = AbstractClient.DEFAULT_CHARSET;
+
+    /**
+     * 连接出错后重新发送请求时使用的线程池
+     */
+    private volatile Executor executor = DEFAULT_EXECUTOR;
+
+    public AsyncSsdbClient(String host, int port) {
+        this(new ConsistentHashSharding(Cluster.fromSingleServer(host, port)));
+    }
+
+    public AsyncSsdbClient(String host, int port, String pass) {
+        this(new ConsistentHashSharding(Cluster.fromSingleServer(host, port, pass)));
+    }
+
+    public AsyncSsdbClient(Server server) {
+        this(new ConsistentHashSharding(Cluster.fromSingleServer(server)));
+    }
+
+    public AsyncSsdbClient(List<Server> servers) {
+        this(new ConsistentHashSharding(Cluster.toClusters(servers)));
+    }
+
+    public AsyncSsdbClient(Sharding sharding) {
+        this(sharding, AsyncConnectionManager.DEFAULT_CONNECTIONS_PER_SERVER);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param sharding             负载均衡策略
+     * @param connectionsPerServer 每台服务器的连接数
+     */
+    public AsyncSsdbClient(Sharding sharding, int connectionsPerServer) {
+        this.connectionManager = new AsyncConnectionManager(sharding, charset, connectionsPerServer);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public Sharding getSharding() {
+        return connectionManager.getSharding();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 设置连接出错后重新发送请求时使用的线程池。重新发送时可能要创建新的连接，会阻塞线程
+     *
+     * @param executor 线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 关闭所有连接，未完成的请求会以异常结束
+     */
+    public void close() {
+        connectionManager.close();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    /**
+     * 发送命令，每个参数为命令的一部分，例如 "get", "key1"
+     *
+     * @param tokens 命令中的各个部分
+     *
+     * @return 执行结果
+     */
+    public CompletableFuture<Response> sendRequest(Object... tokens) {
+        return sendRequest(new Request(tokens));
+    }
+
+    /**
+     * 发送包含写入操作的命令，每个参数为命令的一部分，例如 "set", "key1", "value1"
+     *
+     * @param tokens 命令中的各个部分
+     *
+     * @return 执行结果
+     */
+    public CompletableFuture<Response> sendWriteRequest(Object... tokens) {
+        return sendRequest(new WriteRequest(tokens));
+    }
+
+    /**
+     * 发送一个命令。如果连接出错，则将服务器标记为不可用并重新发送到其他服务器；
+     * 如果服务器返回错误信息，则返回的 CompletableFuture 以 SsdbException 结束。
+     *
+     * @param request 命令对象
+     *
+     * @return 执行结果
+     */
+    public CompletableFuture<Response> sendRequest(Request request) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        sendRequest(request, null, result);
+        return result;
+    }
+
+    /**
+     * 发送一个命令到指定的 Cluster，不论命令中的 key 属于哪个 Cluster
+     *
+     * @param request 命令对象
+     * @param cluster 指定的 Cluster
+     *
+     * @return 执行结果
+     */
+    public CompletableFuture<Response> sendRequestToCluster(Request request, Cluster cluster) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        sendRequest(request, cluster, result);
+        return result;
+    }
+
+    /**
+     * 同时发送命令到所有 Cluster，结果按照 Cluster 的顺序排列。任何一个 Cluster 失败，返回的 CompletableFuture 都以异常结束
+     *
+     * @param tokens 命令中的各个部分
+     *
+     * @return 各个 Cluster 的执行结果
+     */
+    public CompletableFuture<List<Response>> sendRequestToAll(Object... tokens) {
+        List<Cluster> clusters = getSharding().getClusters();
+        List<CompletableFuture<Response>> futures = new ArrayList<>(clusters.size());
+        for (Cluster cluster : clusters) {
+            futures.add(sendRequestToCluster(new Request(tokens), cluster));
+        }
+        return allOf(futures);
+    }
+
+    private void sendRequest(Request request, Cluster cluster, CompletableFuture<Response> result) {
+        AsyncConnection connection;
+        try {
+            connection = connectionManager.getConnection(request, cluster);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        connection.send(request).whenComplete((response, e) -> {
+            if (e == null) {
+                try {
+                    AbstractClient.checkResponse(request, response);
+                    result.complete(response);
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+
+            } else if (e instanceof SsdbSocketFailedException && request.getForceServer() == null) {
+                LOG.error("Connection error", e);
+
+                // 标记不可用的服务器，然后重新发送。创建新连接可能会阻塞，所以不在 I/O 线程中执行
+                connectionManager.reportInvalidServer(connection.getServer());
+                try {
+                    executor.execute(() -> sendRequest(request, cluster, result));
+                } catch (RejectedExecutionException ex) {
+                    result.completeExceptionally(e);
+                }
+
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    //////////////////////////////////////////////////////////////// key value commands
+
+    public CompletableFuture<String> get(String key) {
+        checkKey(key);
+        return sendRequest("get", key).thenApply(Response::firstBlock);
+    }
+
+    public CompletableFuture<byte[]> getBytes(String key) {
+        checkKey(key);
+        return sendRequest("get", key).thenApply(Response::getBytes);
+    }
+
+    public CompletableFuture<Void> set(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        return sendWriteRequest("set", key, value).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Void> setx(String key, Object value, int ttlSeconds) {
+        checkKey(key);
+        checkValue(value);
+        return sendWriteRequest("setx", key, value, ttlSeconds).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Integer> expire(String key, int ttlSeconds) {
+        checkKey(key);
+        return sendWriteRequest("expire", key, ttlSeconds).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<Integer> ttl(String key) {
+        checkKey(key);
+        return sendRequest("ttl", key).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<Void> del(String key) {
+        checkKey(key);
+        return sendWriteRequest("del", key).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Long> incr(String key, long incr) {
+        checkKey(key);
+        return sendWriteRequest("incr", key, incr).thenApply(Response::getLongResult);
+    }
+
+    public CompletableFuture<Boolean> exists(String key) {
+        checkKey(key);
+        return sendRequest("exists", key).thenApply(response -> response.getIntResult() > 0);
+    }
+
+    public CompletableFuture<List<String>> keys(String startExclude, String endInclude, int limit) {
+        return sendRequestToAll("keys", startExclude, endInclude, limit)
+            .thenApply(responses -> mergeSortedBlocks(responses, false, limit));
+    }
+
+    public CompletableFuture<List<String>> rkeys(String startExclude, String endInclude, int limit) {
+        return sendRequestToAll("rkeys", startExclude, endInclude, limit)
+            .thenApply(responses -> mergeSortedBlocks(responses, true, limit));
+    }
+
+    public CompletableFuture<List<KeyValue>> scan(String startExclude, String endInclude, int limit) {
+        return sendRequestToAll("scan", startExclude, endInclude, limit)
+            .thenApply(responses -> mergeSortedKeyValues(responses, false, limit));
+    }
+
+    public CompletableFuture<List<KeyValue>> rscan(String startExclude, String endInclude, int limit) {
+        return sendRequestToAll("rscan", startExclude, endInclude, limit)
+            .thenApply(responses -> mergeSortedKeyValues(responses, true, limit));
+    }
+
+    public CompletableFuture<List<String>> multiGet(String... keys) {
+        if (keys == null || keys.length == 0) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return multiGet(Arrays.asList(keys));
+    }
+
+    /**
+     * 一次取多个 key。如果 Sharding 中包含多个 Cluster，则 key 按照 Cluster 分组，
+     * 同时向每个 Cluster 发送一个 multi_get 命令。
+     *
+     * @param keys key 列表
+     *
+     * @return value 列表，与 keys 的顺序一致，不存在的 key 对应的值为 null
+     */
+    public CompletableFuture<List<String>> multiGet(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (List<String> group : groupByCluster(keys, key -> key)) {
+            List<Object> tokens = new ArrayList<>(group.size() + 1);
+            tokens.add("multi_get");
+            tokens.addAll(group);
+            futures.add(sendRequest(tokens.toArray()));
+        }
+
+        return allOf(futures).thenApply(responses -> {
+            Map<String, String> values = new HashMap<>();
+            for (Response response : responses) {
+                List<Block> body = response.getBody();
+                for (int i = 0; i + 1 < body.size(); i += 2) {
+                    values.put(body.get(i).toString(charset), body.get(i + 1).toString(charset));
+                }
+            }
+
+            List<String> result = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                result.add(values.get(key));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 一次写入多个键值对。如果 Sharding 中包含多个 Cluster，则按照 Cluster 分组，同时向每个 Cluster 发送一个 multi_set 命令
+     *
+     * @param keyValues 键值对
+     *
+     * @return 全部写入后完成
+     */
+    public CompletableFuture<Void> multiSet(List<KeyValue> keyValues) {
+        if (keyValues == null || keyValues.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (List<KeyValue> group : groupByCluster(keyValues, KeyValue::getKeyString)) {
+            List<Object> tokens = new ArrayList<>(group.size() * 2 + 1);
+            tokens.add("multi_set");
+            for (KeyValue keyValue : group) {
+                tokens.add(keyValue.getKey());
+                tokens.add(keyValue.getValue());
+            }
+            futures.add(sendWriteRequest(tokens.toArray()));
+        }
+        return allOf(futures).thenApply(responses -> null);
+    }
+
+    //////////////////////////////////////////////////////////////// hashmap commands
+
+    public CompletableFuture<Void> hset(String key, String propName, Object propValue) {
+        checkKey(key);
+        checkValue(propValue);
+        return sendWriteRequest("hset", key, propName, propValue).thenApply(response -> null);
+    }
+
+    public CompletableFuture<String> hget(String key, String propName) {
+        checkKey(key);
+        return sendRequest("hget", key, propName).thenApply(Response::firstBlock);
+    }
+
+    public CompletableFuture<Integer> hdel(String key, String propName) {
+        checkKey(key);
+        return sendWriteRequest("hdel", key, propName).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<Long> hincr(String key, String propName, long incr) {
+        checkKey(key);
+        return sendWriteRequest("hincr", key, propName, incr).thenApply(Response::getLongResult);
+    }
+
+    public CompletableFuture<Integer> hsize(String key) {
+        checkKey(key);
+        return sendRequest("hsize", key).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<List<KeyValue>> hgetall(String key) {
+        checkKey(key);
+        return sendRequest("hgetall", key).thenApply(Response::getKeyValues);
+    }
+
+    public CompletableFuture<Map<String, String>> hgetallmap(String key) {
+        checkKey(key);
+        return sendRequest("hgetall", key).thenApply(response -> response.getBlocksAsStringMap(charset));
+    }
+
+    public CompletableFuture<List<String>> hkeys(String key, String startExclude, String endInclude, int limit) {
+        checkKey(key);
+        return sendRequest("hkeys", key, startExclude, endInclude, limit).thenApply(Response::getBlocks);
+    }
+
+    public CompletableFuture<List<KeyValue>> hscan(String key, String startExclude, String endInclude, int limit) {
+        checkKey(key);
+        return sendRequest("hscan", key, startExclude, endInclude, limit).thenApply(Response::getKeyValues);
+    }
+
+    public CompletableFuture<List<KeyValue>> hrscan(String key, String startExclude, String endInclude, int limit) {
+        checkKey(key);
+        return sendRequest("hrscan", key, startExclude, endInclude, limit).thenApply(Response::getKeyValues);
+    }
+
+    public CompletableFuture<Void> multiHset(String key, List<KeyValue> props) {
+        checkKey(key);
+        List<Object> tokens = new ArrayList<>(props.size() * 2 + 2);
+        tokens.add("multi_hset");
+        tokens.add(key);
+        for (KeyValue prop : props) {
+            tokens.add(prop.getKey());
+            tokens.add(prop.getValue());
+        }
+        return sendWriteRequest(tokens.toArray()).thenApply(response -> null);
+    }
+
+    public CompletableFuture<List<KeyValue>> multiHget(String key, String... propNames) {
+        return multiHget(key, Arrays.asList(propNames));
+    }
+
+    public CompletableFuture<List<KeyValue>> multiHget(String key, List<String> propNames) {
+        checkKey(key);
+        List<Object> tokens = new ArrayList<>(propNames.size() + 2);
+        tokens.add("multi_hget");
+        tokens.add(key);
+        tokens.addAll(propNames);
+        return sendRequest(tokens.toArray()).thenApply(Response::getKeyValues);
+    }
+
+    //////////////////////////////////////////////////////////////// sorted set
+
+    public CompletableFuture<Void> zset(String key, String id, long score) {
+        checkKey(key);
+        return sendWriteRequest("zset", key, id, score).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Long> zget(String key, String id) {
+        checkKey(key);
+        return sendRequest("zget", key, id).thenApply(Response::getLongResult);
+    }
+
+    public CompletableFuture<Void> zdel(String key, String id) {
+        checkKey(key);
+        return sendWriteRequest("zdel", key, id).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Long> zincr(String key, String id, long incr) {
+        checkKey(key);
+        return sendWriteRequest("zincr", key, id, incr).thenApply(Response::getLongResult);
+    }
+
+    public CompletableFuture<Integer> zsize(String key) {
+        checkKey(key);
+        return sendRequest("zsize", key).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<List<IdScore>> zrange(String key, int offset, int limit) {
+        checkKey(key);
+        return sendRequest("zrange", key, offset, limit).thenApply(Response::getIdScores);
+    }
+
+    public CompletableFuture<List<IdScore>> zrrange(String key, int offset, int limit) {
+        checkKey(key);
+        return sendRequest("zrrange", key, offset, limit).thenApply(Response::getIdScores);
+    }
+
+    /**
+     * 同 {@link SsdbClient#zscan(String, String, Long, Long, int)}
+     *
+     * @param key               zset 的 key
+     * @param keyStartExclude   （可选）起始 id（不包含）
+     * @param scoreStartInclude （可选）score 的最小值，为空表示无限小(-inf)
+     * @param scoreEndInclude   （可选）score 的最大值，为空表示无限大(+inf)
+     * @param limit             最多返回记录数
+     *
+     * @return 查询结果
+     */
+    public CompletableFuture<List<IdScore>> zscan(
+        String key, String keyStartExclude, Long scoreStartInclude, Long scoreEndInclude, int limit
+    ) {
+        checkKey(key);
+        return sendRequest("zscan", key,
+            Str.ifBlank(keyStartExclude, ""),
+            Num.ifNull(scoreStartInclude, ""),
+            Num.ifNull(scoreEndInclude, ""),
+            limit
+        ).thenApply(Response::getIdScores);
+    }
+
+    public CompletableFuture<List<IdScore>> zrscan(
+        String key, String keyStartExclude, Long scoreStartInclude, Long scoreEndInclude, int limit
+    ) {
+        checkKey(key);
+        return sendRequest("zrscan", key,
+            Str.ifBlank(keyStartExclude, ""),
+            Num.ifNull(scoreStartInclude, ""),
+            Num.ifNull(scoreEndInclude, ""),
+            limit
+        ).thenApply(Response::getIdScores);
+    }
+
+    //////////////////////////////////////////////////////////////// queue
+
+    public CompletableFuture<Integer> qpushFront(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        return sendWriteRequest("qpush_front", key, value).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<Integer> qpushBack(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        return sendWriteRequest("qpush_back", key, value).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<List<String>> qpopFront(String key, int size) {
+        checkKey(key);
+        return sendWriteRequest("qpop_front", key, size).thenApply(Response::getBlocks);
+    }
+
+    public CompletableFuture<List<String>> qpopBack(String key, int size) {
+        checkKey(key);
+        return sendWriteRequest("qpop_back", key, size).thenApply(Response::getBlocks);
+    }
+
+    public CompletableFuture<Integer> qsize(String key) {
+        checkKey(key);
+        return sendRequest("qsize", key).thenApply(Response::getIntResult);
+    }
+
+    public CompletableFuture<List<String>> qrange(String key, int offset, int limit) {
+        checkKey(key);
+        return sendRequest("qrange", key, offset, limit).thenApply(Response::getBlocks);
+    }
+
+    public CompletableFuture<List<String>> qslice(String key, int startInclude, int endInclude) {
+        checkKey(key);
+        return sendRequest("qslice", key, startInclude, endInclude).thenApply(Response::getBlocks);
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    // 等待所有请求完成，结果与 futures 的顺序一致
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    // 按照 key 所属的 Cluster 分组
+    private <T> Collection<List<T>> groupByCluster(List<T> items, Function<T, String> keyOf) {
+        Map<Cluster, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(getSharding().getClusterByKey(keyOf.apply(item)), c -> new ArrayList<>()).add(item);
+        }
+        return groups.values();
+    }
+
+    // 合并各个 Cluster 返回的有序 key 列表
+    private List<String> mergeSortedBlocks(List<Response> responses, boolean descending, int limit) {
+        List<List<Block>> lists = new ArrayList<>(responses.size());
+        for (Response response : responses) {
+            lists.add(response.getBody());
+        }
+
+        List<Block> merged = AbstractClient.mergeSorted(lists, Block::getData, descending, limit);
+        List<String> result = new ArrayList<>(merged.size());
+        for (Block block : merged) {
+            result.add(block.toString(charset));
+        }
+        return result;
+    }
+
+    // 合并各个 Cluster 返回的按 key 排序的键值对列表
+    private static List<KeyValue> mergeSortedKeyValues(List<Response> responses, boolean descending, int limit) {
+        List<List<KeyValue>> lists = new ArrayList<>(responses.size());
+        for (Response response : responses) {
+            lists.add(response.getKeyValues());
+        }
+        return AbstractClient.mergeSorted(lists, KeyValue::getKey, descending, limit);
+    }
+
+    private void checkKey(String key) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+    }
+
+    private void checkValue(Object value) {
+        if (value == null) {
+            throw new SsdbException("Cannot save null to SSDB");
+        }
+    }
+}
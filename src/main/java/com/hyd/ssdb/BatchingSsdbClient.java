@@ -0,0 +1,405 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.WriteRequest;
+import com.hyd.ssdb.util.Str;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自动合并写入的客户端（group commit）。set、hset、zset 和 qpushBack 不会立即发送，
+ * 而是在一个很短的时间窗口内（或者积累到一定数量时）合并成 multi_set、multi_hset、multi_zset
+ * 和一次推入多个值的 qpush_back，以管道方式发送给各个 Cluster，然后分别完成每个调用者的 CompletableFuture。
+ * 适用于大量单个写入、对单次写入的延迟不敏感的场景。
+ * <p>
+ * 顺序保证：通过同一个 BatchingSsdbClient 对同一个 key 的写入，按调用的先后顺序生效。
+ * 与直接通过 SsdbClient 的写入之间没有顺序保证，需要时可以先调用 {@link #flush()}。
+ * <p>
+ * 错误处理：合并后的一个命令失败（服务器返回错误，或者连接失败）时，合并进这个命令的所有调用者都以相同的异常结束，
+ * 其他命令不受影响。和单个写入失败一样，以异常结束的写入可能已经生效，也可能没有；失败的写入不会重发。
+ * <p>
+ * CompletableFuture 在发送线程中完成，回调中如果有耗时操作，请使用 thenApplyAsync 等方法。
+ * 应用关闭时需要调用 {@link #close()}，它会发送尚未发送的写入，但不会关闭底层的 SsdbClient。
+ */
+public class BatchingSsdbClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingSsdbClient.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    public static final long DEFAULT_MAX_DELAY_MICROS = 200;
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final SsdbClient ssdbClient;
+
+    private final long maxDelayMicros;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService flusher;    // 单线程，保证各批次按顺序发送
+
+    private final Object lock = new Object();
+
+    private List<Operation> pending = new ArrayList<>();
+
+    private boolean flushScheduled;
+
+    private boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong operations = new AtomicLong();
+
+    public BatchingSsdbClient(SsdbClient ssdbClient) {
+        this(ssdbClient, DEFAULT_MAX_DELAY_MICROS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param ssdbClient     用于发送请求的客户端
+     * @param maxDelayMicros 写入最多等待多久后发送（微秒）
+     * @param maxBatchSize   积累到多少个写入时立即发送
+     */
+    public BatchingSsdbClient(SsdbClient ssdbClient, long maxDelayMicros, int maxBatchSize) {
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("maxDelayMicros must not be negative");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+
+        this.ssdbClient = ssdbClient;
+        this.maxDelayMicros = maxDelayMicros;
+        this.maxBatchSize = maxBatchSize;
+
+        ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "hydrogen-ssdb-batcher-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);    // close() 时会立即发送，不需要再等待
+        this.flusher = flusher;
+    }
+
+    public SsdbClient getSsdbClient() {
+        return ssdbClient;
+    }
+
+    public long getMaxDelayMicros() {
+        return maxDelayMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * 已发送的批次数
+     *
+     * @return 批次数
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * 已发送的写入数
+     *
+     * @return 写入数
+     */
+    public long getOperationCount() {
+        return operations.get();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    public CompletableFuture<Void> set(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        return enqueue(new Operation("set", key, value, null));
+    }
+
+    public CompletableFuture<Void> hset(String key, String propName, Object propValue) {
+        checkKey(key);
+        checkValue(propValue);
+        return enqueue(new Operation("hset", key, propName, propValue));
+    }
+
+    public CompletableFuture<Void> zset(String key, String id, long score) {
+        checkKey(key);
+        return enqueue(new Operation("zset", key, id, score));
+    }
+
+    /**
+     * 向队列尾部添加一个值
+     *
+     * @param key   队列名
+     * @param value 值
+     *
+     * @return 添加之后队列的长度
+     */
+    public CompletableFuture<Integer> qpushBack(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        return enqueue(new Operation("qpush_back", key, value, null));
+    }
+
+    /**
+     * 立即发送已经积累的写入，并等待发送完成
+     */
+    public void flush() {
+        try {
+            flusher.submit(this::flushPending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SsdbClientException(e);
+        } catch (Exception e) {
+            throw new SsdbClientException("Flush failed", e);
+        }
+    }
+
+    /**
+     * 发送尚未发送的写入，然后停止发送线程。之后再调用写入方法会抛出异常
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        flusher.execute(this::flushPending);
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Timed out waiting for pending writes to be sent");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enqueue(Operation operation) {
+        synchronized (lock) {
+            if (closed) {
+                throw new SsdbClientException("BatchingSsdbClient is closed");
+            }
+
+            pending.add(operation);
+            if (pending.size() == maxBatchSize) {
+                // 发送线程繁忙时 pending 可能继续增长，只在刚达到数量时提交一次
+                flushScheduled = true;
+                flusher.execute(this::flushPending);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flushPending, maxDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        return (CompletableFuture<T>) operation.future;
+    }
+
+    // 在发送线程中执行
+    private void flushPending() {
+        List<Operation> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+
+        try {
+            send(batch);
+        } catch (Throwable e) {
+            // 正常情况下异常已经分发给了各个调用者，这里只是保证不会有调用者一直等待
+            LOG.error("Failed to send batch", e);
+            for (Operation operation : batch) {
+                operation.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void send(List<Operation> batch) {
+        batches.incrementAndGet();
+        operations.addAndGet(batch.size());
+
+        // 合并：set 按 Cluster 合并，其他按命令和 key 合并。LinkedHashMap 保证同一个 key 的写入保持原来的顺序
+        Map<Object, List<Operation>> groups = new LinkedHashMap<>();
+        for (Operation operation : batch) {
+            Object groupKey = operation.command.equals("set") ?
+                ssdbClient.getSharding().getClusterByKey(operation.key) :
+                operation.command + "\n" + operation.key;
+            groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(operation);
+        }
+
+        // {Cluster -> 发给这个 Cluster 的合并命令}
+        Map<Cluster, List<MergedRequest>> requestsByCluster = new LinkedHashMap<>();
+        for (List<Operation> group : groups.values()) {
+            MergedRequest merged = new MergedRequest(group);
+            Cluster cluster = ssdbClient.getSharding().getClusterByKey(merged.request.getKey());
+            requestsByCluster.computeIfAbsent(cluster, c -> new ArrayList<>()).add(merged);
+        }
+
+        // 各个 Cluster 同时发送，一个 Cluster 失败不影响其他 Cluster
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requestsByCluster.size());
+        for (List<MergedRequest> requests : requestsByCluster.values()) {
+            if (requestsByCluster.size() == 1) {
+                sendToCluster(requests);
+            } else {
+                futures.add(CompletableFuture.runAsync(() -> sendToCluster(requests), ssdbClient.getExecutor()));
+            }
+        }
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                // sendToCluster 已经处理了异常
+            }
+        }
+    }
+
+    private void sendToCluster(List<MergedRequest> mergedRequests) {
+        List<Request> requests = new ArrayList<>(mergedRequests.size());
+        for (MergedRequest merged : mergedRequests) {
+            requests.add(merged.request);
+        }
+
+        List<Response> responses;
+        try {
+            SsdbException.clearThreadLocal();
+            responses = ssdbClient.sendPipelineUnchecked(requests);
+        } catch (Exception e) {
+            for (MergedRequest merged : mergedRequests) {
+                merged.fail(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < mergedRequests.size(); i++) {
+            MergedRequest merged = mergedRequests.get(i);
+            try {
+                AbstractClient.checkResponse(merged.request, responses.get(i));
+                merged.complete(responses.get(i));
+            } catch (Exception e) {
+                merged.fail(e);
+            }
+        }
+    }
+
+    private void checkKey(String key) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+    }
+
+    private void checkValue(Object value) {
+        if (value == null) {
+            throw new SsdbException("Cannot save null to SSDB");
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    // 一个单独的写入
+    private static class Operation {
+
+        private final String command;
+
+        private final String key;
+
+        private final Object arg1;      // set/qpush_back 的值，hset 的字段名，zset 的 id
+
+        private final Object arg2;      // hset 的值，zset 的分数
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Operation(String command, String key, Object arg1, Object arg2) {
+            this.command = command;
+            this.key = key;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+    }
+
+    // 由多个写入合并成的命令
+    private static class MergedRequest {
+
+        private final List<Operation> operations;
+
+        private final Request request;
+
+        MergedRequest(List<Operation> operations) {
+            this.operations = operations;
+
+            String command = operations.get(0).command;
+            List<Object> tokens = new ArrayList<>(operations.size() * 2 + 2);
+            switch (command) {
+                case "set":
+                    tokens.add("multi_set");
+                    for (Operation operation : operations) {
+                        tokens.add(operation.key);
+                        tokens.add(operation.arg1);
+                    }
+                    break;
+                case "hset":
+                case "zset":
+                    tokens.add("multi_" + command);
+                    tokens.add(operations.get(0).key);
+                    for (Operation operation : operations) {
+                        tokens.add(operation.arg1);
+                        tokens.add(operation.arg2);
+                    }
+                    break;
+                default:
+                    tokens.add(command);
+                    tokens.add(operations.get(0).key);
+                    for (Operation operation : operations) {
+                        tokens.add(operation.arg1);
+                    }
+            }
+            this.request = new WriteRequest(tokens.toArray());
+        }
+
+        void complete(Response response) {
+            if (request.getHeader().toString().equals("qpush_back")) {
+                // 回应为全部推入之后的队列长度，据此算出每个值推入之后的长度
+                int size = response.getIntResult();
+                for (int i = 0; i < operations.size(); i++) {
+                    operations.get(i).future.complete(size - (operations.size() - 1 - i));
+                }
+            } else {
+                for (Operation operation : operations) {
+                    operation.future.complete(null);
+                }
+            }
+        }
+
+        void fail(Throwable e) {
+            for (Operation operation : operations) {
+                operation.future.completeExceptionally(e);
+            }
+        }
+    }
+}
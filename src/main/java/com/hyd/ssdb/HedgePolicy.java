@@ -0,0 +1,156 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.util.LatencyWindow;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲读取的配置和统计。设置到 {@link AbstractClient#setHedgePolicy(HedgePolicy)} 之后，
+ * 发送给有多台服务器的 Cluster 的读取命令，如果在一段延迟之后还没有回应，就把相同的命令再发送给另一台服务器，
+ * 采用先到的回应。这样可以避免个别服务器偶尔变慢（例如正在压缩数据）时拖慢请求。
+ * <p>
+ * 延迟取最近的读取响应时间的百分位数（缺省为 95%，即大约 5% 的请求会被再次发送），
+ * 并限制在 [minDelay, maxDelay] 之间；样本不足时使用 maxDelay。
+ * <p>
+ * 对冲读取需要在线程池中发送请求，而且会增加服务器的负载，所以缺省不开启。
+ * 发送请求的线程池独立于 {@link AbstractClient#getExecutor()}，这样在客户端线程池的任务中执行读取时，
+ * 不会因为等待同一个线程池中的任务而死锁。
+ */
+public class HedgePolicy {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 1;
+
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private static final int WINDOW_SIZE = 1024;
+
+    private static final int MIN_SAMPLES = 100;
+
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * 缺省的线程池，用于发送对冲读取的请求
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hydrogen-ssdb-hedge-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final LatencyWindow latencyWindow = new LatencyWindow(WINDOW_SIZE);
+
+    private final AtomicLong hedgedRequests = new AtomicLong();     // 再次发送的次数
+
+    private final AtomicLong hedgeWins = new AtomicLong();          // 再次发送的请求先回应的次数
+
+    private volatile long delayNanos;
+
+    private volatile long delayUpdatedAt;
+
+    private volatile Executor executor = DEFAULT_EXECUTOR;
+
+    public HedgePolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param percentile      用于计算延迟的百分位，取值范围为 (0, 100]
+     * @param minDelayMillis  最短延迟（毫秒）
+     * @param maxDelayMillis  最长延迟（毫秒），样本不足时也使用这个值
+     */
+    public HedgePolicy(double percentile, long minDelayMillis, long maxDelayMillis) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Argument percentile must be in (0, 100]");
+        }
+        if (minDelayMillis < 0 || maxDelayMillis < minDelayMillis) {
+            throw new IllegalArgumentException("Invalid delay range [" + minDelayMillis + ", " + maxDelayMillis + "]");
+        }
+
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.delayNanos = this.maxDelayNanos;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 设置发送对冲读取请求的线程池。调用者会阻塞等待线程池中的任务，所以不要使用会等待对冲读取结果的线程池，
+     * 例如客户端的 {@link AbstractClient#setExecutor(Executor)}；如果线程池有界，大小应当不小于并发读取数的两倍
+     *
+     * @param executor 线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 获取当前的延迟。每隔一段时间根据最近的响应时间重新计算一次
+     *
+     * @return 延迟（纳秒）
+     */
+    public long getDelayNanos() {
+        long now = System.nanoTime();
+        if (now - delayUpdatedAt > REFRESH_INTERVAL_NANOS) {
+            delayUpdatedAt = now;
+            if (latencyWindow.getCount() >= MIN_SAMPLES) {
+                long value = latencyWindow.percentile(percentile);
+                delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+            }
+        }
+        return delayNanos;
+    }
+
+    void recordLatency(long latencyNanos) {
+        latencyWindow.record(latencyNanos);
+    }
+
+    void hedgeSent() {
+        hedgedRequests.incrementAndGet();
+    }
+
+    void hedgeWon() {
+        hedgeWins.incrementAndGet();
+    }
+
+    public long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy{" +
+            "percentile=" + percentile +
+            ", delay=" + TimeUnit.NANOSECONDS.toMicros(delayNanos) + "us" +
+            ", hedgedRequests=" + hedgedRequests +
+            ", hedgeWins=" + hedgeWins +
+            '}';
+    }
+}
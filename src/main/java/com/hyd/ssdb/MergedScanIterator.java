@@ -0,0 +1,87 @@
+package com.hyd.ssdb;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 将多个有序的迭代器（通常每个对应一个 Cluster）合并为一个有序的迭代器。
+ * 每次取出所有迭代器当前元素中最小的一个，只有某个迭代器的元素被取出后才会读取它的下一个元素，
+ * 所以每个数据源只会被读取实际需要的部分（加上预读的一页）。
+ *
+ * @param <T> 元素类型
+ */
+class MergedScanIterator<T> extends ScanIterator<T> {
+
+    private final List<PagedScanIterator<T>> sources;
+
+    private final PriorityQueue<Head<T>> heads;
+
+    private boolean started;
+
+    private boolean closed;
+
+    MergedScanIterator(List<PagedScanIterator<T>> sources, Comparator<T> comparator) {
+        this.sources = sources;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.value, b.value));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+
+        if (!started) {
+            started = true;
+            for (PagedScanIterator<T> source : sources) {
+                source.prefetchFirstPage();     // 同时读取各个数据源的第一页
+            }
+            for (PagedScanIterator<T> source : sources) {
+                advance(source);
+            }
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Head<T> head = heads.poll();
+        advance(head.source);
+        return head.value;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        heads.clear();
+        for (PagedScanIterator<T> source : sources) {
+            source.close();
+        }
+    }
+
+    private void advance(PagedScanIterator<T> source) {
+        if (source.hasNext()) {
+            heads.add(new Head<>(source.next(), source));
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    private static class Head<T> {
+
+        private final T value;
+
+        private final PagedScanIterator<T> source;
+
+        Head(T value, PagedScanIterator<T> source) {
+            this.value = value;
+            this.source = source;
+        }
+    }
+}
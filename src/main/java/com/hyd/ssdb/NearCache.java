@@ -0,0 +1,390 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.util.KeyValueBatch;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 近端缓存。设置到 {@link SsdbClient#setNearCache(NearCache)} 之后，get()、getBytes()、hget() 和 hgetall()
+ * 的结果（包括 key 不存在的结果）会在客户端保存一段时间，热点 key 的重复读取不需要经过网络。
+ * <p>
+ * 缓存按条目数和估算的字节数限制大小，超出时淘汰最久未被访问的条目（LRU）。每个条目有过期时间，
+ * 缺省都使用构造方法中指定的 TTL，也可以通过 {@link #setTtlPolicy(ToLongFunction)} 按 key 指定。
+ * <p>
+ * 通过同一个 SsdbClient 执行的写入命令会使对应 key 的缓存失效；其他客户端的写入只能等缓存过期，
+ * 所以 TTL 应当是业务能够容忍的最长不一致时间。
+ */
+public class NearCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    public static final long DEFAULT_TTL_MILLIS = 10 * 1000;
+
+    static final int VALUE = 0;          // get 的结果
+
+    static final int HASH_FIELD = 1;     // hget 的结果
+
+    static final int HASH_ALL = 2;       // hgetall 的结果
+
+    private static final int SEGMENTS = 16;
+
+    private static final int ENTRY_OVERHEAD = 64;    // 每个条目除内容之外估算占用的字节数
+
+    private final Segment[] segments;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final long ttlMillis;
+
+    private volatile ToLongFunction<String> ttlPolicy;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();     // 因为超出大小限制而淘汰的条目数
+
+    private final AtomicLong expirations = new AtomicLong();   // 因为过期而去掉的条目数
+
+    public NearCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxEntries 最多缓存的条目数
+     * @param maxBytes   缓存内容最多占用的字节数（估算值）
+     * @param ttlMillis  缺省的过期时间（毫秒）
+     */
+    public NearCache(int maxEntries, long maxBytes, long ttlMillis) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxBytes must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+
+        // 容量较小时分段会让淘汰顺序偏离 LRU 太多，所以只用一个段
+        int segmentCount = maxEntries < SEGMENTS * 64 ? 1 : SEGMENTS;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(
+                (maxEntries + segmentCount - 1) / segmentCount, (maxBytes + segmentCount - 1) / segmentCount);
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public ToLongFunction<String> getTtlPolicy() {
+        return ttlPolicy;
+    }
+
+    /**
+     * 按 key 指定过期时间。函数返回 key 的过期时间（毫秒），返回值小于等于 0 表示不缓存这个 key。
+     *
+     * @param ttlPolicy 过期时间函数，为 null 时所有 key 都使用缺省的过期时间
+     */
+    public void setTtlPolicy(ToLongFunction<String> ttlPolicy) {
+        this.ttlPolicy = ttlPolicy;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    /**
+     * 当前缓存的条目数，包括已过期但还没有被清理的条目
+     *
+     * @return 条目数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 当前缓存内容占用的字节数（估算值）
+     *
+     * @return 字节数
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 使 key 的所有缓存失效，包括 hash 的各个字段
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        segmentFor(key).invalidate(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 查找缓存，如果没有则调用 loader 从服务器读取并放入缓存。
+     * 读取期间如果 key 所在的段有失效操作，读到的结果可能已经过时，这时不放入缓存。
+     *
+     * @param kind   缓存内容的种类
+     * @param key    键
+     * @param field  hash 字段名，没有时为 null
+     * @param loader 从服务器读取内容
+     *
+     * @return 缓存或读取到的内容
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getOrLoad(int kind, String key, String field, Supplier<T> loader) {
+        CacheKey cacheKey = new CacheKey(kind, key, field);
+        Segment segment = segmentFor(key);
+
+        long version;
+        synchronized (segment) {
+            Entry entry = segment.map.get(cacheKey);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return (T) entry.value;
+                }
+                segment.remove(cacheKey);
+                expirations.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            version = segment.version;
+        }
+
+        T value = loader.get();
+
+        long ttl = ttlFor(key);
+        if (ttl > 0) {
+            long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl);
+            segment.put(cacheKey, new Entry(value, weigh(cacheKey, value), expiresAt), version);
+        }
+        return value;
+    }
+
+    private long ttlFor(String key) {
+        ToLongFunction<String> ttlPolicy = this.ttlPolicy;
+        return ttlPolicy == null ? ttlMillis : ttlPolicy.applyAsLong(key);
+    }
+
+    private Segment segmentFor(String key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static int weigh(CacheKey cacheKey, Object value) {
+        long weight = ENTRY_OVERHEAD + cacheKey.key.length() * 2L;
+        if (cacheKey.field != null) {
+            weight += cacheKey.field.length() * 2L;
+        }
+
+        if (value instanceof byte[]) {
+            weight += ((byte[]) value).length;
+        } else if (value instanceof KeyValueBatch) {
+            KeyValueBatch batch = (KeyValueBatch) value;
+            weight += batch.getDataLength() + batch.size() * 8L;
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    private static class CacheKey {
+
+        private final int kind;
+
+        private final String key;
+
+        private final String field;
+
+        CacheKey(int kind, String key, String field) {
+            this.kind = kind;
+            this.key = key;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return kind == that.kind && key.equals(that.key) && Objects.equals(field, that.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return (kind * 31 + key.hashCode()) * 31 + Objects.hashCode(field);
+        }
+    }
+
+    private static class Entry {
+
+        private final Object value;
+
+        private final int weight;
+
+        private final long expiresAt;   // System.nanoTime()
+
+        Entry(Object value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 缓存的一个段，有自己的锁。同一个 key 的所有条目（包括 hash 的各个字段）都在同一个段中，
+     * 这样失效一个 key 只需要操作一个段。
+     */
+    private class Segment {
+
+        private final int maxEntries;
+
+        private final long maxBytes;
+
+        private final LinkedHashMap<CacheKey, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final Map<String, Set<CacheKey>> hashIndex = new HashMap<>();   // hash 的 key -> 缓存的条目
+
+        private long bytes;
+
+        private long version;    // 每次失效加 1，用于判断读取期间是否发生过失效
+
+        Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void put(CacheKey cacheKey, Entry entry, long expectedVersion) {
+            if (version != expectedVersion || entry.weight > maxBytes) {
+                return;
+            }
+
+            remove(cacheKey);
+            map.put(cacheKey, entry);
+            bytes += entry.weight;
+            if (cacheKey.kind != VALUE) {
+                hashIndex.computeIfAbsent(cacheKey.key, k -> new HashSet<>()).add(cacheKey);
+            }
+
+            Iterator<Map.Entry<CacheKey, Entry>> iterator = map.entrySet().iterator();
+            while (map.size() > maxEntries || bytes > maxBytes) {
+                Map.Entry<CacheKey, Entry> eldest = iterator.next();
+                iterator.remove();
+                removed(eldest.getKey(), eldest.getValue());
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void invalidate(String key) {
+            version++;
+            remove(new CacheKey(VALUE, key, null));
+
+            Set<CacheKey> hashKeys = hashIndex.remove(key);
+            if (hashKeys != null) {
+                for (CacheKey hashKey : hashKeys) {
+                    Entry entry = map.remove(hashKey);
+                    if (entry != null) {
+                        bytes -= entry.weight;
+                    }
+                }
+            }
+        }
+
+        synchronized void clear() {
+            version++;
+            map.clear();
+            hashIndex.clear();
+            bytes = 0;
+        }
+
+        // 调用者需持有锁
+        void remove(CacheKey cacheKey) {
+            Entry entry = map.remove(cacheKey);
+            if (entry != null) {
+                removed(cacheKey, entry);
+            }
+        }
+
+        private void removed(CacheKey cacheKey, Entry entry) {
+            bytes -= entry.weight;
+            if (cacheKey.kind != VALUE) {
+                Set<CacheKey> hashKeys = hashIndex.get(cacheKey.key);
+                if (hashKeys != null) {
+                    hashKeys.remove(cacheKey);
+                    if (hashKeys.isEmpty()) {
+                        hashIndex.remove(cacheKey.key);
+                    }
+                }
+            }
+        }
+    }
+}
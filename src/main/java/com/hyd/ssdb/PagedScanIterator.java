@@ -0,0 +1,130 @@
+package com.hyd.ssdb;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 从一个数据源分页读取的迭代器。当前页开始被遍历时，在后台读取下一页
+ *
+ * @param <T> 元素类型
+ */
+class PagedScanIterator<T> extends ScanIterator<T> {
+
+    /**
+     * 读取一页内容
+     *
+     * @param <T> 元素类型
+     */
+    @FunctionalInterface
+    interface PageLoader<T> {
+
+        /**
+         * 读取一页内容
+         *
+         * @param last     上一页的最后一个元素，读取第一页时为 null
+         * @param position 已经读取的元素个数
+         *
+         * @return 这一页的内容，最多 batchSize 个元素；少于 batchSize 个表示已经是最后一页
+         */
+        List<T> load(T last, long position);
+    }
+
+    private final PageLoader<T> pageLoader;
+
+    private final int batchSize;
+
+    private final Executor executor;
+
+    private List<T> page;                           // 当前页，为 null 表示还没有开始
+
+    private int index;                              // 当前页中下一个元素的位置
+
+    private long position;                          // 当前页之前的元素个数
+
+    private CompletableFuture<List<T>> nextPage;    // 正在读取的下一页（或第一页）
+
+    private boolean closed;
+
+    PagedScanIterator(PageLoader<T> pageLoader, int batchSize, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+
+        this.pageLoader = pageLoader;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * 在后台开始读取第一页。合并多个数据源时用于同时读取各个数据源的第一页
+     */
+    void prefetchFirstPage() {
+        if (page == null && nextPage == null && !closed) {
+            nextPage = loadAsync(null, 0);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!closed && (page == null || index >= page.size())) {
+            List<T> newPage;
+            if (nextPage != null) {
+                newPage = join(nextPage);
+                if (page != null) {
+                    position += page.size();
+                }
+            } else if (page == null) {
+                newPage = pageLoader.load(null, 0);
+            } else {
+                return false;
+            }
+
+            page = newPage;
+            index = 0;
+            nextPage = null;
+
+            // 当前页满了才可能有下一页，立即开始读取
+            if (newPage.size() >= batchSize) {
+                nextPage = loadAsync(newPage.get(newPage.size() - 1), position + newPage.size());
+            }
+        }
+        return !closed;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        page = null;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+    }
+
+    private CompletableFuture<List<T>> loadAsync(T last, long position) {
+        return CompletableFuture.supplyAsync(() -> {
+            SsdbException.clearThreadLocal();
+            return pageLoader.load(last, position);
+        }, executor);
+    }
+
+    private static <T> List<T> join(CompletableFuture<List<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof SsdbException ? (SsdbException) cause : new SsdbException(cause);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.WriteRequest;
+import com.hyd.ssdb.util.Str;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 管道。收集多个命令，然后在同一个连接上一次性发送，再按顺序读取所有的回应，
+ * 这样多个命令只需要一次网络往返。通过 {@link SsdbClient#pipelined(java.util.function.Consumer)} 使用：
+ * <pre>
+ * List&lt;Response&gt; responses = ssdbClient.pipelined(p -&gt; {
+ *     p.set("key1", "value1");
+ *     p.get("key1");
+ * });
+ * </pre>
+ * 返回的 Response 列表与命令的添加顺序一致。
+ * <p>
+ * 注意：管道中的命令在发送失败时不会自动重发，因为无法知道哪些写入已经生效。
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class Pipeline {
+
+    private final List<Request> requests = new ArrayList<>();
+
+    Pipeline() {
+    }
+
+    List<Request> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * 添加一个命令，每个参数为命令的一部分，例如 "get", "key1"
+     *
+     * @param tokens 命令中的各个部分
+     */
+    public void sendRequest(Object... tokens) {
+        requests.add(new Request(tokens));
+    }
+
+    /**
+     * 添加一个包含写入操作的命令，每个参数为命令的一部分，例如 "set", "key1", "value1"
+     *
+     * @param tokens 命令中的各个部分
+     */
+    public void sendWriteRequest(Object... tokens) {
+        requests.add(new WriteRequest(tokens));
+    }
+
+    //////////////////////////////////////////////////////////////// key value commands
+
+    public void get(String key) {
+        checkKey(key);
+        sendRequest("get", key);
+    }
+
+    public void set(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        sendWriteRequest("set", key, value);
+    }
+
+    public void setx(String key, Object value, int ttlSeconds) {
+        checkKey(key);
+        checkValue(value);
+        sendWriteRequest("setx", key, value, ttlSeconds);
+    }
+
+    public void del(String key) {
+        checkKey(key);
+        sendWriteRequest("del", key);
+    }
+
+    public void incr(String key, long incr) {
+        checkKey(key);
+        sendWriteRequest("incr", key, incr);
+    }
+
+    public void exists(String key) {
+        checkKey(key);
+        sendRequest("exists", key);
+    }
+
+    public void expire(String key, int ttlSeconds) {
+        checkKey(key);
+        sendWriteRequest("expire", key, ttlSeconds);
+    }
+
+    //////////////////////////////////////////////////////////////// hashmap commands
+
+    public void hget(String key, String propName) {
+        checkKey(key);
+        sendRequest("hget", key, propName);
+    }
+
+    public void hset(String key, String propName, Object propValue) {
+        checkKey(key);
+        checkValue(propValue);
+        sendWriteRequest("hset", key, propName, propValue);
+    }
+
+    public void hdel(String key, String propName) {
+        checkKey(key);
+        sendWriteRequest("hdel", key, propName);
+    }
+
+    public void hincr(String key, String propName, long incr) {
+        checkKey(key);
+        sendWriteRequest("hincr", key, propName, incr);
+    }
+
+    //////////////////////////////////////////////////////////////// sorted set
+
+    public void zget(String key, String id) {
+        checkKey(key);
+        sendRequest("zget", key, id);
+    }
+
+    public void zset(String key, String id, long score) {
+        checkKey(key);
+        sendWriteRequest("zset", key, id, score);
+    }
+
+    public void zdel(String key, String id) {
+        checkKey(key);
+        sendWriteRequest("zdel", key, id);
+    }
+
+    public void zincr(String key, String id, long incr) {
+        checkKey(key);
+        sendWriteRequest("zincr", key, id, incr);
+    }
+
+    //////////////////////////////////////////////////////////////// queue
+
+    public void qpushFront(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        sendWriteRequest("qpush_front", key, value);
+    }
+
+    public void qpushBack(String key, Object value) {
+        checkKey(key);
+        checkValue(value);
+        sendWriteRequest("qpush_back", key, value);
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    private void checkKey(String key) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+    }
+
+    private void checkValue(Object value) {
+        if (value == null) {
+            throw new SsdbException("Cannot save null to SSDB");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.WriteRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 合并并发的相同读取请求。设置到 {@link AbstractClient#setRequestCoalescer(RequestCoalescer)} 之后，
+ * 多个线程同时发送内容完全相同（编码后的字节相同）的读取命令时，只有第一个线程真正发送请求，
+ * 其他线程等待并共享它的回应（或异常）。这样当一个热点 key 过期、大量线程同时读取它时，
+ * 只会占用一个连接、产生一次网络往返。
+ * <p>
+ * 只有 {@link #READ_ONLY_COMMANDS} 中的命令会被合并，写入命令和指定了服务器的命令总是单独发送。
+ * 通过同一个客户端完成一次写入之后，之前已经发出的读取请求不再被合并，以免读到写入之前的内容。
+ * 等待的线程得到的是回应的副本（{@link Response#copy()}），各个调用者拿到的字节数组互不影响。
+ */
+public class RequestCoalescer {
+
+    /**
+     * 可以合并的只读命令
+     */
+    public static final Set<String> READ_ONLY_COMMANDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "get", "exists", "ttl", "getbit", "bitcount", "countbit", "substr", "strlen",
+        "keys", "rkeys", "scan", "rscan", "multi_get",
+        "hget", "hexists", "hsize", "hlist", "hrlist", "hkeys", "hgetall", "hscan", "hrscan", "multi_hget",
+        "zget", "zexists", "zsize", "zlist", "zrlist", "zkeys", "zscan", "zrscan", "zrank", "zrrank",
+        "zrange", "zrrange", "zcount", "zsum", "zavg", "multi_zget",
+        "qfront", "qback", "qsize", "qget", "qrange", "qslice", "qlist", "qrlist"
+    )));
+
+    private final ConcurrentHashMap<RequestKey, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong writeGeneration = new AtomicLong();    // 每完成一次写入加 1
+
+    private final AtomicLong coalescedRequests = new AtomicLong();   // 共享了其他请求的回应的次数
+
+    /**
+     * 已合并的请求数，即没有自己发送、而是共享了其他请求的回应的次数
+     *
+     * @return 合并的请求数
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * 当前正在发送、可被合并的请求数
+     *
+     * @return 请求数
+     */
+    public int getInFlightRequests() {
+        return inFlight.size();
+    }
+
+    boolean isCoalescable(Request request) {
+        return !(request instanceof WriteRequest) && request.getForceServer() == null
+            && READ_ONLY_COMMANDS.contains(request.getHeader().toString());
+    }
+
+    /**
+     * 发送请求。如果有相同的请求正在发送，则等待它的结果
+     *
+     * @param request 请求
+     * @param sender  实际发送请求的方法
+     *
+     * @return 回应
+     */
+    Response send(Request request, Function<Request, Response> sender) {
+        RequestKey key = new RequestKey(request.toBytes());
+        InFlight current = new InFlight(writeGeneration.get());
+        InFlight existing = inFlight.putIfAbsent(key, current);
+
+        if (existing != null) {
+            if (existing.generation != current.generation) {
+                return sender.apply(request);   // 请求发出之后有过写入，它的结果可能已经过时
+            }
+
+            coalescedRequests.incrementAndGet();
+            try {
+                return existing.future.join().copy();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SsdbException) {
+                    throw (SsdbException) cause;
+                }
+                throw new SsdbException(cause);
+            }
+        }
+
+        // 先从表中去掉再通知等待的线程，收到回应之后才开始的请求不会再共享这个回应
+        Response response;
+        try {
+            response = sender.apply(request);
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, current);
+            current.future.completeExceptionally(e);
+            throw e;
+        }
+
+        inFlight.remove(key, current);
+        current.future.complete(response);
+        return response;
+    }
+
+    /**
+     * 通知一次写入已经完成（无论成功与否）
+     */
+    void writeCompleted() {
+        writeGeneration.incrementAndGet();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    private static class InFlight {
+
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+
+        private final long generation;
+
+        InFlight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    // 以编码后的请求内容作为 key
+    private static class RequestKey {
+
+        private final byte[] bytes;
+
+        private final int hash;
+
+        RequestKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof RequestKey && Arrays.equals(bytes, ((RequestKey) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
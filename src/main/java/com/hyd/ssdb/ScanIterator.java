@@ -0,0 +1,41 @@
+package com.hyd.ssdb;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 分页遍历的迭代器，用于 scan、hscan、zscan 和 qrange 等命令。开始遍历一页内容时，
+ * 下一页就已经在后台读取了，所以处理当前页和读取下一页可以同时进行，而且只占用固定的内存。
+ * 有多个 Cluster 时，每个 Cluster 各自分页读取，按顺序合并，只有某个 Cluster 的内容被取完时才继续读取这个 Cluster。
+ * <p>
+ * 遍历过程中数据的修改可能会被看到，也可能不会。提前结束遍历时请调用 {@link #close()}，
+ * 以免后台继续读取不再需要的下一页。本类不是线程安全的。
+ *
+ * @param <T> 元素类型
+ */
+public abstract class ScanIterator<T> implements Iterator<T>, Closeable {
+
+    ScanIterator() {
+    }
+
+    /**
+     * 结束遍历。正在读取的下一页不会被中断，但结果会被丢弃
+     */
+    @Override
+    public abstract void close();
+
+    /**
+     * 以 Stream 的方式遍历。Stream 关闭时会调用 {@link #close()}
+     *
+     * @return 包含剩余元素的 Stream
+     */
+    public Stream<T> stream() {
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(this::close);
+    }
+}
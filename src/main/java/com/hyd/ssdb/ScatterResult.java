@@ -0,0 +1,64 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.protocol.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同时发送请求到所有 Cluster 的结果。部分 Cluster 失败或超时的时候，
+ * 其他 Cluster 的回应仍然可用，失败的 Cluster 及其原因记录在 {@link #getFailures()} 中。
+ */
+public class ScatterResult {
+
+    private final List<Response> responses = new ArrayList<>();
+
+    private final Map<Cluster, Throwable> failures = new LinkedHashMap<>();
+
+    void addResponse(Response response) {
+        this.responses.add(response);
+    }
+
+    void addFailure(Cluster cluster, Throwable cause) {
+        this.failures.put(cluster, cause);
+    }
+
+    /**
+     * 获取成功返回的回应，按照 Cluster 的顺序排列
+     *
+     * @return 成功返回的回应
+     */
+    public List<Response> getResponses() {
+        return Collections.unmodifiableList(responses);
+    }
+
+    /**
+     * 获取失败的 Cluster 及其原因
+     *
+     * @return 失败的 Cluster 及其原因
+     */
+    public Map<Cluster, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * 是否所有的 Cluster 都成功返回
+     *
+     * @return 如果所有的 Cluster 都成功返回则为 true
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ScatterResult{" +
+            "responses=" + responses.size() +
+            ", failures=" + failures.keySet() +
+            '}';
+    }
+}
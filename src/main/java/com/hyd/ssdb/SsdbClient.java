@@ -4,12 +4,17 @@ import com.hyd.ssdb.conf.Cluster;
 import com.hyd.ssdb.conf.Server;
 import com.hyd.ssdb.conf.Sharding;
 import com.hyd.ssdb.conf.SocketConfig;
+import com.hyd.ssdb.protocol.Block;
+import com.hyd.ssdb.protocol.Request;
 import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.WriteRequest;
 import com.hyd.ssdb.sharding.ConsistentHashSharding;
 import com.hyd.ssdb.util.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 包含连接池的客户端类，对于一个 SSDB 服务器只需要创建一个 SsdbClient 客户端。
@@ -23,6 +28,8 @@ public class SsdbClient extends AbstractClient {
 
     private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
 
+    private volatile NearCache nearCache;   // 近端缓存，缺省不开启
+
     /**
      * 构造方法
      *
@@ -101,9 +108,85 @@ public class SsdbClient extends AbstractClient {
 
     //////////////////////////////////////////////////////////////
 
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * 开启或关闭近端缓存。开启后 get()、getBytes()、hget() 和 hgetall() 会优先读取缓存，
+     * 通过本客户端执行的写入命令（包括 pipelined() 中的写入命令）会使对应 key 的缓存失效。
+     *
+     * @param nearCache 近端缓存，为 null 表示关闭
+     */
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * 发送一个命令。如果是写入命令且开启了近端缓存，则无论执行成功与否，都会使命令中涉及的 key 的缓存失效
+     *
+     * @param request 命令对象
+     *
+     * @return 执行结果
+     */
+    @Override
+    public Response sendRequest(Request request) {
+        NearCache nearCache = this.nearCache;
+        if (nearCache == null || !(request instanceof WriteRequest)) {
+            return super.sendRequest(request);
+        }
+
+        try {
+            return super.sendRequest(request);
+        } finally {
+            invalidateNearCache(nearCache, request);
+        }
+    }
+
+    @Override
+    protected List<Response> sendPipelineUnchecked(List<Request> requests) {
+        NearCache nearCache = this.nearCache;
+        if (nearCache == null) {
+            return super.sendPipelineUnchecked(requests);
+        }
+
+        try {
+            return super.sendPipelineUnchecked(requests);
+        } finally {
+            for (Request request : requests) {
+                if (request instanceof WriteRequest) {
+                    invalidateNearCache(nearCache, request);
+                }
+            }
+        }
+    }
+
+    // 使写入命令涉及的 key 的缓存失效。multi_set 的参数是键值对，multi_del 的参数都是 key，其他命令的第一个参数是 key
+    private void invalidateNearCache(NearCache nearCache, Request request) {
+        List<Block> blocks = request.getBlocks();
+        if (blocks.isEmpty()) {
+            return;
+        }
+
+        String command = request.getHeader().toString();
+        if (command.equals("multi_set")) {
+            for (int i = 0; i < blocks.size(); i += 2) {
+                nearCache.invalidate(blocks.get(i).toString());
+            }
+        } else if (command.equals("multi_del")) {
+            for (Block block : blocks) {
+                nearCache.invalidate(block.toString());
+            }
+        } else {
+            nearCache.invalidate(blocks.get(0).toString());
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
     public long dbsize(Server server) {
         Response response = sendRequest(server, "dbsize");
-        return Long.parseLong(response.firstBlock());
+        return response.getBody().get(0).toLong();
     }
 
     public String info(Server server) {
@@ -111,9 +194,34 @@ public class SsdbClient extends AbstractClient {
         return response.joinBlocks('\n');
     }
 
+    /**
+     * 以管道方式执行多个命令，这些命令只需要一次网络往返（多个 Cluster 时每个 Cluster 一次）。例如：
+     * <pre>
+     * List&lt;Response&gt; responses = ssdbClient.pipelined(p -&gt; {
+     *     p.set("key1", "value1");
+     *     p.get("key1");
+     * });
+     * </pre>
+     *
+     * @param pipelineConsumer 添加命令的回调
+     *
+     * @return 执行结果，与命令的添加顺序一致
+     */
+    public List<Response> pipelined(Consumer<Pipeline> pipelineConsumer) {
+        Pipeline pipeline = new Pipeline();
+        pipelineConsumer.accept(pipeline);
+        return sendPipeline(pipeline.getRequests());
+    }
+
     //////////////////////////////////////////////////////////////// key value commands
 
     public String get(String key) {
+        NearCache nearCache = this.nearCache;
+        if (nearCache != null && key != null) {
+            byte[] value = nearCache.getOrLoad(NearCache.VALUE, key, null,
+                () -> sendRequest("get", key).firstBlockBytes());
+            return value == null ? null : new String(value, StandardCharsets.UTF_8);
+        }
         return sendRequest("get", key).firstBlock();
     }
 
@@ -128,6 +236,13 @@ public class SsdbClient extends AbstractClient {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
         }
+
+        NearCache nearCache = this.nearCache;
+        if (nearCache != null) {
+            byte[] value = nearCache.getOrLoad(NearCache.VALUE, key, null,
+                () -> sendRequest("get", key).firstBlockBytes());
+            return value == null ? new byte[0] : value.clone();
+        }
         return sendRequest("get", key).getBytes();
     }
 
@@ -304,34 +419,76 @@ public class SsdbClient extends AbstractClient {
     }
 
     public List<String> keys(String startExclude, String endInclude, int limit) {
-        return combineBlocks(sendRequestToAll("keys", startExclude, endInclude, limit));
+        return mergeSortedBlocks(sendRequestToAll("keys", startExclude, endInclude, limit), false, limit);
     }
 
     public List<String> rkeys(String startExclude, String endInclude, int limit) {
-        return sendRequest("rkeys", startExclude, endInclude, limit).getBlocks();
+        return mergeSortedBlocks(sendRequestToAll("rkeys", startExclude, endInclude, limit), true, limit);
     }
 
     public List<KeyValue> scan(String startExclude, String endInclude, int limit) {
-        return combineKeyValues(sendRequestToAll("scan", startExclude, endInclude, limit));
+        return mergeSortedKeyValues(sendRequestToAll("scan", startExclude, endInclude, limit), false, limit);
     }
 
-    public void scan(String prefix, int batchSize, Processor<KeyValue> keyConsumer) {
-        String start = prefix;
-        String end = prefix + (char) 255;
+    /**
+     * 同 {@link #scan(String, String, int)}，以紧凑的 KeyValueBatch 返回
+     *
+     * @param startExclude 起始 key（不包含）
+     * @param endInclude   结束 key（包含）
+     * @param limit        最多返回的数量
+     *
+     * @return 键值对列表
+     */
+    public KeyValueBatch scanBatch(String startExclude, String endInclude, int limit) {
+        if (getSharding().getClusters().size() == 1) {
+            return sendRequest("scan", startExclude, endInclude, limit).getKeyValueBatch();
+        }
 
-        List<KeyValue> result = scan(start, end, batchSize);
+        List<KeyValue> merged = mergeSortedKeyValues(sendRequestToAll("scan", startExclude, endInclude, limit), false, limit);
+        KeyValueBatch.Builder builder = new KeyValueBatch.Builder(merged.size(), 0, getCharset());
+        for (KeyValue keyValue : merged) {
+            builder.add(keyValue);
+        }
+        return builder.build();
+    }
 
-        while (!result.isEmpty() && start.startsWith(prefix)) {
-            for (KeyValue keyValue : result) {
-                keyConsumer.process(keyValue);
+    public void scan(String prefix, int batchSize, Processor<KeyValue> keyConsumer) {
+        try (ScanIterator<KeyValue> iterator = scanIterator(prefix, prefix + (char) 255, batchSize)) {
+            while (iterator.hasNext()) {
+                keyConsumer.process(iterator.next());
             }
-            start = new String(result.get(result.size() - 1).getKey(), getCharset());
-            result = scan(start, end, batchSize);
         }
     }
 
+    /**
+     * 分批遍历 (startExclude, endInclude] 范围内的键值对，遍历一批时会在后台读取下一批。
+     * 多个 Cluster 时每个 Cluster 各自分批读取，按 key 的顺序合并
+     *
+     * @param startExclude 起始 key（不包含）
+     * @param endInclude   结束 key（包含），为空表示不限
+     * @param batchSize    每批读取的数量
+     *
+     * @return 迭代器，提前结束遍历时需要关闭
+     */
+    public ScanIterator<KeyValue> scanIterator(String startExclude, String endInclude, int batchSize) {
+        List<Cluster> clusters = getSharding().getClusters();
+        if (clusters.size() == 1) {
+            return new PagedScanIterator<>((last, position) -> sendRequest("scan",
+                last == null ? startExclude : last.getKey(), endInclude, batchSize
+            ).getKeyValues(), batchSize, getExecutor());
+        }
+
+        List<PagedScanIterator<KeyValue>> sources = new ArrayList<>(clusters.size());
+        for (Cluster cluster : clusters) {
+            sources.add(new PagedScanIterator<>((last, position) -> sendRequestToCluster(new Request("scan",
+                last == null ? startExclude : last.getKey(), endInclude, batchSize), cluster
+            ).getKeyValues(), batchSize, getExecutor()));
+        }
+        return new MergedScanIterator<>(sources, (a, b) -> Bytes.compare(a.getKey(), b.getKey()));
+    }
+
     public List<KeyValue> rscan(String startExclude, String endInclude, int limit) {
-        return sendRequest("rscan", startExclude, endInclude, limit).getKeyValues();
+        return mergeSortedKeyValues(sendRequestToAll("rscan", startExclude, endInclude, limit), true, limit);
     }
 
     public List<String> multiGet(String... keys) {
@@ -353,11 +510,12 @@ public class SsdbClient extends AbstractClient {
     }
 
     /**
-     * 一次取多个 key。注意如果 Sharding 中包含一个以上的 Cluster，那么实际上是对每个 key 执行 get 查询。
+     * 一次取多个 key。如果 Sharding 中包含多个 Cluster，则 key 按照 Cluster 分组，
+     * 同时向每个 Cluster 发送一个 multi_get 命令。
      *
      * @param keys key 列表
      *
-     * @return value 列表
+     * @return value 列表，与 keys 的顺序一致，不存在的 key 对应的值为 null
      */
     public List<String> multiGet(List<String> keys) {
 
@@ -365,32 +523,23 @@ public class SsdbClient extends AbstractClient {
             return Collections.emptyList();
         }
 
-        List<String> result;
-
-        if (getSharding().getClusters().size() == 1) {
-            result = new ArrayList<>();
-            String[] command = prependCommand("multi_get", keys);
-            List<KeyValue> keyValues = sendRequest((Object[]) command).getKeyValues();
-            for (KeyValue keyValue : keyValues) {
-                result.add(keyValue.getValueString());
-            }
-
-        } else {
-            result = new ArrayList<>();
-            for (String key : keys) {
-                result.add(get(key));
-            }
+        Map<String, byte[]> values = multiGetValues(keys);
+        List<String> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            byte[] value = values.get(key);
+            result.add(value == null ? null : new String(value, getCharset()));
         }
 
         return result;
     }
 
     /**
-     * 一次取多个 key。注意如果 Sharding 中包含一个以上的 Cluster，那么实际上是对每个 key 执行 get 查询。
+     * 一次取多个 key。如果 Sharding 中包含多个 Cluster，则 key 按照 Cluster 分组，
+     * 同时向每个 Cluster 发送一个 multi_get 命令。
      *
      * @param keys key 列表
      *
-     * @return value 列表
+     * @return value 列表，与 keys 的顺序一致，不存在的 key 对应的值为 null
      */
     public List<byte[]> multiGetBytes(List<String> keys) {
 
@@ -398,24 +547,61 @@ public class SsdbClient extends AbstractClient {
             return Collections.emptyList();
         }
 
-        List<byte[]> result;
+        Map<String, byte[]> values = multiGetValues(keys);
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(values.get(key));
+        }
 
-        if (getSharding().getClusters().size() == 1) {
-            result = new ArrayList<>();
-            String[] command = prependCommand("multi_get", keys);
-            List<KeyValue> keyValues = sendRequest((Object[]) command).getKeyValues();
-            for (KeyValue keyValue : keyValues) {
-                result.add(keyValue.getValue());
-            }
+        return result;
+    }
 
-        } else {
-            result = new ArrayList<>();
-            for (String key : keys) {
-                result.add(getBytes(key));
-            }
+    /**
+     * 一次取多个 key，以紧凑的 KeyValueBatch 返回。如果 Sharding 中包含多个 Cluster，则 key 按照 Cluster 分组，
+     * 同时向每个 Cluster 发送一个 multi_get 命令。
+     *
+     * @param keys key 列表
+     *
+     * @return 存在的 key 及其值，不存在的 key 不包含在内。同一个 Cluster 中的 key 按 keys 中的顺序排列
+     */
+    public KeyValueBatch multiGetBatch(List<String> keys) {
+
+        if (keys == null || keys.isEmpty()) {
+            return KeyValueBatch.empty();
         }
 
-        return result;
+        List<Request> requests = new ArrayList<>();
+        for (String[] keyArr : splitKeys(keys)) {
+            requests.add(new Request((Object[]) prependCommand("multi_get", keyArr)));
+        }
+
+        List<Response> responses = sendRequestsInParallel(requests);
+        if (responses.size() == 1) {
+            return responses.get(0).getKeyValueBatch();
+        }
+
+        KeyValueBatch.Builder builder = new KeyValueBatch.Builder(keys.size(), 0, getCharset());
+        for (Response response : responses) {
+            builder.addAll(response.getKeyValueBatch());
+        }
+        return builder.build();
+    }
+
+    // 按照 Cluster 分组执行 multi_get 命令，返回 {key -> value}，其中不包含不存在的 key
+    private Map<String, byte[]> multiGetValues(List<String> keys) {
+        List<Request> requests = new ArrayList<>();
+        for (String[] keyArr : splitKeys(keys)) {
+            requests.add(new Request((Object[]) prependCommand("multi_get", keyArr)));
+        }
+
+        Map<String, byte[]> values = new HashMap<>();
+        for (Response response : sendRequestsInParallel(requests)) {
+            List<Block> body = response.getBody();
+            for (int i = 0; i + 1 < body.size(); i += 2) {
+                values.put(body.get(i).toString(getCharset()), body.get(i + 1).getData());
+            }
+        }
+        return values;
     }
 
     public void multiSet(String... keyValues) {
@@ -471,6 +657,13 @@ public class SsdbClient extends AbstractClient {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
         }
+
+        NearCache nearCache = this.nearCache;
+        if (nearCache != null && propName != null) {
+            byte[] value = nearCache.getOrLoad(NearCache.HASH_FIELD, key, propName,
+                () -> sendRequest("hget", key, propName).firstBlockBytes());
+            return value == null ? null : new String(value, StandardCharsets.UTF_8);
+        }
         return sendRequest("hget", key, propName).firstBlock();
     }
 
@@ -504,11 +697,11 @@ public class SsdbClient extends AbstractClient {
     }
 
     public List<String> hlist(String startExclude, String endInclude, int limit) {
-        return combineBlocks(sendRequestToAll("hlist", startExclude, endInclude, limit));
+        return mergeSortedBlocks(sendRequestToAll("hlist", startExclude, endInclude, limit), false, limit);
     }
 
     public List<String> hrlist(String startExclude, String endInclude, int limit) {
-        return combineBlocks(sendRequestToAll("hrlist", startExclude, endInclude, limit));
+        return mergeSortedBlocks(sendRequestToAll("hrlist", startExclude, endInclude, limit), true, limit);
     }
 
     public List<String> hkeys(String key, String startExclude, String endInclude, int limit) {
@@ -522,6 +715,14 @@ public class SsdbClient extends AbstractClient {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
         }
+
+        NearCache nearCache = this.nearCache;
+        if (nearCache != null) {
+            // 缓存中保存不可变的 KeyValueBatch，每次返回新的 KeyValue，调用者修改它们不会影响缓存
+            KeyValueBatch keyValues = nearCache.getOrLoad(NearCache.HASH_ALL, key, null,
+                () -> sendRequest("hgetall", key).getKeyValueBatch());
+            return keyValues.toList();
+        }
         return sendRequest("hgetall", key).getKeyValues();
     }
 
@@ -532,6 +733,26 @@ public class SsdbClient extends AbstractClient {
         return sendRequest("hgetall", key).getBlocksAsStringMap(getCharset());
     }
 
+    /**
+     * 同 {@link #hgetall(String)}，以紧凑的 KeyValueBatch 返回，适合字段很多的 hash
+     *
+     * @param key hash 的 key
+     *
+     * @return 所有字段及其值
+     */
+    public KeyValueBatch hgetallBatch(String key) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+
+        NearCache nearCache = this.nearCache;
+        if (nearCache != null) {
+            return nearCache.getOrLoad(NearCache.HASH_ALL, key, null,
+                () -> sendRequest("hgetall", key).getKeyValueBatch());
+        }
+        return sendRequest("hgetall", key).getKeyValueBatch();
+    }
+
     public List<KeyValue> hscan(String key, String startExclude, String endInclude, int limit) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -539,10 +760,45 @@ public class SsdbClient extends AbstractClient {
         return sendRequest("hscan", key, startExclude, endInclude, limit).getKeyValues();
     }
 
+    // 同上，以紧凑的 KeyValueBatch 返回
+    public KeyValueBatch hscanBatch(String key, String startExclude, String endInclude, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("hscan", key, startExclude, endInclude, limit).getKeyValueBatch();
+    }
+
     public List<KeyValue> hrscan(String key, String startExclude, String endInclude, int limit) {
         return sendRequest("hrscan", key, startExclude, endInclude, limit).getKeyValues();
     }
 
+    // 同上，以紧凑的 KeyValueBatch 返回
+    public KeyValueBatch hrscanBatch(String key, String startExclude, String endInclude, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("hrscan", key, startExclude, endInclude, limit).getKeyValueBatch();
+    }
+
+    /**
+     * 分批遍历 hash 中 (startExclude, endInclude] 范围内的字段，遍历一批时会在后台读取下一批
+     *
+     * @param key          hash 的 key
+     * @param startExclude 起始字段名（不包含）
+     * @param endInclude   结束字段名（包含），为空表示不限
+     * @param batchSize    每批读取的数量
+     *
+     * @return 迭代器，提前结束遍历时需要关闭
+     */
+    public ScanIterator<KeyValue> hscanIterator(String key, String startExclude, String endInclude, int batchSize) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return new PagedScanIterator<>((last, position) -> sendRequest("hscan", key,
+            last == null ? startExclude : last.getKey(), endInclude, batchSize
+        ).getKeyValues(), batchSize, getExecutor());
+    }
+
     public int hclear(String key) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -583,6 +839,14 @@ public class SsdbClient extends AbstractClient {
         return sendRequest((Object[]) prependCommand("multi_hget", key, propNames)).getKeyValues();
     }
 
+    // 同上，以紧凑的 KeyValueBatch 返回
+    public KeyValueBatch multiHgetBatch(String key, List<String> propNames) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest((Object[]) prependCommand("multi_hget", key, propNames)).getKeyValueBatch();
+    }
+
     public void multiHdel(String key, String... propNames) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -681,6 +945,31 @@ public class SsdbClient extends AbstractClient {
         ).getIdScores();
     }
 
+    /**
+     * 与 {@link #zscan(String, String, Long, Long, int)} 相同，但以紧凑的 {@link IdScoreList} 返回
+     *
+     * @param key               zset 的 key
+     * @param keyStartExclude   （可选）起始 id（不包含）
+     * @param scoreStartInclude （可选）score 的最小值
+     * @param scoreEndInclude   （可选）score 的最大值
+     * @param limit             最多返回记录数
+     *
+     * @return 查询结果
+     */
+    public IdScoreList zscanList(
+        String key, String keyStartExclude, Long scoreStartInclude, Long scoreEndInclude, int limit
+    ) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("zscan", key,
+            Str.ifBlank(keyStartExclude, ""),
+            Num.ifNull(scoreStartInclude, ""),
+            Num.ifNull(scoreEndInclude, ""),
+            limit
+        ).getIdScoreList();
+    }
+
     public List<IdScore> zrscan(
         String key, String keyStartExclude, Long scoreStartInclude, Long scoreEndInclude, int limit
     ) {
@@ -695,6 +984,44 @@ public class SsdbClient extends AbstractClient {
         ).getIdScores();
     }
 
+    // 同上，以紧凑的 IdScoreList 返回
+    public IdScoreList zrscanList(
+        String key, String keyStartExclude, Long scoreStartInclude, Long scoreEndInclude, int limit
+    ) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("zrscan", key,
+            Str.ifBlank(keyStartExclude, ""),
+            Num.ifNull(scoreStartInclude, ""),
+            Num.ifNull(scoreEndInclude, ""),
+            limit
+        ).getIdScoreList();
+    }
+
+    /**
+     * 按分数从小到大分批遍历 zset 中分数在 [scoreStartInclude, scoreEndInclude] 范围内的成员，
+     * 遍历一批时会在后台读取下一批
+     *
+     * @param key               zset 的 key
+     * @param scoreStartInclude 最小分数，为 null 表示不限
+     * @param scoreEndInclude   最大分数，为 null 表示不限
+     * @param batchSize         每批读取的数量
+     *
+     * @return 迭代器，提前结束遍历时需要关闭
+     */
+    public ScanIterator<IdScore> zscanIterator(String key, Long scoreStartInclude, Long scoreEndInclude, int batchSize) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return new PagedScanIterator<>((last, position) -> sendRequest("zscan", key,
+            last == null ? "" : last.getId(),
+            last == null ? Num.ifNull(scoreStartInclude, "") : last.getScore(),
+            Num.ifNull(scoreEndInclude, ""),
+            batchSize
+        ).getIdScores(), batchSize, getExecutor());
+    }
+
     /**
      * 获取 id 的排名，从小到大，0 表示第一位
      * <p>
@@ -727,6 +1054,22 @@ public class SsdbClient extends AbstractClient {
         return sendRequest("zrange", key, offset, limit).getIdScores();
     }
 
+    /**
+     * 与 {@link #zrange(String, int, int)} 相同，但以紧凑的 {@link IdScoreList} 返回，适合一次读取大量成员
+     *
+     * @param key    zset 的 key
+     * @param offset 起始位置
+     * @param limit  最多返回的成员数
+     *
+     * @return 查询结果
+     */
+    public IdScoreList zrangeList(String key, int offset, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("zrange", key, offset, limit).getIdScoreList();
+    }
+
     public List<IdScore> zrrange(String key, int offset, int limit) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -734,6 +1077,14 @@ public class SsdbClient extends AbstractClient {
         return sendRequest("zrrange", key, offset, limit).getIdScores();
     }
 
+    // 同上，以紧凑的 IdScoreList 返回
+    public IdScoreList zrrangeList(String key, int offset, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendRequest("zrrange", key, offset, limit).getIdScoreList();
+    }
+
     /**
      * 查询 score 在 minScoreInclude 与 maxScoreInclude 之间的 id 数量
      *
@@ -802,6 +1153,14 @@ public class SsdbClient extends AbstractClient {
         return sendWriteRequest("zpop_front", key, limit).getIdScores();
     }
 
+    // 同上，以紧凑的 IdScoreList 返回
+    public IdScoreList zpopFrontList(String key, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendWriteRequest("zpop_front", key, limit).getIdScoreList();
+    }
+
     public List<IdScore> zpopBack(String key, int limit) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -809,6 +1168,14 @@ public class SsdbClient extends AbstractClient {
         return sendWriteRequest("zpop_back", key, limit).getIdScores();
     }
 
+    // 同上，以紧凑的 IdScoreList 返回
+    public IdScoreList zpopBackList(String key, int limit) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return sendWriteRequest("zpop_back", key, limit).getIdScoreList();
+    }
+
     public long multiZset(String key, IdScore... idScores) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
@@ -1045,6 +1412,23 @@ public class SsdbClient extends AbstractClient {
         return sendRequest("qrange", key, offset, limit).getByteBlocks();
     }
 
+    /**
+     * 从头到尾分批遍历队列，遍历一批时会在后台读取下一批。
+     * 遍历按位置进行，如果遍历过程中队列头部有元素被取出或加入，可能会跳过或重复一些元素
+     *
+     * @param key       队列名
+     * @param batchSize 每批读取的数量
+     *
+     * @return 迭代器，提前结束遍历时需要关闭
+     */
+    public ScanIterator<String> qrangeIterator(String key, int batchSize) {
+        if (Str.isBlank(key)) {
+            throw new SsdbException("parameter key is null or blank");
+        }
+        return new PagedScanIterator<>((last, position) ->
+            sendRequest("qrange", key, position, batchSize).getBlocks(), batchSize, getExecutor());
+    }
+
     public List<String> qslice(String key, int startInclude, int endInclude) {
         if (Str.isBlank(key)) {
             throw new SsdbException("parameter key is null or blank");
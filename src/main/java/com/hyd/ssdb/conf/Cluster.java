@@ -8,17 +8,20 @@ import com.hyd.ssdb.util.Range;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
 
 /**
  * 表示一个集群。集群是负载均衡的基本单位，一个集群里面可以配置一台或多台服务器（{@link Server}）。
- * 这个类里面几个方法标上了 synchronized，考虑到：一个 Cluster 最多只会包含几台十几台服务器，
- * synchronized 方法执行速度会很快，而且服务器的变更不会很频繁，所以没有使用复杂的同步方式。
- * fillMasters() 方法没有加上 synchronized 是因为它在构造方法中执行，构造方法不会被多线程访问。
+ * 修改服务器列表的几个方法标上了 synchronized，考虑到服务器的变更不会很频繁，所以没有使用复杂的同步方式。
+ * 每次修改都会生成新的服务器列表快照（{@link ServerList}），选择服务器时只读取快照，不需要加锁，
+ * 也不会因为读取过程中列表被修改而出错。选择的方式由 {@link ServerSelector} 决定。
  * <p>
  * created at 15-12-3
  *
@@ -30,17 +33,15 @@ public class Cluster {
 
     private static final Logger LOG = LoggerFactory.getLogger(Cluster.class);
 
-    private static final SecureRandom RANDOM = new SecureRandom();
-
     private String id = String.valueOf(hashCode());
 
     private boolean invalid = false;
 
-    private List<Server> servers;
+    private volatile ServerList serverList;     // 当前可用的服务器，修改时整体替换
 
-    private List<Server> masters = new ArrayList<Server>();
+    private final List<Server> invalidServers = new CopyOnWriteArrayList<>();
 
-    private List<Server> invalidServers = new ArrayList<Server>();
+    private volatile ServerSelector serverSelector = new RandomServerSelector();
 
     private int weight = DEFAULT_WEIGHT;
 
@@ -48,6 +49,8 @@ public class Cluster {
 
     private Cluster takenOverBy;        // 当 Cluster 不可用时，其哈希段会被另一个 Cluster 接管
 
+    private final Set<Consumer<Cluster>> stateListeners = new CopyOnWriteArraySet<>();  // 可用状态变化时通知
+
     public Cluster(List<Server> servers, int weight) {
 
         servers.removeAll(Collections.singleton((Server) null));
@@ -55,11 +58,9 @@ public class Cluster {
             throw new SsdbClientException("servers is empty");
         }
 
-        this.servers = new ArrayList<Server>(servers);
+        this.serverList = new ServerList(servers);
         this.weight = weight;
         this.id = servers.get(0).getHost() + ":" + servers.get(0).getPort();
-
-        fillMasters();
     }
 
     public Cluster(Server server, int weight) {
@@ -119,21 +120,35 @@ public class Cluster {
 
     //////////////////////////////////////////////////////////////
 
-    // 将主服务器加入到 masters 列表
-    private void fillMasters() {
-        for (Server server : servers) {
-            if (server.isMaster()) {
-                this.masters.add(server);
-            }
-        }
-    }
-
     public boolean isInvalid() {
         return invalid;
     }
 
     public void setInvalid(boolean invalid) {
+        boolean changed = this.invalid != invalid;
         this.invalid = invalid;
+        if (changed) {
+            fireStateChanged();
+        }
+    }
+
+    /**
+     * 添加一个监听器，当 Cluster 的可用状态发生变化时被调用。重复添加同一个监听器没有效果
+     *
+     * @param listener 监听器
+     */
+    public void addStateListener(Consumer<Cluster> listener) {
+        this.stateListeners.add(listener);
+    }
+
+    public void removeStateListener(Consumer<Cluster> listener) {
+        this.stateListeners.remove(listener);
+    }
+
+    private void fireStateChanged() {
+        for (Consumer<Cluster> listener : stateListeners) {
+            listener.accept(this);
+        }
     }
 
     public Range<Integer> getHashRange() {
@@ -169,7 +184,11 @@ public class Cluster {
     }
 
     public List<Server> getServers() {
-        return Collections.unmodifiableList(servers);
+        return serverList.servers;
+    }
+
+    public List<Server> getMasters() {
+        return serverList.masters;
     }
 
     public List<Server> getInvalidServers() {
@@ -182,15 +201,11 @@ public class Cluster {
      * @param server 要添加的服务器
      */
     public synchronized void addServer(Server server) {
-        if (!servers.contains(server)) {
-            servers.add(server);
-
-            if (server.isMaster() && !masters.contains(server)) {
-                masters.add(server);
-            }
+        if (!serverList.servers.contains(server)) {
+            serverList = serverList.add(server);
 
             DebugLogger.trace("Server {} added to cluster {}, current servers: {}, current masters: {}",
-                server, id, servers, masters);
+                server, id, serverList.servers, serverList.masters);
         }
     }
 
@@ -200,11 +215,26 @@ public class Cluster {
      * @param server 要删除的服务器
      */
     public synchronized void removeServer(Server server) {
-        masters.remove(server);
-        servers.remove(server);
+        serverList = serverList.remove(server);
 
         DebugLogger.trace("Server {} removed from cluster {}, current servers: {}, current masters: {}",
-            server, id, servers, masters);
+            server, id, serverList.servers, serverList.masters);
+    }
+
+    public ServerSelector getServerSelector() {
+        return serverSelector;
+    }
+
+    /**
+     * 设置选择服务器的方式，缺省为 {@link RandomServerSelector}
+     *
+     * @param serverSelector 选择服务器的方式
+     */
+    public void setServerSelector(ServerSelector serverSelector) {
+        if (serverSelector == null) {
+            throw new IllegalArgumentException("Argument serverSelector cannot be null");
+        }
+        this.serverSelector = serverSelector;
     }
 
     /**
@@ -213,6 +243,7 @@ public class Cluster {
      * @return 获取到的主服务器，如果找不到则抛出异常
      */
     public Server getMaster() {
+        List<Server> masters = serverList.masters;
         if (masters.isEmpty()) {
             throw new SsdbNoServerAvailableException(
                     "No available master in cluster '" + id + "'");
@@ -222,15 +253,16 @@ public class Cluster {
             return masters.get(0);
         }
 
-        return masters.get(RANDOM.nextInt(masters.size()));
+        return serverSelector.select(masters);
     }
 
     /**
-     * 获取一个随机的服务器（用于读取）
+     * 获取一个服务器（用于读取），具体选择哪一个由 {@link #serverSelector} 决定，缺省为随机选择
      *
-     * @return 一个随机的服务器
+     * @return 选中的服务器
      */
     public Server getRandomServer() {
+        List<Server> servers = serverList.servers;
         if (servers.isEmpty()) {
             throw new SsdbNoServerAvailableException(
                     "Unable to find server in cluster '" + id + "'");
@@ -240,7 +272,7 @@ public class Cluster {
             return servers.get(0);
         }
 
-        return servers.get(RANDOM.nextInt(servers.size()));
+        return serverSelector.select(servers);
     }
 
     /**
@@ -251,10 +283,7 @@ public class Cluster {
     public synchronized void markInvalid(Server invalid) {
         LOG.error("Server unavailable: " + invalid);
 
-        this.servers.remove(invalid);
-        if (invalid.isMaster()) {
-            this.masters.remove(invalid);
-        }
+        this.serverList = this.serverList.remove(invalid);
 
         if (!this.invalidServers.contains(invalid)) {
             this.invalidServers.add(invalid);
@@ -262,7 +291,7 @@ public class Cluster {
 
         DebugLogger.trace("Server {} marked invalid and removed from cluster {}, " +
                 "current servers: {}, current masters: {}",
-            invalid, id, servers, masters);
+            invalid, id, serverList.servers, serverList.masters);
 
         ServerMonitorDaemon.addInvalidServer(invalid, this);
     }
@@ -275,17 +304,17 @@ public class Cluster {
     public synchronized void markValid(Server server) {
         LOG.info("Server restored: " + server);
 
-        this.servers.add(server);
-        if (server.isMaster()) {
-            this.masters.add(server);
+        if (!this.serverList.servers.contains(server)) {
+            this.serverList = this.serverList.add(server);
         }
 
         this.invalidServers.remove(server);
-        this.invalid = false;
 
         DebugLogger.trace("Server {} marked valid and restored from cluster {}, " +
                 "current servers: {}, current masters: {}",
-            server, id, servers, masters);
+            server, id, serverList.servers, serverList.masters);
+
+        setInvalid(false);
     }
 
     /**
@@ -312,8 +341,8 @@ public class Cluster {
         return "Cluster{" +
             "id='" + id + '\'' +
             ", invalid=" + invalid +
-            ", servers=" + servers +
-            ", masters=" + masters +
+            ", servers=" + serverList.servers +
+            ", masters=" + serverList.masters +
             ", invalidServers=" + invalidServers +
             ", weight=" + weight +
             ", hashRange=" + hashRange +
@@ -328,12 +357,12 @@ public class Cluster {
      *
      * @return 如果属于当前 cluster 则返回 true
      */
-    public synchronized boolean containsServer(Server server) {
-        return this.servers.contains(server) || this.invalidServers.contains(server);
+    public boolean containsServer(Server server) {
+        return this.serverList.servers.contains(server) || this.invalidServers.contains(server);
     }
 
     public Server findServer(String host, int port) {
-        for (Server server : servers) {
+        for (Server server : serverList.servers) {
             if (server.getHost().equals(host) && server.getPort() == port) {
                 return server;
             }
@@ -341,4 +370,39 @@ public class Cluster {
 
         return null;
     }
+
+    //////////////////////////////////////////////////////////////
+
+    /**
+     * 服务器列表的快照，创建之后不再修改
+     */
+    private static class ServerList {
+
+        private final List<Server> servers;
+
+        private final List<Server> masters;
+
+        ServerList(List<Server> servers) {
+            List<Server> masters = new ArrayList<>();
+            for (Server server : servers) {
+                if (server.isMaster()) {
+                    masters.add(server);
+                }
+            }
+            this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+            this.masters = Collections.unmodifiableList(masters);
+        }
+
+        ServerList add(Server server) {
+            List<Server> list = new ArrayList<>(servers);
+            list.add(server);
+            return new ServerList(list);
+        }
+
+        ServerList remove(Server server) {
+            List<Server> list = new ArrayList<>(servers);
+            list.remove(server);
+            return new ServerList(list);
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 优先选择响应最快的服务器，适合各台服务器性能不同（或者网络距离不同）的集群。
+ * <p>
+ * 每次随机取两台服务器，比较 “响应时间 EWMA × (正在执行的请求数 + 1)”，选择较小的一台
+ * （power of two choices）。这样大部分请求会发送到较快的服务器，又不会在瞬间把所有请求都集中到同一台上。
+ * 还没有响应时间数据的服务器会被优先选中，以便尽快获得数据。
+ */
+public class LeastLatencyServerSelector implements ServerSelector {
+
+    @Override
+    public Server select(List<Server> servers) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = servers.size();
+
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;       // 保证两台服务器不同
+        }
+
+        Server server1 = servers.get(first);
+        Server server2 = servers.get(second);
+        long now = System.nanoTime();
+        return cost(server1, now) <= cost(server2, now) ? server1 : server2;
+    }
+
+    private static double cost(Server server, long now) {
+        ServerStats stats = server.getStats();
+        return stats.getLatencyScore(now) * (stats.getOutstandingRequests() + 1);
+    }
+}
@@ -0,0 +1,29 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 选择正在执行的请求数（{@link ServerStats#getOutstandingRequests()}）最少的服务器。
+ * 请求数相同时从随机位置开始比较，避免总是选中排在前面的服务器。
+ */
+public class LeastOutstandingServerSelector implements ServerSelector {
+
+    @Override
+    public Server select(List<Server> servers) {
+        int size = servers.size();
+        int start = ThreadLocalRandom.current().nextInt(size);
+
+        Server result = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Server server = servers.get((start + i) % size);
+            int outstanding = server.getStats().getOutstandingRequests();
+            if (outstanding < least) {
+                least = outstanding;
+                result = server;
+            }
+        }
+        return result;
+    }
+}
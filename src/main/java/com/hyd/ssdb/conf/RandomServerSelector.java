@@ -0,0 +1,15 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机选择服务器。这是缺省的实现
+ */
+public class RandomServerSelector implements ServerSelector {
+
+    @Override
+    public Server select(List<Server> servers) {
+        return servers.get(ThreadLocalRandom.current().nextInt(servers.size()));
+    }
+}
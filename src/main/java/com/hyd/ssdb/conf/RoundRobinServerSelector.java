@@ -0,0 +1,18 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮流选择服务器。服务器列表发生变化时，顺序会从新列表的某个位置继续
+ */
+public class RoundRobinServerSelector implements ServerSelector {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Server select(List<Server> servers) {
+        int index = counter.getAndIncrement() & Integer.MAX_VALUE;   // 溢出之后仍然为非负数
+        return servers.get(index % servers.size());
+    }
+}
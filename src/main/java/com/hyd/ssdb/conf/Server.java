@@ -13,6 +13,8 @@ import java.time.Duration;
  */
 public class Server {
 
+    public static final int DEFAULT_WEIGHT = 100;
+
     private String host;            // 服务器地址
 
     private int port;               // 服务器端口
@@ -25,6 +27,12 @@ public class Server {
 
     private SocketConfig socketConfig = new SocketConfig();     // 网络配置参数
 
+    private ValidationConfig validationConfig = new ValidationConfig();     // 连接检查配置
+
+    private int weight = DEFAULT_WEIGHT;    // 权重，用于 WeightedRandomServerSelector
+
+    private final ServerStats stats = new ServerStats();    // 运行时统计数据
+
     public Server() {
     }
 
@@ -140,6 +148,26 @@ public class Server {
         this.socketConfig = socketConfig;
     }
 
+    public ValidationConfig getValidationConfig() {
+        return validationConfig;
+    }
+
+    public void setValidationConfig(ValidationConfig validationConfig) {
+        this.validationConfig = validationConfig;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
     public boolean isMaster() {
         return master;
     }
@@ -199,8 +227,10 @@ public class Server {
             ", port=" + port +
             ", pass=" + (pass == null ? "(null)" : "(non-null)") +
             ", master=" + master +
+            ", weight=" + weight +
             ", poolConfig=" + poolConfig +
             ", socketConfig=" + socketConfig +
+            ", validationConfig=" + validationConfig +
             '}';
     }
 }
@@ -0,0 +1,21 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+
+/**
+ * 从 Cluster 的多台服务器中选择一台，用于 {@link Cluster#getMaster()} 和 {@link Cluster#getRandomServer()}。
+ * 缺省实现为 {@link RandomServerSelector}，可以通过 {@link Cluster#setServerSelector(ServerSelector)} 更换。
+ * <p>
+ * 实现类必须是线程安全的，而且不应该加锁，因为每个请求都会调用。
+ */
+public interface ServerSelector {
+
+    /**
+     * 选择一台服务器
+     *
+     * @param servers 候选服务器，至少有两台。这是一个不可修改的快照，在调用过程中不会改变
+     *
+     * @return 选中的服务器
+     */
+    Server select(List<Server> servers);
+}
@@ -0,0 +1,84 @@
+package com.hyd.ssdb.conf;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务器的运行时统计数据，供 {@link ServerSelector} 选择服务器时参考。
+ * 每个 {@link Server} 对象有一个 ServerStats，由连接池和异步连接在发送请求前后更新。
+ * <p>
+ * 响应时间使用指数加权移动平均（EWMA）计算，越新的样本权重越大。
+ * 一段时间没有新样本时，{@link #getLatencyScore(long)} 会逐渐衰减，
+ * 这样曾经变慢的服务器之后还有机会被选中，从而更新它的响应时间。
+ */
+public class ServerStats {
+
+    private static final double ALPHA = 0.2;     // 新样本的权重
+
+    private static final double DECAY_NANOS = 10_000_000_000.0;   // 没有新样本时的衰减时间常数（10 秒）
+
+    private final AtomicInteger outstandingRequests = new AtomicInteger();     // 正在执行的请求数
+
+    private final AtomicLong latencyEwmaBits = new AtomicLong(Double.doubleToRawLongBits(0));   // 响应时间 EWMA（纳秒）
+
+    private volatile long lastSampleNanos;      // 最后一个样本的时间
+
+    public void requestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        outstandingRequests.decrementAndGet();
+    }
+
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * 记录一次请求的响应时间
+     *
+     * @param latencyNanos 响应时间（纳秒）
+     */
+    public void recordLatency(long latencyNanos) {
+        long prevBits, nextBits;
+        do {
+            prevBits = latencyEwmaBits.get();
+            double prev = Double.longBitsToDouble(prevBits);
+            double next = prev == 0 ? latencyNanos : prev + ALPHA * (latencyNanos - prev);
+            nextBits = Double.doubleToRawLongBits(next);
+        } while (!latencyEwmaBits.compareAndSet(prevBits, nextBits));
+
+        lastSampleNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取响应时间的 EWMA，还没有样本时返回 0
+     *
+     * @return 响应时间（纳秒）
+     */
+    public double getLatencyEwma() {
+        return Double.longBitsToDouble(latencyEwmaBits.get());
+    }
+
+    /**
+     * 获取用于比较的响应时间：距离最后一个样本越久，数值越小
+     *
+     * @param nowNanos 当前时间，即 System.nanoTime()
+     *
+     * @return 响应时间（纳秒），还没有样本时返回 0
+     */
+    public double getLatencyScore(long nowNanos) {
+        double ewma = getLatencyEwma();
+        long elapsed = nowNanos - lastSampleNanos;
+        return elapsed <= 0 ? ewma : ewma * Math.exp(-elapsed / DECAY_NANOS);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerStats{" +
+            "outstandingRequests=" + outstandingRequests +
+            ", latencyEwma=" + getLatencyEwma() +
+            '}';
+    }
+}
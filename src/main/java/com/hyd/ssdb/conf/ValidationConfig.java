@@ -0,0 +1,67 @@
+package com.hyd.ssdb.conf;
+
+/**
+ * 连接有效性检查配置
+ *
+ * @see ValidationPolicy
+ */
+public class ValidationConfig {
+
+    /**
+     * 缺省闲置时间阈值 (ms)
+     */
+    public static final long DEFAULT_IDLE_THRESHOLD = 30 * 1000;
+
+    /**
+     * 缺省后台检查间隔 (ms)
+     */
+    public static final long DEFAULT_EVICTION_INTERVAL = 30 * 1000;
+
+    //////////////////////////////////////////////////////////////
+
+    private ValidationPolicy policy = ValidationPolicy.IdleTime;    // 检查策略
+
+    private long idleThreshold = DEFAULT_IDLE_THRESHOLD;            // 闲置超过该时间则检查 (ms)，用于 IdleTime 策略
+
+    private long evictionInterval = DEFAULT_EVICTION_INTERVAL;      // 后台检查间隔 (ms)，用于 Eviction 策略
+
+    public ValidationConfig() {
+    }
+
+    public ValidationConfig(ValidationPolicy policy) {
+        this.policy = policy;
+    }
+
+    public ValidationPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(ValidationPolicy policy) {
+        this.policy = policy;
+    }
+
+    public long getIdleThreshold() {
+        return idleThreshold;
+    }
+
+    public void setIdleThreshold(long idleThreshold) {
+        this.idleThreshold = idleThreshold;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationConfig{" +
+            "policy=" + policy +
+            ", idleThreshold=" + idleThreshold +
+            ", evictionInterval=" + evictionInterval +
+            '}';
+    }
+}
@@ -0,0 +1,27 @@
+package com.hyd.ssdb.conf;
+
+/**
+ * 连接有效性检查策略，决定从连接池取出的连接什么时候需要发送命令检查服务器是否可用
+ */
+public enum ValidationPolicy {
+
+    /**
+     * 每次从连接池取出连接时都检查。每个命令都会多一次网络往返，只在网络很不稳定时考虑使用
+     */
+    Always,
+
+    /**
+     * 连接在连接池中闲置超过一定时间后，取出时才检查。缺省使用本策略
+     */
+    IdleTime,
+
+    /**
+     * 取出时不检查，由连接池的后台线程定时检查闲置的连接
+     */
+    Eviction,
+
+    /**
+     * 从不主动检查，只有当收发失败时才丢弃连接
+     */
+    FailureOnly
+}
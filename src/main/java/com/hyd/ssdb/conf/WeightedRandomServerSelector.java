@@ -0,0 +1,33 @@
+package com.hyd.ssdb.conf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按照服务器的权重（{@link Server#getWeight()}）随机选择，权重越大被选中的机会越多。
+ * 权重不大于 0 的服务器不会被选中，除非所有服务器的权重都不大于 0，此时随机选择。
+ */
+public class WeightedRandomServerSelector implements ServerSelector {
+
+    @Override
+    public Server select(List<Server> servers) {
+        long totalWeight = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            totalWeight += Math.max(0, servers.get(i).getWeight());
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight == 0) {
+            return servers.get(random.nextInt(servers.size()));
+        }
+
+        long value = random.nextLong(totalWeight);
+        for (int i = 0; i < servers.size(); i++) {
+            value -= Math.max(0, servers.get(i).getWeight());
+            if (value < 0) {
+                return servers.get(i);
+            }
+        }
+        return servers.get(servers.size() - 1);
+    }
+}
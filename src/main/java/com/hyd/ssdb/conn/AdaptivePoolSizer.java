@@ -0,0 +1,219 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 根据实际的并发量自动调整连接池的 minIdle 和 maxIdle。
+ * 设置到 {@link ConnectionPoolManager#setAdaptivePoolSizer(AdaptivePoolSizer)} 之后，后台线程每隔一段时间
+ * 读取每个连接池在这段时间内同时使用的连接数峰值，保留最近 window 个峰值：
+ * <ul>
+ * <li>maxIdle 取这些峰值中的最大值再加上 headroom，这样最近出现过的突发并发量归还连接时不会被销毁；</li>
+ * <li>minIdle 取这些峰值的平均值（向上取整），并且由后台线程预先创建连接，这样平稳的请求不需要等待建立连接。</li>
+ * </ul>
+ * 两者都不小于 minIdleFloor，也不超过连接池的 maxTotal。并发量下降后，maxIdle 随着窗口移动而减小，多余的闲置连接在归还时被销毁。
+ * <p>
+ * 开启后会覆盖连接池配置中的 minIdle 和 maxIdle（{@link com.hyd.ssdb.conf.Server#createDefaultPoolConfig()} 中 maxIdle 为 1），
+ * maxTotal 不变。不可用的服务器会被跳过，由 {@link ServerMonitorDaemon} 负责检查。
+ */
+public class AdaptivePoolSizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    public static final int DEFAULT_WINDOW = 60;
+
+    public static final int DEFAULT_HEADROOM = 1;
+
+    public static final int DEFAULT_MIN_IDLE_FLOOR = 1;
+
+    private final long intervalMillis;
+
+    private final int window;
+
+    private final int headroom;
+
+    private final int minIdleFloor;
+
+    private final Map<ConnectionPool, PeakWindow> peakWindows = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public AdaptivePoolSizer() {
+        this(DEFAULT_INTERVAL_MILLIS, DEFAULT_WINDOW, DEFAULT_HEADROOM, DEFAULT_MIN_IDLE_FLOOR);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param intervalMillis 调整的间隔（毫秒）
+     * @param window         保留最近多少个间隔的峰值，window * intervalMillis 就是突发并发量被记住的时间
+     * @param headroom       maxIdle 在峰值之外额外保留的连接数
+     * @param minIdleFloor   minIdle 和 maxIdle 的下限
+     */
+    public AdaptivePoolSizer(long intervalMillis, int window, int headroom, int minIdleFloor) {
+        if (intervalMillis <= 0 || window <= 0) {
+            throw new IllegalArgumentException("intervalMillis and window must be positive");
+        }
+        if (headroom < 0 || minIdleFloor < 0) {
+            throw new IllegalArgumentException("headroom and minIdleFloor cannot be negative");
+        }
+        this.intervalMillis = intervalMillis;
+        this.window = window;
+        this.headroom = headroom;
+        this.minIdleFloor = minIdleFloor;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getHeadroom() {
+        return headroom;
+    }
+
+    public int getMinIdleFloor() {
+        return minIdleFloor;
+    }
+
+    // 开始定时调整指定的 ConnectionPoolManager 中的连接池，由 ConnectionPoolManager 调用
+    synchronized void start(ConnectionPoolManager connectionPoolManager) {
+        if (scheduler != null) {
+            throw new IllegalStateException("AdaptivePoolSizer is already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hydrogen-ssdb-pool-sizer-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                adjustAll(connectionPoolManager);
+            } catch (Exception e) {
+                LOG.error("Error adjusting connection pools", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 停止调整，连接池保持最后一次调整的结果
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        peakWindows.clear();
+    }
+
+    void adjustAll(ConnectionPoolManager connectionPoolManager) {
+        for (ConnectionPool connectionPool : connectionPoolManager.getConnectionPools().values()) {
+            if (connectionPool.isClosed()) {
+                peakWindows.remove(connectionPool);
+            } else if (!isInvalid(connectionPoolManager, connectionPool.getServer())) {
+                adjust(connectionPool);
+            }
+        }
+    }
+
+    /**
+     * 根据最近的峰值调整一个连接池
+     *
+     * @param connectionPool 连接池
+     */
+    void adjust(ConnectionPool connectionPool) {
+        PeakWindow peaks = peakWindows.computeIfAbsent(connectionPool, p -> new PeakWindow(window));
+        peaks.add(connectionPool.getStats().resetPeakActiveCount());
+
+        int maxTotal = connectionPool.getMaxTotal() < 0 ? Integer.MAX_VALUE : connectionPool.getMaxTotal();
+        int maxIdle = Math.min(maxTotal, Math.max(minIdleFloor, peaks.max() + headroom));
+        int minIdle = Math.min(maxIdle, Math.max(minIdleFloor, peaks.averageCeil()));
+
+        if (maxIdle != connectionPool.getMaxIdle() || minIdle != connectionPool.getMinIdle()) {
+            // 先调大 maxIdle 再调 minIdle，保证任何时候 minIdle 都不大于 maxIdle
+            if (maxIdle > connectionPool.getMaxIdle()) {
+                connectionPool.setMaxIdle(maxIdle);
+                connectionPool.setMinIdle(minIdle);
+            } else {
+                connectionPool.setMinIdle(minIdle);
+                connectionPool.setMaxIdle(maxIdle);
+            }
+
+            if (LOG.isDebugEnabled()) {
+                Server server = connectionPool.getServer();
+                LOG.debug("Pool of " + server.getHost() + ":" + server.getPort() +
+                    " resized to minIdle=" + minIdle + ", maxIdle=" + maxIdle + ", " + connectionPool.getStats());
+            }
+        }
+
+        try {
+            connectionPool.preparePool();     // 在后台线程中补足 minIdle 个闲置连接
+        } catch (Exception e) {
+            LOG.debug("Failed to create idle connections for " + connectionPool.getServer(), e);
+        }
+    }
+
+    private static boolean isInvalid(ConnectionPoolManager connectionPoolManager, Server server) {
+        for (Cluster cluster : connectionPoolManager.getSharding().getClusters()) {
+            if (cluster.getInvalidServers().contains(server)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    // 最近若干个间隔的峰值，只在调整线程中访问
+    private static class PeakWindow {
+
+        private final int[] peaks;
+
+        private int count;
+
+        PeakWindow(int size) {
+            this.peaks = new int[size];
+        }
+
+        void add(int peak) {
+            peaks[count % peaks.length] = peak;
+            count++;
+        }
+
+        int max() {
+            int max = 0;
+            for (int i = 0; i < Math.min(count, peaks.length); i++) {
+                max = Math.max(max, peaks[i]);
+            }
+            return max;
+        }
+
+        int averageCeil() {
+            int size = Math.min(count, peaks.length);
+            if (size == 0) {
+                return 0;
+            }
+
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += peaks[i];
+            }
+            return (int) ((sum + size - 1) / size);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbAuthFailedException;
+import com.hyd.ssdb.SsdbClientException;
+import com.hyd.ssdb.SsdbSocketFailedException;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.ServerStats;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.RequestEncoder;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.ResponseDecoder;
+import com.hyd.ssdb.util.BufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 非阻塞的连接。一个 AsyncConnection 上可以同时有多个未完成的请求，SSDB 服务器按照
+ * 收到请求的顺序返回回应，所以回应与请求按先进先出的顺序对应。
+ * <p>
+ * 读写操作都在 {@link NioEventLoop} 线程中执行，其他线程只负责把请求放入队列。
+ * 一旦读写失败或者请求超时，连接会被关闭，所有未完成的请求都以异常结束。
+ * <p>
+ * 请求编码到从堆外 {@link BufferPool} 申请的缓存区中，写出后归还，不需要为每个请求分配新的数组。
+ */
+public class AsyncConnection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncConnection.class);
+
+    private final Server server;
+
+    private final SocketChannel channel;
+
+    private final NioEventLoop eventLoop;
+
+    private final ResponseDecoder decoder;
+
+    private final long timeoutNanos;       // 0 表示不限制，与 Socket 的 soTimeout 相同
+
+    private final Object lock = new Object();
+
+    // 等待回应的请求，按照发送顺序排列（由 lock 保护）
+    private final Queue<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+    // 等待写入的内容（只在 lock 中添加，只在 I/O 线程中取出）
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    private SelectionKey selectionKey;
+
+    private volatile boolean closed;
+
+    AsyncConnection(Server server, NioEventLoop eventLoop, Charset charset) {
+        this.server = server;
+        this.eventLoop = eventLoop;
+        this.decoder = new ResponseDecoder(charset);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, server.getSocketConfig().getSoTimeout()));
+
+        try {
+            this.channel = SocketChannel.open();
+            this.channel.socket().connect(
+                new InetSocketAddress(server.getHost(), server.getPort()),
+                server.getSocketConfig().getSoTimeout());
+            this.channel.configureBlocking(false);
+            this.channel.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            throw new SsdbSocketFailedException(e);
+        }
+
+        // 认证请求排在所有请求的最前面，认证失败则关闭连接
+        if (server.getPass() != null) {
+            send(new Request("auth", server.getPass())).thenAccept(response -> {
+                if (!response.isOk()) {
+                    close(new SsdbAuthFailedException());
+                }
+            });
+        }
+
+        eventLoop.register(this);
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 发送请求
+     *
+     * @param request 请求
+     *
+     * @return 回应。回调方法会在 I/O 线程中执行，不应该在回调中执行耗时操作
+     */
+    public CompletableFuture<Response> send(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        ByteBuffer buffer = RequestEncoder.encode(request, BufferPool.getDirectPool());
+
+        // 请求进入等待队列和写入队列的顺序必须一致
+        synchronized (lock) {
+            if (closed) {
+                BufferPool.getDirectPool().release(buffer);
+                future.completeExceptionally(new SsdbSocketFailedException("Connection closed: " + this));
+                return future;
+            }
+            pendingRequests.add(new PendingRequest(future, System.nanoTime() + timeoutNanos));
+            writeQueue.add(buffer);
+        }
+
+        ServerStats stats = server.getStats();
+        long start = System.nanoTime();
+        stats.requestStarted();
+        future.whenComplete((response, e) -> {
+            stats.requestFinished();
+            if (e == null) {
+                stats.recordLatency(System.nanoTime() - start);
+            }
+        });
+
+        if (writeScheduled.compareAndSet(false, true)) {
+            eventLoop.scheduleWrite(this);
+        }
+        return future;
+    }
+
+    //////////////////////////////////////////////////////////////// 以下方法只在 I/O 线程中执行
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void handleWrite() {
+        try {
+            while (true) {
+                ByteBuffer buffer = writeQueue.peek();
+                if (buffer == null) {
+                    writeScheduled.set(false);
+
+                    // 其他线程可能在 writeScheduled 被重置之前放入了新的内容
+                    if (writeQueue.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                        selectionKey.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    continue;
+                }
+
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    // socket 缓冲区已满，等待可写时再继续
+                    selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+                BufferPool.getDirectPool().release(buffer);
+            }
+        } catch (IOException e) {
+            close(new SsdbSocketFailedException(e));
+        }
+    }
+
+    void handleRead(ByteBuffer readBuffer) {
+        try {
+            int length;
+            while ((length = channel.read(readBuffer)) > 0) {
+                readBuffer.flip();
+                Response response;
+                while ((response = decoder.decode(readBuffer)) != null) {
+                    PendingRequest pendingRequest;
+                    synchronized (lock) {
+                        pendingRequest = pendingRequests.poll();
+                    }
+                    if (pendingRequest == null) {
+                        throw new SsdbClientException("Received response without request: " + this);
+                    }
+                    pendingRequest.future.complete(response);
+                }
+                readBuffer.clear();
+            }
+
+            if (length == -1) {
+                close(new SsdbSocketFailedException("Connection closed by server: " + this));
+            }
+        } catch (IOException e) {
+            close(new SsdbSocketFailedException(e));
+        } catch (RuntimeException e) {
+            close(e);
+        } finally {
+            readBuffer.clear();
+        }
+    }
+
+    // 连接关闭后归还未写出的缓存区
+    void releaseWriteBuffers() {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.poll()) != null) {
+            BufferPool.getDirectPool().release(buffer);
+        }
+    }
+
+    // 检查最早发出的请求是否已经超时
+    void checkTimeout(long now) {
+        if (timeoutNanos == 0) {
+            return;
+        }
+
+        PendingRequest head;
+        synchronized (lock) {
+            head = pendingRequests.peek();
+        }
+        if (head != null && now - head.deadline > 0) {
+            close(new SsdbSocketFailedException("Socket timed out: " + this));
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////
+
+    /**
+     * 关闭连接，所有未完成的请求都会以 cause 异常结束
+     *
+     * @param cause 关闭的原因
+     */
+    public void close(Throwable cause) {
+        Queue<PendingRequest> failed;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            failed = new ArrayDeque<>(pendingRequests);
+            pendingRequests.clear();
+        }
+
+        // 未写出的缓存区要归还给缓存池。I/O 线程可能正在写出队列头部的缓存区，所以只在 I/O 线程中取出
+        if (eventLoop.inEventLoop()) {
+            releaseWriteBuffers();
+        } else {
+            eventLoop.scheduleWrite(this);
+        }
+
+        if (!(cause instanceof ConnectionClosedException)) {
+            LOG.error("Closing connection " + this, cause);
+        }
+
+        try {
+            if (selectionKey != null) {
+                selectionKey.cancel();
+            }
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("Error closing channel", e);
+        }
+
+        for (PendingRequest pendingRequest : failed) {
+            pendingRequest.future.completeExceptionally(cause);
+        }
+    }
+
+    public void close() {
+        close(new ConnectionClosedException("Connection closed: " + this));
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncConnection{host='" + server.getHost() + "',port=" + server.getPort() + ",closed=" + closed + "}";
+    }
+
+    ////////////////////////////////////////////////////////////////
+
+    private static class PendingRequest {
+
+        private final CompletableFuture<Response> future;
+
+        private final long deadline;
+
+        private PendingRequest(CompletableFuture<Response> future, long deadline) {
+            this.future = future;
+            this.deadline = deadline;
+        }
+    }
+
+    // 主动关闭连接时，未完成的请求收到的异常
+    private static class ConnectionClosedException extends SsdbClientException {
+
+        private ConnectionClosedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbClientException;
+import com.hyd.ssdb.SsdbNoClusterAvailableException;
+import com.hyd.ssdb.SsdbNoServerAvailableException;
+import com.hyd.ssdb.SsdbSocketFailedException;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.Sharding;
+import com.hyd.ssdb.conf.SocketConfig;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * AsyncConnectionManager 的职责与 {@link ConnectionPoolManager} 相同：根据 Sharding 决定
+ * 请求发送到哪个服务器，并在服务器不可用时切换到其他服务器。
+ * <p>
+ * 不同的是，非阻塞连接可以同时处理多个请求，所以不需要连接池，每台服务器只保持
+ * 固定数量的连接，请求轮流分配到这些连接上。
+ */
+public class AsyncConnectionManager {
+
+    public static final int DEFAULT_CONNECTIONS_PER_SERVER = 2;
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncConnectionManager.class);
+
+    private final Sharding sharding;
+
+    private final Charset charset;
+
+    private final int connectionsPerServer;
+
+    private final NioEventLoop eventLoop;
+
+    private final Map<Server, ServerConnections> connectionsMap = new ConcurrentHashMap<>();
+
+    public AsyncConnectionManager(Sharding sharding, Charset charset, int connectionsPerServer) {
+        if (connectionsPerServer < 1) {
+            throw new SsdbClientException("connectionsPerServer must be positive");
+        }
+
+        this.sharding = sharding;
+        this.sharding.initClusters();
+        this.charset = charset;
+        this.connectionsPerServer = connectionsPerServer;
+        this.eventLoop = new NioEventLoop(SocketConfig.DEFAULT_SO_BUFFER_SIZE);
+    }
+
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    /**
+     * 根据请求获取一个连接。如果某个服务器无法创建连接，则自动切换到同一 Cluster
+     * 的其他服务器；如果所有的服务器都不可用，则抛出 SsdbNoServerAvailableException
+     *
+     * @param request 请求
+     *
+     * @return 连接
+     */
+    public AsyncConnection getConnection(Request request) throws SsdbNoServerAvailableException {
+        return getConnection(request, null);
+    }
+
+    /**
+     * 获取指定 Cluster 中的一个连接。如果某个服务器无法创建连接，则自动切换到同一 Cluster
+     * 的其他服务器；如果该 Cluster 中所有的服务器都不可用，则抛出 SsdbNoServerAvailableException
+     *
+     * @param request 请求
+     * @param cluster 指定的 Cluster，为 null 表示根据请求的 key 选择
+     *
+     * @return 连接
+     */
+    public AsyncConnection getConnection(Request request, Cluster cluster) throws SsdbNoServerAvailableException {
+
+        String key = request.getKey();
+        boolean write = request instanceof WriteRequest;
+
+        while (true) {
+            Cluster hostingCluster = null;
+            Server server = null;
+            try {
+                if (request.getForceServer() != null) {
+                    server = request.getForceServer();
+                } else {
+                    hostingCluster = cluster != null ? cluster : sharding.getClusterByKey(key);
+                    server = write ? hostingCluster.getMaster() : hostingCluster.getRandomServer();
+                }
+
+                return getConnection(server);
+
+            } catch (SsdbSocketFailedException e) {  // 连接创建失败
+                if (request.getForceServer() != null) {
+                    throw e;
+                }
+                reportInvalidServer(server);
+
+            } catch (SsdbNoServerAvailableException e) {  // 遇到 cluster 单点故障，尝试切换 Cluster
+                if (cluster != null || !sharding.clusterFailed(hostingCluster)) {
+                    throw e;
+                }
+
+            } catch (SsdbNoClusterAvailableException e) {
+                throw e;
+            }
+        }
+    }
+
+    private AsyncConnection getConnection(Server server) {
+        return connectionsMap
+            .computeIfAbsent(server, s -> new ServerConnections(s, connectionsPerServer))
+            .next();
+    }
+
+    /**
+     * 报告服务器不可用，该服务器会从所属的 Cluster 中移除，直到 {@link ServerMonitorDaemon} 发现其恢复
+     *
+     * @param server 不可用的服务器
+     */
+    public void reportInvalidServer(Server server) {
+        ServerConnections connections = connectionsMap.remove(server);
+        if (connections != null) {
+            connections.close();
+        }
+
+        for (Cluster cluster : sharding.getClusters()) {
+            if (cluster.findServer(server.getHost(), server.getPort()) != null) {
+                cluster.markInvalid(server);
+            }
+        }
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void close() {
+        for (ServerConnections connections : connectionsMap.values()) {
+            connections.close();
+        }
+        connectionsMap.clear();
+        eventLoop.shutdown();
+    }
+
+    ////////////////////////////////////////////////////////////////
+
+    // 一台服务器的所有连接
+    private class ServerConnections {
+
+        private final Server server;
+
+        private final AtomicReferenceArray<AsyncConnection> connections;
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private ServerConnections(Server server, int size) {
+            this.server = server;
+            this.connections = new AtomicReferenceArray<>(size);
+        }
+
+        // 轮流取连接，已关闭的连接会被重新创建
+        private AsyncConnection next() {
+            int index = (counter.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+            AsyncConnection connection = connections.get(index);
+            if (connection != null && !connection.isClosed()) {
+                return connection;
+            }
+
+            synchronized (this) {
+                connection = connections.get(index);
+                if (connection == null || connection.isClosed()) {
+                    connection = new AsyncConnection(server, eventLoop, charset);
+                    connections.set(index, connection);
+                }
+                return connection;
+            }
+        }
+
+        private synchronized void close() {
+            for (int i = 0; i < connections.length(); i++) {
+                AsyncConnection connection = connections.get(i);
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (Exception e) {
+                        LOG.error("Error closing connection", e);
+                    }
+                }
+            }
+        }
+    }
+}
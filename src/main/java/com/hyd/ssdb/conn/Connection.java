@@ -2,21 +2,22 @@ package com.hyd.ssdb.conn;
 
 import com.hyd.ssdb.*;
 import com.hyd.ssdb.conf.Server;
-import com.hyd.ssdb.protocol.Block;
 import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.RequestEncoder;
 import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.ResponseReader;
+import com.hyd.ssdb.util.BufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,12 +34,20 @@ public class Connection {
 
     private final String pass;        // 连接成功后发送认证口令
 
-    private final int buffer;         // 读取数据时缓存区的长度
+    private final OutputStream outputStream;
+
+    private final RequestEncoder requestEncoder;    // 发送请求时的缓存区，可重复使用
+
+    private final ResponseReader responseReader;    // 按管道方式读取时，其缓存区中可能包含下一个回应的内容
 
     private final Map<String, Object> properties = new HashMap<>();   // 其他属性
 
     private boolean available;        // 可用状态
 
+    private boolean released;         // 缓存区是否已经归还
+
+    private long bytesSent;           // 发送的字节总数
+
     public Connection(Server server) {
         this(server.getHost(), server.getPort(), server.getPass(),
             server.getSocketConfig().getSoTimeout(), server.getSocketConfig().getSoBufferSize());
@@ -49,7 +58,9 @@ public class Connection {
             this.socket = new Socket(host, port);
             this.socket.setSoTimeout(soTimeout);
             this.pass = pass;
-            this.buffer = soBuffer;
+            this.outputStream = this.socket.getOutputStream();
+            this.requestEncoder = new RequestEncoder(soBuffer, BufferPool.getHeapPool());
+            this.responseReader = new ResponseReader(this.socket.getInputStream(), soBuffer, BufferPool.getHeapPool());
             this.available = true;
             this.properties.put("host", host);
             this.properties.put("port", port);
@@ -58,15 +69,40 @@ public class Connection {
                 auth();
             }
         } catch (IOException e) {
+            closeOnFailure();
             throw new SsdbSocketFailedException(e);
+        } catch (RuntimeException e) {  // 认证失败或读取回应失败
+            closeOnFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * 构造失败时关闭已经打开的 Socket，并归还已经借出的缓存区
+     */
+    private void closeOnFailure() {
+        this.available = false;
+        this.released = true;
+
+        if (this.requestEncoder != null) {
+            this.requestEncoder.release();
+        }
+        if (this.responseReader != null) {
+            this.responseReader.release();
+        }
+        if (this.socket != null) {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                LOG.error("Error closing socket", e);
+            }
         }
     }
 
     private void auth() {
-        send(new Request("auth", this.pass).toBytes());
+        send(new Request("auth", this.pass));
         Response response = receivePacket();
-        String header = response.getHead().toString();
-        if (!header.equals("ok")) {
+        if (!response.isOk()) {
             throw new SsdbAuthFailedException();
         }
     }
@@ -102,9 +138,9 @@ public class Connection {
         }
 
         try {
-            OutputStream outputStream = this.socket.getOutputStream();
-            outputStream.write(bytes);
-            outputStream.flush();
+            this.outputStream.write(bytes);
+            this.outputStream.flush();
+            this.bytesSent += bytes.length;
             LOG.debug("Send {} bytes.", bytes.length);
         } catch (IOException e) {
             this.available = false;
@@ -112,99 +148,75 @@ public class Connection {
         }
     }
 
-    public Response receivePacket() {
-        return receivePacket(AbstractClient.DEFAULT_CHARSET);
+    /**
+     * 发送一个请求。请求直接编码到连接的缓存区中，不会生成新的数组
+     *
+     * @param request 要发送的请求
+     */
+    public void send(Request request) {
+        this.requestEncoder.encode(request);
+        flushRequests(1);
     }
 
-    public Response receivePacket(Charset charset) {
+    /**
+     * 一次发送多个请求，所有内容编码到缓存区后一次写出。之后需要调用相同次数的
+     * {@link #receivePacket(Charset)} 按顺序读取回应。
+     *
+     * @param requests 要发送的请求
+     */
+    public void send(List<Request> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new SsdbClientException("Cannot send empty content: " + requests);
+        }
 
-        ByteArrayOutputStream bos = null;
-        Response response = new Response(charset);
+        this.requestEncoder.encode(requests);
+        flushRequests(requests.size());
+    }
 
+    // 将缓存区中已编码的请求写出
+    private void flushRequests(int count) {
         try {
-            InputStream inputStream = this.socket.getInputStream();
-            bos = new ByteArrayOutputStream(10240);
-            StringBuilder numSb = new StringBuilder();
-
-            byte b;
-            int dataLength = 0, dataCounter = 0, lengthCounter = 0;
-            int blockStatus = 0; // 0=ready, 1=receiving_length, 2=receiving_data, 3=data_finished
-            int responseStatus = 0; //0=ready, 1=head_received
-
-            byte[] bs = new byte[this.buffer];
-
-            while (true) {
-                int len = inputStream.read(bs);
-                if (len == -1) {
-                    break;
-                } else {
-                    lengthCounter += len;
-                }
-
-                for (int i = 0; i < len; i++) {
-                    b = bs[i];
-                    if (b == '\n') {
-                        if (blockStatus == 0) {
-                            LOG.debug("Received {} bytes.", lengthCounter);
-                            return response;  // 方法唯一的正确出口
-
-                        } else if (blockStatus == 1) {
-                            dataLength = Integer.parseInt(numSb.toString());
-                            bos.reset();
-                            numSb.setLength(0);
-
-                            // 如果数据长度为 0，则跳过状态2
-                            if (dataLength == 0) {
-                                blockStatus = 3;
-                            } else {
-                                blockStatus = 2;
-                            }
-
-                        } else if (blockStatus == 2) {
-                            bos.write(b);
-                            dataCounter += 1;
-                            if (dataCounter >= dataLength) {
-                                blockStatus = 3;
-                                dataCounter = 0;
-                            }
-
-                        } else { // blockStatus == 3
-                            blockStatus = 0;
-
-                            Block block = new Block(bos.toByteArray());
-                            if (responseStatus == 0) {
-                                response.setHead(block);
-                                responseStatus = 1;
-                            } else {
-                                response.addBodyBlock(block);
-                            }
-                        }
-                    } else {
-                        bos.write(b);
-
-                        if (blockStatus == 0) {
-                            blockStatus = 1;
-                            numSb.append((char) b);
-                        } else if (blockStatus == 1) {
-                            numSb.append((char) b);
-                        } else if (blockStatus == 2) {
-                            dataCounter += 1;
-                            if (dataCounter >= dataLength) {
-                                blockStatus = 3;
-                                dataCounter = 0;
-                            }
-                        } else { // status == 3 包已读取完毕，此时必须收到 \n
-                            throw new SsdbException("Illegal packet: " + Arrays.toString(bos.toByteArray()));
-                        }
-                    }
-                }
+            this.requestEncoder.writeTo(this.outputStream);
+            this.outputStream.flush();
+            this.bytesSent += this.requestEncoder.size();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Send {} bytes in {} packets.", this.requestEncoder.size(), count);
             }
+        } catch (IOException e) {
+            this.available = false;
+            throw new SsdbSocketFailedException(e);
+        } finally {
+            this.requestEncoder.reset();
+        }
+    }
 
-            throw new SsdbException("Invalid packet");
+    /**
+     * @return 本连接发送的字节总数
+     */
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    /**
+     * @return 本连接接收的字节总数
+     */
+    public long getBytesReceived() {
+        return this.responseReader.getBytesRead();
+    }
+
+    public Response receivePacket() {
+        return receivePacket(AbstractClient.DEFAULT_CHARSET);
+    }
+
+    public Response receivePacket(Charset charset) {
+        try {
+            long bytesRead = this.responseReader.getBytesRead();
+            Response response = this.responseReader.readResponse(charset);
+            LOG.debug("Received {} bytes.", this.responseReader.getBytesRead() - bytesRead);
+            return response;
         } catch (SocketTimeoutException e) {
             this.available = false;
-            throw new SsdbSocketFailedException("Socket timed out, already read: " +
-                (bos == null ? "" : bos.toString()), e);
+            throw new SsdbSocketFailedException("Socket timed out", e);
         } catch (IOException e) {
             this.available = false;
             throw new SsdbSocketFailedException(e);
@@ -214,8 +226,24 @@ public class Connection {
         }
     }
 
+    /**
+     * 关闭连接，并将缓存区归还给 {@link BufferPool}。关闭之后不能再使用本连接
+     *
+     * @throws IOException 如果关闭 Socket 失败
+     */
     public void close() throws IOException {
-        this.socket.close();
+        this.available = false;
+        try {
+            this.socket.close();
+        } finally {
+            synchronized (this) {
+                if (!this.released) {
+                    this.released = true;
+                    this.requestEncoder.release();
+                    this.responseReader.release();
+                }
+            }
+        }
     }
 
     public boolean isAvailable() {
@@ -1,10 +1,12 @@
 package com.hyd.ssdb.conn;
 
 import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.ValidationConfig;
+import com.hyd.ssdb.conf.ValidationPolicy;
 import com.hyd.ssdb.protocol.Request;
-import com.hyd.ssdb.protocol.Response;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.PooledObjectState;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,15 +45,50 @@ public class ConnectionFactory implements PooledObjectFactory<Connection> {
         p.getObject().close();
     }
 
+    /**
+     * 检查连接是否可用。收发失败过的连接一定不可用；连接池的后台线程检查闲置连接时
+     * （使用 Eviction 策略，或者连接池配置了 testWhileIdle），还要发送命令确认
+     */
     public boolean validateObject(PooledObject<Connection> p) {
-        return p.getObject().isAvailable();
+        Connection connection = p.getObject();
+        if (!connection.isAvailable()) {
+            return false;
+        }
+
+        if (p.getState() == PooledObjectState.EVICTION) {
+            try {
+                ping(connection);
+            } catch (Exception e) {
+                LOG.debug("Idle connection validation failed: " + connection, e);
+                return false;
+            }
+        }
+
+        return true;
     }
 
+    /**
+     * 从连接池取出连接时，根据检查策略决定是否发送命令确认连接可用
+     */
     public void activateObject(PooledObject<Connection> p) throws Exception {
-        Connection connection = p.getObject();
-        connection.send(new Request(System.getProperty("SSDB_PING_COMMAND", "dbsize")).toBytes());
-        Response response = connection.receivePacket();
-        // LOG.debug(response.joinBlocks("\n"));
+
+        // 后台线程检查闲置连接时也会调用本方法，这种情况由 validateObject() 检查
+        if (p.getState() == PooledObjectState.EVICTION) {
+            return;
+        }
+
+        ValidationConfig config = server.getValidationConfig();
+        ValidationPolicy policy = config.getPolicy();
+
+        if (policy == ValidationPolicy.Always ||
+            (policy == ValidationPolicy.IdleTime && p.getIdleTimeMillis() > config.getIdleThreshold())) {
+            ping(p.getObject());
+        }
+    }
+
+    private void ping(Connection connection) {
+        connection.send(new Request(System.getProperty("SSDB_PING_COMMAND", "dbsize")));
+        connection.receivePacket();
     }
 
     public void passivateObject(PooledObject<Connection> p) throws Exception {
@@ -5,9 +5,14 @@ import org.apache.commons.pool2.impl.GenericObjectPool;
 
 /**
  * 连接池。对每个 Server 都需要创建各自的连接池对象。
+ * <p>
+ * 借出的连接数即为该服务器正在执行的请求数，借出和归还时会更新 {@link Server#getStats()}。
+ * 连接池本身的统计数据（等待时间、创建和销毁的连接数等）见 {@link #getStats()}。
  */
 public abstract class ConnectionPool extends GenericObjectPool<Connection> {
 
+    private final ConnectionPoolStats stats = new ConnectionPoolStats(this);
+
     /**
      * 构造方法
      * @param server 服务器配置
@@ -19,4 +24,27 @@ public abstract class ConnectionPool extends GenericObjectPool<Connection> {
     public Server getServer() {
         return ((ConnectionFactory) this.getFactory()).getServer();
     }
+
+    public ConnectionPoolStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Connection borrowObject(long borrowMaxWaitMillis) throws Exception {
+        long start = System.nanoTime();
+        Connection connection = super.borrowObject(borrowMaxWaitMillis);
+        stats.connectionBorrowed(System.nanoTime() - start);
+        getServer().getStats().requestStarted();
+        return connection;
+    }
+
+    @Override
+    public void returnObject(Connection connection) {
+        getServer().getStats().requestFinished();
+
+        // 闲置连接已满时，归还的连接会被销毁
+        int maxIdle = getMaxIdle();
+        stats.connectionReturned(connection.isAvailable() && maxIdle >= 0 && getNumIdle() >= maxIdle);
+        super.returnObject(connection);
+    }
 }
@@ -1,18 +1,23 @@
 package com.hyd.ssdb.conn;
 
 import com.hyd.ssdb.SsdbClientException;
+import com.hyd.ssdb.SsdbException;
 import com.hyd.ssdb.SsdbNoClusterAvailableException;
 import com.hyd.ssdb.SsdbNoServerAvailableException;
 import com.hyd.ssdb.SsdbSocketFailedException;
 import com.hyd.ssdb.conf.Cluster;
 import com.hyd.ssdb.conf.Server;
 import com.hyd.ssdb.conf.Sharding;
+import com.hyd.ssdb.conf.ValidationConfig;
+import com.hyd.ssdb.conf.ValidationPolicy;
+import com.hyd.ssdb.metrics.MetricsRecorder;
 import com.hyd.ssdb.protocol.Request;
 import com.hyd.ssdb.protocol.WriteRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,6 +42,10 @@ public class ConnectionPoolManager {
 
     private ConnectionPoolFactory connectionPoolFactory = DEFAULT_CONNECTION_POOL_FACTORY;
 
+    private volatile MetricsRecorder metricsRecorder;   // 为 null 表示不记录
+
+    private AdaptivePoolSizer adaptivePoolSizer;        // 为 null 表示不自动调整连接池
+
     public ConnectionPoolManager(Sharding sharding) {
         this.sharding = sharding;
         this.sharding.initClusters();
@@ -50,6 +59,47 @@ public class ConnectionPoolManager {
         return sharding;
     }
 
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * 设置记录借出连接的等待时间和切换服务器次数的对象，通常通过 AbstractClient#setMetricsRecorder() 设置
+     *
+     * @param metricsRecorder 为 null 表示不记录
+     */
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    public synchronized AdaptivePoolSizer getAdaptivePoolSizer() {
+        return adaptivePoolSizer;
+    }
+
+    /**
+     * 设置自动调整连接池的 minIdle 和 maxIdle。之前设置的 AdaptivePoolSizer 会被停止
+     *
+     * @param adaptivePoolSizer 为 null 表示不再自动调整，连接池保持最后一次调整的结果
+     */
+    public synchronized void setAdaptivePoolSizer(AdaptivePoolSizer adaptivePoolSizer) {
+        if (this.adaptivePoolSizer != null) {
+            this.adaptivePoolSizer.stop();
+        }
+        this.adaptivePoolSizer = adaptivePoolSizer;
+        if (adaptivePoolSizer != null) {
+            adaptivePoolSizer.start(this);
+        }
+    }
+
+    /**
+     * 获取已经创建的所有连接池，可用于查看每个服务器的连接池统计数据 {@link ConnectionPool#getStats()}
+     *
+     * @return {服务器 -> 连接池}
+     */
+    public Map<Server, ConnectionPool> getConnectionPools() {
+        return Collections.unmodifiableMap(connectionPoolMap);
+    }
+
     public List<PoolAndConnection> getAllClusterConnections(Request request) {
         boolean write = request instanceof WriteRequest;
         List<PoolAndConnection> result = new ArrayList<PoolAndConnection>();
@@ -57,7 +107,7 @@ public class ConnectionPoolManager {
         try {
             for (Cluster cluster : this.sharding.getClusters()) {
                 ConnectionPool pool = pickServer(cluster, write);
-                result.add(new PoolAndConnection(pool, pool.borrowObject()));
+                result.add(new PoolAndConnection(pool, borrow(pool), cluster));
             }
         } catch (Exception e) {
             throw new SsdbClientException(e);
@@ -94,8 +144,8 @@ public class ConnectionPoolManager {
                     connectionPool = pickServer(cluster, write);
                 }
 
-                Connection connection = connectionPool.borrowObject();
-                return new PoolAndConnection(connectionPool, connection);
+                Connection connection = borrow(connectionPool);
+                return new PoolAndConnection(connectionPool, connection, cluster);
 
             } catch (SsdbSocketFailedException e) { // 表示 server 连接创建失败
                 if (connectionPool != null) {
@@ -111,6 +161,11 @@ public class ConnectionPoolManager {
                 // 向 Sharding 报告 Cluster 无法使用。如果 Sharding 不能接受，则返回 false
                 boolean keepSearching = sharding.clusterFailed(cluster);
 
+                MetricsRecorder metricsRecorder = this.metricsRecorder;
+                if (metricsRecorder != null) {
+                    metricsRecorder.clusterFailedOver(cluster);
+                }
+
                 if (!keepSearching) {
                     throw e;
                 } else {
@@ -129,6 +184,69 @@ public class ConnectionPoolManager {
         throw new SsdbClientException("should not be here");
     }
 
+    /**
+     * 从指定的 Cluster 获取一个连接。如果某个服务器无法创建连接，则切换到同一 Cluster
+     * 的其他服务器；如果所有的服务器都不可用，则抛出 SsdbNoServerAvailableException
+     *
+     * @param request 请求
+     * @param cluster 集群
+     *
+     * @return 连接和连接池
+     */
+    public PoolAndConnection getConnection(Request request, Cluster cluster)
+            throws SsdbNoServerAvailableException {
+
+        boolean write = request instanceof WriteRequest;
+
+        while (true) {
+            ConnectionPool connectionPool = pickServer(cluster, write);
+            try {
+                return new PoolAndConnection(connectionPool, borrow(connectionPool), cluster);
+            } catch (SsdbSocketFailedException e) {
+                Server server = connectionPool.getServer();
+                reportInvalidConnection(server.getHost(), server.getPort());
+            } catch (SsdbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SsdbClientException(e);
+            }
+        }
+    }
+
+    /**
+     * 从指定的服务器获取一个连接。如果无法创建连接，则将服务器标记为不可用并抛出异常
+     *
+     * @param server 服务器
+     *
+     * @return 连接和连接池
+     */
+    public PoolAndConnection getConnection(Server server) {
+        ConnectionPool connectionPool = getConnectionPool(server);
+        try {
+            return new PoolAndConnection(connectionPool, borrow(connectionPool));
+        } catch (SsdbSocketFailedException e) {
+            reportInvalidConnection(server.getHost(), server.getPort());
+            throw e;
+        } catch (SsdbException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SsdbClientException(e);
+        }
+    }
+
+    // 从连接池借出一个连接，记录等待的时间（包括创建新连接的时间）
+    private Connection borrow(ConnectionPool connectionPool) throws Exception {
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        if (metricsRecorder == null) {
+            return connectionPool.borrowObject();
+        }
+
+        long start = System.nanoTime();
+        Connection connection = connectionPool.borrowObject();
+        metricsRecorder.connectionBorrowed(connectionPool.getServer(), System.nanoTime() - start);
+        return connection;
+    }
+
     /**
      * 取一个服务器。如果是写操作，则只取主服务器；否则随机取一个服务器
      *
@@ -157,6 +275,15 @@ public class ConnectionPoolManager {
             ConnectionPool connectionPool = createConnectionPool(server);
             connectionPool.setTestOnReturn(true);
             connectionPool.setTestOnBorrow(true);
+
+            // Eviction 策略需要连接池的后台线程定时检查闲置连接
+            ValidationConfig validationConfig = server.getValidationConfig();
+            if (validationConfig.getPolicy() == ValidationPolicy.Eviction) {
+                connectionPool.setTestWhileIdle(true);
+                if (connectionPool.getTimeBetweenEvictionRunsMillis() <= 0) {
+                    connectionPool.setTimeBetweenEvictionRunsMillis(validationConfig.getEvictionInterval());
+                }
+            }
             connectionPoolMap.put(server, connectionPool);
             return connectionPool;
         }
@@ -170,6 +297,7 @@ public class ConnectionPoolManager {
      * 关闭所有连接池
      */
     public void close() {
+        setAdaptivePoolSizer(null);
         for (ConnectionPool pool : connectionPoolMap.values()) {
             try {
                 pool.close();
@@ -191,6 +319,11 @@ public class ConnectionPoolManager {
             Server server = cluster.findServer(host, port);
             if (server != null) {
                 cluster.markInvalid(server);
+
+                MetricsRecorder metricsRecorder = this.metricsRecorder;
+                if (metricsRecorder != null) {
+                    metricsRecorder.serverFailedOver(cluster, server);
+                }
             }
         }
     }
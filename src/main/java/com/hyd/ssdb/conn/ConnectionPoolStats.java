@@ -0,0 +1,152 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接池的运行时统计数据，每个 {@link ConnectionPool} 有一个，通过 {@link ConnectionPool#getStats()} 获取。
+ * <p>
+ * 包括借出连接的等待时间（包括创建新连接的时间）、正在使用的连接数及其峰值、创建和销毁的连接数，
+ * 以及因为闲置连接已满（超过 maxIdle）而在归还时被销毁的连接数。最后一项持续增长说明 maxIdle 太小，
+ * 连接被反复创建和销毁，每次都要付出建立 TCP 连接和认证的代价，这时可以调大 maxIdle 或者开启 {@link AdaptivePoolSizer}。
+ * <p>
+ * 记录数据只更新原子计数，不创建对象。
+ */
+public class ConnectionPoolStats {
+
+    private final ConnectionPool connectionPool;
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicInteger peakActiveCount = new AtomicInteger();     // 上次调用 resetPeakActiveCount() 以来的峰值
+
+    private final LongAdder idleOverflowCount = new LongAdder();
+
+    private final AtomicLong lastCreatedCount = new AtomicLong();
+
+    private volatile long lastRateNanos = System.nanoTime();
+
+    ConnectionPoolStats(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    void connectionBorrowed(long waitNanos) {
+        borrowWait.record(waitNanos);
+
+        int active = activeCount.incrementAndGet();
+        int peak;
+        while (active > (peak = peakActiveCount.get())) {
+            if (peakActiveCount.compareAndSet(peak, active)) {
+                break;
+            }
+        }
+    }
+
+    void connectionReturned(boolean idleOverflow) {
+        activeCount.decrementAndGet();
+        if (idleOverflow) {
+            idleOverflowCount.increment();
+        }
+    }
+
+    /**
+     * @return 借出连接等待时间的直方图（纳秒）
+     */
+    public LatencyHistogram getBorrowWaitHistogram() {
+        return borrowWait;
+    }
+
+    public long getBorrowCount() {
+        return borrowWait.getCount();
+    }
+
+    public double getBorrowWaitMeanMicros() {
+        return borrowWait.getMean() / 1000;
+    }
+
+    public long getBorrowWaitP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(borrowWait.percentile(99));
+    }
+
+    public long getBorrowWaitMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(borrowWait.getMax());
+    }
+
+    /**
+     * @return 正在使用（已借出）的连接数
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return 闲置的连接数
+     */
+    public int getIdleCount() {
+        return connectionPool.getNumIdle();
+    }
+
+    /**
+     * @return 上次调用 {@link #resetPeakActiveCount()} 以来正在使用的连接数的峰值
+     */
+    public int getPeakActiveCount() {
+        return peakActiveCount.get();
+    }
+
+    /**
+     * 将峰值重置为当前正在使用的连接数，并返回重置之前的峰值
+     *
+     * @return 重置之前的峰值
+     */
+    public int resetPeakActiveCount() {
+        return peakActiveCount.getAndSet(activeCount.get());
+    }
+
+    public long getCreatedCount() {
+        return connectionPool.getCreatedCount();
+    }
+
+    public long getDestroyedCount() {
+        return connectionPool.getDestroyedCount();
+    }
+
+    /**
+     * @return 归还时因为闲置连接已满而被销毁的连接数（近似值）
+     */
+    public long getIdleOverflowCount() {
+        return idleOverflowCount.sum();
+    }
+
+    /**
+     * 计算上次调用本方法以来每秒创建的连接数。多个线程同时调用时，各自得到的是不同时间段的结果
+     *
+     * @return 每秒创建的连接数
+     */
+    public double sampleCreationRate() {
+        long now = System.nanoTime();
+        long created = getCreatedCount();
+        long previous = lastCreatedCount.getAndSet(created);
+        long elapsed = now - lastRateNanos;
+        lastRateNanos = now;
+        return elapsed <= 0 ? 0 : (created - previous) * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{" +
+            "active=" + getActiveCount() +
+            ", idle=" + getIdleCount() +
+            ", peakActive=" + getPeakActiveCount() +
+            ", created=" + getCreatedCount() +
+            ", destroyed=" + getDestroyedCount() +
+            ", idleOverflow=" + getIdleOverflowCount() +
+            ", borrowWaitP99=" + getBorrowWaitP99Micros() + "us" +
+            '}';
+    }
+}
@@ -0,0 +1,168 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行 {@link AsyncConnection} 读写操作的线程。一个 NioEventLoop 使用一个 Selector
+ * 管理多个连接，其他线程通过队列向它提交注册和写入的请求。
+ */
+public class NioEventLoop implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioEventLoop.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final Selector selector;
+
+    private final Queue<AsyncConnection> registerQueue = new ConcurrentLinkedQueue<>();
+
+    private final Queue<AsyncConnection> writeQueue = new ConcurrentLinkedQueue<>();
+
+    private final Set<AsyncConnection> connections = new HashSet<>();
+
+    private final ByteBuffer readBuffer;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    public NioEventLoop(int readBufferSize) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new SsdbClientException(e);
+        }
+
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+        this.thread = new Thread(this, "hydrogen-ssdb-nio-" + THREAD_COUNTER.incrementAndGet());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void register(AsyncConnection connection) {
+        registerQueue.add(connection);
+        selector.wakeup();
+    }
+
+    void scheduleWrite(AsyncConnection connection) {
+        writeQueue.add(connection);
+        selector.wakeup();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                processRegistrations();
+                processWrites();
+
+                selector.select(SELECT_TIMEOUT_MILLIS);
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    AsyncConnection connection = (AsyncConnection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isWritable()) {
+                        connection.handleWrite();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.handleRead(readBuffer);
+                    }
+                }
+
+                checkTimeouts();
+            } catch (Throwable e) {
+                LOG.error("Error in NIO event loop", e);
+            }
+        }
+
+        closeSelector();
+    }
+
+    private void processRegistrations() {
+        AsyncConnection connection;
+        while ((connection = registerQueue.poll()) != null) {
+            if (connection.isClosed()) {
+                continue;
+            }
+            try {
+                // 注册之前可能已经有待写入的内容，所以同时关注可写事件
+                SelectionKey key = connection.getChannel().register(
+                    selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, connection);
+                connection.setSelectionKey(key);
+                connections.add(connection);
+            } catch (ClosedChannelException e) {
+                connection.close(new SsdbClientException(e));
+            }
+        }
+    }
+
+    private void processWrites() {
+        AsyncConnection connection;
+        while ((connection = writeQueue.poll()) != null) {
+            // 尚未注册的连接会在注册后通过可写事件写入；已关闭的连接归还未写出的缓存区
+            if (connection.isClosed()) {
+                connection.releaseWriteBuffers();
+            } else if (connections.contains(connection)) {
+                connection.handleWrite();
+            }
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.nanoTime();
+        Iterator<AsyncConnection> iterator = connections.iterator();
+        while (iterator.hasNext()) {
+            AsyncConnection connection = iterator.next();
+            if (connection.isClosed()) {
+                iterator.remove();
+            } else {
+                connection.checkTimeout(now);
+            }
+        }
+    }
+
+    private void closeSelector() {
+        for (AsyncConnection connection : connections) {
+            connection.close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.error("Error closing selector", e);
+        }
+    }
+
+    /**
+     * 关闭线程及其管理的所有连接
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
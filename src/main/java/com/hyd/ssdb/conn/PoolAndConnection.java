@@ -1,5 +1,7 @@
 package com.hyd.ssdb.conn;
 
+import com.hyd.ssdb.conf.Cluster;
+
 /**
  * 包含 Connection 和 ConnectionPool 的类，两者作为方法的返回值同时返回
  * 这是为了方便 Connection 用完后，由调用者将其返回给 ConnectionPool
@@ -13,11 +15,18 @@ public class PoolAndConnection {
 
     private ConnectionPool connectionPool;
 
+    private Cluster cluster;        // 连接的服务器所属的 Cluster，强制指定服务器时为 null
+
     public PoolAndConnection(ConnectionPool connectionPool, Connection connection) {
         this.connectionPool = connectionPool;
         this.connection = connection;
     }
 
+    public PoolAndConnection(ConnectionPool connectionPool, Connection connection, Cluster cluster) {
+        this(connectionPool, connection);
+        this.cluster = cluster;
+    }
+
     public Connection getConnection() {
         return connection;
     }
@@ -25,4 +34,8 @@ public class PoolAndConnection {
     public ConnectionPool getConnectionPool() {
         return connectionPool;
     }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
 }
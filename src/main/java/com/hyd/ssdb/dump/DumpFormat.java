@@ -0,0 +1,96 @@
+package com.hyd.ssdb.dump;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 导出文件的格式。每个 chunk 文件是一个 gzip 压缩的记录流，每条记录对应导出时读取的一页内容：
+ * <pre>
+ * 'k' 数量 (key 值)...             键值对
+ * 'h' 名称 数量 (字段 值)...        hash
+ * 'z' 名称 数量 (id 分数)...        zset，分数为 8 字节整数
+ * 'q' 名称 数量 (值)...             队列
+ * </pre>
+ * 数量为 4 字节整数，名称、key、值等都是 4 字节长度加上原始字节。
+ * chunk 文件的 CRC32 校验值（按压缩后的文件内容计算）记录在 manifest 中。
+ */
+final class DumpFormat {
+
+    static final byte KEY_VALUES = 'k';
+
+    static final byte HASH = 'h';
+
+    static final byte ZSET = 'z';
+
+    static final byte QUEUE = 'q';
+
+    static final String MANIFEST_FILE = "manifest.txt";
+
+    static final String IMPORTED_FILE = "imported.txt";
+
+    static final String CHUNK_SUFFIX = ".gz";
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private DumpFormat() {
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid block length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * 读取记录类型
+     *
+     * @param in 输入流
+     *
+     * @return 记录类型，到达文件末尾时返回 -1
+     */
+    static int readType(DataInputStream in) throws IOException {
+        try {
+            return in.readByte();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 计算文件的 CRC32 校验值
+     *
+     * @param file 文件
+     *
+     * @return 校验值
+     */
+    static long checksum(Path file) throws IOException {
+        CRC32 crc32 = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc32.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.hyd.ssdb.dump;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导出目录中的 manifest 文件，每行记录一个已经完整写入的 chunk：
+ * <pre>
+ * 文件名 记录的元素个数 文件大小 CRC32（十六进制）
+ * </pre>
+ * chunk 写入完成并改名之后才会追加到 manifest，所以 manifest 中的 chunk 一定是完整的。
+ */
+class DumpManifest {
+
+    private final Path path;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    DumpManifest(Path path) throws IOException {
+        this.path = path;
+
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != 4) {
+                    continue;   // 忽略空行或写了一半的行
+                }
+                Entry entry = new Entry(parts[0], Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3], 16));
+                entries.put(entry.file, entry);
+            }
+        }
+    }
+
+    synchronized Entry get(String file) {
+        return entries.get(file);
+    }
+
+    synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    synchronized void add(Entry entry) throws IOException {
+        String line = entry.file + " " + entry.elements + " " + entry.size + " " + Long.toHexString(entry.crc) + "\n";
+        Files.write(path, line.getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        entries.put(entry.file, entry);
+    }
+
+    synchronized void clear() throws IOException {
+        Files.deleteIfExists(path);
+        entries.clear();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    static class Entry {
+
+        final String file;
+
+        final long elements;
+
+        final long size;
+
+        final long crc;
+
+        Entry(String file, long elements, long size, long crc) {
+            this.file = file;
+            this.elements = elements;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+}
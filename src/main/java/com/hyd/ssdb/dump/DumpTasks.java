@@ -0,0 +1,80 @@
+package com.hyd.ssdb.dump;
+
+import com.hyd.ssdb.SsdbException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行执行导出或导入任务。任何一个任务失败时，取消其余的任务并抛出该任务的异常
+ */
+final class DumpTasks {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private DumpTasks() {
+    }
+
+    /**
+     * 并行执行任务
+     *
+     * @param tasks       任务，返回值表示是否实际执行（而不是因为已经完成而跳过）
+     * @param parallelism 最多同时执行的任务数
+     *
+     * @return 实际执行的任务数
+     */
+    static int runAll(List<Callable<Boolean>> tasks, int parallelism) throws IOException {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "hydrogen-ssdb-dump-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+            for (Callable<Boolean> task : tasks) {
+                completionService.submit(() -> {
+                    SsdbException.clearThreadLocal();
+                    return task.call();
+                });
+            }
+
+            int count = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    if (completionService.take().get()) {
+                        count++;
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else {
+                        throw new SsdbException(cause);
+                    }
+                }
+            }
+            return count;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for dump tasks");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
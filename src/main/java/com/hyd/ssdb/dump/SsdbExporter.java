@@ -0,0 +1,361 @@
+package com.hyd.ssdb.dump;
+
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.protocol.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 将 SSDB 中的全部数据（键值对、hash、zset 和队列）导出到一个目录中。
+ * <p>
+ * 数据按 Cluster、数据类型和 key 的范围（由 {@link #setSplitPoints(String...)} 指定）划分成多个分区，
+ * 各个分区并行地用 scan、hscan、zscan 和 qrange 分批读取，每个分区写入一个 gzip 压缩的 chunk 文件。
+ * chunk 先写入临时文件，完成后改名，再把 CRC32 校验值记录到 manifest 中。
+ * <p>
+ * 导出中断后重新执行时，manifest 中已经记录且校验值正确的 chunk 会被跳过，其他分区重新导出。
+ * 因此重新执行时的 Cluster 配置和分割点必须与之前相同。分区越小，中断时需要重新导出的内容越少。
+ * <p>
+ * 导出期间数据的修改可能会被导出，也可能不会，本工具不提供快照一致性。
+ *
+ * @see SsdbImporter
+ */
+public class SsdbExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SsdbExporter.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final SsdbClient ssdbClient;
+
+    private final Path directory;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private List<String> splitPoints = Collections.emptyList();
+
+    private boolean resume = true;
+
+    public SsdbExporter(SsdbClient ssdbClient, File directory) {
+        this.ssdbClient = ssdbClient;
+        this.directory = directory.toPath();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 设置同时导出的分区数
+     *
+     * @param parallelism 同时导出的分区数
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 设置每次读取的数量，也就是导入时每个 multi_set、multi_hset 等命令包含的元素个数
+     *
+     * @param batchSize 每次读取的数量
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public List<String> getSplitPoints() {
+        return splitPoints;
+    }
+
+    /**
+     * 设置 key 范围的分割点。n 个分割点将每个 Cluster 的每种数据划分为 n + 1 个范围：
+     * (-∞, p1]、(p1, p2]、……、(pn, +∞)，各个范围并行导出。缺省不分割
+     *
+     * @param splitPoints 分割点
+     */
+    public void setSplitPoints(String... splitPoints) {
+        List<String> points = new ArrayList<>(Arrays.asList(splitPoints));
+        Collections.sort(points);
+        this.splitPoints = Collections.unmodifiableList(points);
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * 设置是否跳过已经导出的 chunk。缺省为 true；为 false 时清除 manifest，重新导出所有分区
+     *
+     * @param resume 是否跳过已经导出的 chunk
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * 执行导出
+     *
+     * @return 本次实际导出的 chunk 个数（不包括跳过的）
+     *
+     * @throws IOException 如果写入文件失败
+     */
+    public int exportAll() throws IOException {
+        Files.createDirectories(directory);
+
+        DumpManifest manifest = new DumpManifest(directory.resolve(DumpFormat.MANIFEST_FILE));
+        if (!resume) {
+            manifest.clear();
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (Partition partition : createPartitions()) {
+            tasks.add(() -> exportPartition(partition, manifest));
+        }
+        return DumpTasks.runAll(tasks, parallelism);
+    }
+
+    private List<Partition> createPartitions() {
+        List<byte[]> boundaries = new ArrayList<>();
+        boundaries.add(EMPTY);
+        for (String splitPoint : splitPoints) {
+            boundaries.add(splitPoint.getBytes(StandardCharsets.UTF_8));
+        }
+        boundaries.add(EMPTY);      // 结束 key 为空表示不限
+
+        List<Cluster> clusters = ssdbClient.getSharding().getClusters();
+        List<Partition> partitions = new ArrayList<>();
+        for (byte type : new byte[]{DumpFormat.KEY_VALUES, DumpFormat.HASH, DumpFormat.ZSET, DumpFormat.QUEUE}) {
+            for (int i = 0; i < clusters.size(); i++) {
+                for (int j = 0; j + 1 < boundaries.size(); j++) {
+                    partitions.add(new Partition(type, clusters.get(i),
+                        (char) type + "-" + i + "-" + j + DumpFormat.CHUNK_SUFFIX,
+                        boundaries.get(j), boundaries.get(j + 1)));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private boolean exportPartition(Partition partition, DumpManifest manifest) throws IOException {
+        Path target = directory.resolve(partition.file);
+
+        DumpManifest.Entry entry = manifest.get(partition.file);
+        if (entry != null && Files.exists(target)
+            && Files.size(target) == entry.size && DumpFormat.checksum(target) == entry.crc) {
+            LOG.debug("Chunk " + partition.file + " already exported, skipped.");
+            return false;
+        }
+
+        Path temp = directory.resolve(partition.file + DumpFormat.TEMP_SUFFIX);
+        CRC32 crc32 = new CRC32();
+        long elements;
+
+        // GZIPOutputStream 的构造方法会写入文件头，失败时也要关闭 channel
+        try (FileChannel channel = FileChannel.open(temp,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            GZIPOutputStream gzip = new GZIPOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc32), DumpFormat.BUFFER_SIZE);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, DumpFormat.BUFFER_SIZE))) {
+                elements = partition.type == DumpFormat.KEY_VALUES ?
+                    writeKeyValues(out, partition) : writeContainers(out, partition);
+
+                out.flush();
+                gzip.finish();
+                channel.force(true);    // 确保改名之前内容已经写入磁盘
+            }
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        manifest.add(new DumpManifest.Entry(partition.file, elements, Files.size(target), crc32.getValue()));
+
+        LOG.debug("Chunk " + partition.file + " exported, " + elements + " elements.");
+        return true;
+    }
+
+    private long writeKeyValues(DataOutputStream out, Partition partition) throws IOException {
+        long elements = 0;
+        byte[] cursor = partition.startExclude;
+
+        while (true) {
+            List<byte[]> blocks = send(partition, "scan", cursor, partition.endInclude, batchSize);
+            int count = blocks.size() / 2;
+            if (count > 0) {
+                out.writeByte(DumpFormat.KEY_VALUES);
+                out.writeInt(count);
+                for (int i = 0; i < count * 2; i++) {
+                    DumpFormat.writeBytes(out, blocks.get(i));
+                }
+                elements += count;
+                cursor = blocks.get(count * 2 - 2);
+            }
+
+            if (count < batchSize) {
+                return elements;
+            }
+        }
+    }
+
+    // 遍历范围内的 hash、zset 或队列名称，逐个导出
+    private long writeContainers(DataOutputStream out, Partition partition) throws IOException {
+        String listCommand = partition.type == DumpFormat.HASH ? "hlist" :
+            partition.type == DumpFormat.ZSET ? "zlist" : "qlist";
+
+        long elements = 0;
+        byte[] cursor = partition.startExclude;
+
+        while (true) {
+            List<byte[]> names = send(partition, listCommand, cursor, partition.endInclude, batchSize);
+            for (byte[] name : names) {
+                if (partition.type == DumpFormat.HASH) {
+                    elements += writeHash(out, partition, name);
+                } else if (partition.type == DumpFormat.ZSET) {
+                    elements += writeZset(out, partition, name);
+                } else {
+                    elements += writeQueue(out, partition, name);
+                }
+            }
+
+            if (names.size() < batchSize) {
+                return elements;
+            }
+            cursor = names.get(names.size() - 1);
+        }
+    }
+
+    private long writeHash(DataOutputStream out, Partition partition, byte[] name) throws IOException {
+        long elements = 0;
+        byte[] cursor = EMPTY;
+
+        while (true) {
+            List<byte[]> blocks = send(partition, "hscan", name, cursor, EMPTY, batchSize);
+            int count = blocks.size() / 2;
+            if (count > 0) {
+                out.writeByte(DumpFormat.HASH);
+                DumpFormat.writeBytes(out, name);
+                out.writeInt(count);
+                for (int i = 0; i < count * 2; i++) {
+                    DumpFormat.writeBytes(out, blocks.get(i));
+                }
+                elements += count;
+                cursor = blocks.get(count * 2 - 2);
+            }
+
+            if (count < batchSize) {
+                return elements;
+            }
+        }
+    }
+
+    private long writeZset(DataOutputStream out, Partition partition, byte[] name) throws IOException {
+        long elements = 0;
+        byte[] idCursor = EMPTY;
+        byte[] scoreCursor = EMPTY;
+
+        while (true) {
+            List<byte[]> blocks = send(partition, "zscan", name, idCursor, scoreCursor, EMPTY, batchSize);
+            int count = blocks.size() / 2;
+            if (count > 0) {
+                out.writeByte(DumpFormat.ZSET);
+                DumpFormat.writeBytes(out, name);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    DumpFormat.writeBytes(out, blocks.get(i * 2));
+                    out.writeLong(Long.parseLong(new String(blocks.get(i * 2 + 1), StandardCharsets.US_ASCII)));
+                }
+                elements += count;
+                idCursor = blocks.get(count * 2 - 2);
+                scoreCursor = blocks.get(count * 2 - 1);
+            }
+
+            if (count < batchSize) {
+                return elements;
+            }
+        }
+    }
+
+    private long writeQueue(DataOutputStream out, Partition partition, byte[] name) throws IOException {
+        long elements = 0;
+
+        while (true) {
+            List<byte[]> values = send(partition, "qrange", name, elements, batchSize);
+            if (!values.isEmpty()) {
+                out.writeByte(DumpFormat.QUEUE);
+                DumpFormat.writeBytes(out, name);
+                out.writeInt(values.size());
+                for (byte[] value : values) {
+                    DumpFormat.writeBytes(out, value);
+                }
+                elements += values.size();
+            }
+
+            if (values.size() < batchSize) {
+                return elements;
+            }
+        }
+    }
+
+    private List<byte[]> send(Partition partition, Object... tokens) {
+        return ssdbClient.sendRequestToCluster(new Request(tokens), partition.cluster).getByteBlocks();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    private static class Partition {
+
+        private final byte type;
+
+        private final Cluster cluster;
+
+        private final String file;
+
+        private final byte[] startExclude;
+
+        private final byte[] endInclude;
+
+        Partition(byte type, Cluster cluster, String file, byte[] startExclude, byte[] endInclude) {
+            this.type = type;
+            this.cluster = cluster;
+            this.file = file;
+            this.startExclude = startExclude;
+            this.endInclude = endInclude;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.hyd.ssdb.dump;
+
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.protocol.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 将 {@link SsdbExporter} 导出的数据导入到 SSDB 中。
+ * <p>
+ * 各个 chunk 并行导入。导入一个 chunk 之前先校验文件的 CRC32，校验失败时不会写入任何内容。
+ * chunk 中的每条记录用一个 multi_set、multi_hset、multi_zset 或 qpush_back 命令写入，
+ * 键值对按照目标 Cluster 分组后分别写入。目标的 Cluster 配置可以与导出时不同。
+ * 每个队列完整地导出在同一个 chunk 中，导入时先用 qclear 清空队列再写入，所以导入后队列的内容与导出时相同，
+ * 目标中原有的元素会被清除。
+ * <p>
+ * 导入完成的 chunk 记录在导出目录的 imported.txt 中，中断后重新执行时会跳过这些 chunk。
+ * 导入到一半的 chunk 会被完整地重新导入，键值对、hash 和 zset 会被覆盖为相同的内容，队列会被清空后重新写入，
+ * 所以重新导入是安全的。
+ *
+ * @see SsdbExporter
+ */
+public class SsdbImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SsdbImporter.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final SsdbClient ssdbClient;
+
+    private final Path directory;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private boolean resume = true;
+
+    public SsdbImporter(SsdbClient ssdbClient, File directory) {
+        this.ssdbClient = ssdbClient;
+        this.directory = directory.toPath();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 设置同时导入的 chunk 数
+     *
+     * @param parallelism 同时导入的 chunk 数
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * 设置是否跳过已经导入的 chunk。缺省为 true；为 false 时清除导入记录，重新导入所有 chunk
+     *
+     * @param resume 是否跳过已经导入的 chunk
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * 执行导入
+     *
+     * @return 本次实际导入的 chunk 个数（不包括跳过的）
+     *
+     * @throws IOException 如果读取文件失败，或者文件校验失败
+     */
+    public int importAll() throws IOException {
+        Path manifestPath = directory.resolve(DumpFormat.MANIFEST_FILE);
+        if (!Files.exists(manifestPath)) {
+            throw new IOException("Manifest not found: " + manifestPath);
+        }
+
+        DumpManifest manifest = new DumpManifest(manifestPath);
+        Path importedPath = directory.resolve(DumpFormat.IMPORTED_FILE);
+        if (!resume) {
+            Files.deleteIfExists(importedPath);
+        }
+
+        Set<String> imported = Collections.synchronizedSet(new HashSet<>());
+        if (Files.exists(importedPath)) {
+            for (String line : Files.readAllLines(importedPath, StandardCharsets.UTF_8)) {
+                imported.add(line.trim());
+            }
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (DumpManifest.Entry entry : manifest.getEntries()) {
+            tasks.add(() -> {
+                if (imported.contains(entry.file)) {
+                    LOG.debug("Chunk " + entry.file + " already imported, skipped.");
+                    return false;
+                }
+
+                importChunk(entry);
+
+                synchronized (imported) {
+                    Files.write(importedPath, (entry.file + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+                    imported.add(entry.file);
+                }
+                return true;
+            });
+        }
+        return DumpTasks.runAll(tasks, parallelism);
+    }
+
+    private void importChunk(DumpManifest.Entry entry) throws IOException {
+        Path path = directory.resolve(entry.file);
+        if (!Files.exists(path) || Files.size(path) != entry.size) {
+            throw new IOException("Chunk file missing or truncated: " + path);
+        }
+        if (DumpFormat.checksum(path) != entry.crc) {
+            throw new IOException("Checksum mismatch: " + path);
+        }
+
+        long elements = 0;
+        Set<String> clearedQueues = new HashSet<>();     // 本 chunk 中已经清空的队列
+        // GZIPInputStream 的构造方法会读取文件头，格式错误时也要关闭 channel
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                 Channels.newInputStream(channel), DumpFormat.BUFFER_SIZE), DumpFormat.BUFFER_SIZE))) {
+
+            int type;
+            while ((type = DumpFormat.readType(in)) != -1) {
+                elements += importRecord(in, (byte) type, clearedQueues);
+            }
+        }
+
+        if (elements != entry.elements) {
+            throw new IOException("Chunk " + path + " should contain " + entry.elements + " elements, found " + elements);
+        }
+        LOG.debug("Chunk " + entry.file + " imported, " + elements + " elements.");
+    }
+
+    private int importRecord(DataInputStream in, byte type, Set<String> clearedQueues) throws IOException {
+        if (type == DumpFormat.KEY_VALUES) {
+            int count = in.readInt();
+            importKeyValues(in, count);
+            return count;
+        }
+
+        byte[] name = DumpFormat.readBytes(in);
+        int count = in.readInt();
+        List<Object> tokens = new ArrayList<>();
+
+        if (type == DumpFormat.HASH) {
+            tokens.add("multi_hset");
+            tokens.add(name);
+            for (int i = 0; i < count; i++) {
+                tokens.add(DumpFormat.readBytes(in));
+                tokens.add(DumpFormat.readBytes(in));
+            }
+        } else if (type == DumpFormat.ZSET) {
+            tokens.add("multi_zset");
+            tokens.add(name);
+            for (int i = 0; i < count; i++) {
+                tokens.add(DumpFormat.readBytes(in));
+                tokens.add(in.readLong());
+            }
+        } else if (type == DumpFormat.QUEUE) {
+            // 一个队列可能分成多条记录，只在第一条之前清空，这样重新导入 chunk 时不会出现重复的元素
+            if (clearedQueues.add(new String(name, StandardCharsets.ISO_8859_1))) {
+                ssdbClient.sendRequest(new WriteRequest("qclear", name));
+            }
+            tokens.add("qpush_back");
+            tokens.add(name);
+            for (int i = 0; i < count; i++) {
+                tokens.add(DumpFormat.readBytes(in));
+            }
+        } else {
+            throw new IOException("Unknown record type " + type);
+        }
+
+        ssdbClient.sendRequest(new WriteRequest(tokens.toArray()));
+        return count;
+    }
+
+    // 键值对按照目标 Cluster 分组，每组一个 multi_set 命令
+    private void importKeyValues(DataInputStream in, int count) throws IOException {
+        Map<Cluster, List<Object>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] key = DumpFormat.readBytes(in);
+            byte[] value = DumpFormat.readBytes(in);
+
+            Cluster cluster = ssdbClient.getSharding().getClusterByKey(new String(key, StandardCharsets.UTF_8));
+            List<Object> tokens = groups.computeIfAbsent(cluster, c -> {
+                List<Object> list = new ArrayList<>();
+                list.add("multi_set");
+                return list;
+            });
+            tokens.add(key);
+            tokens.add(value);
+        }
+
+        for (List<Object> tokens : groups.values()) {
+            ssdbClient.sendRequest(new WriteRequest(tokens.toArray()));   // 按第一个 key 发送到对应的 Cluster
+        }
+    }
+}
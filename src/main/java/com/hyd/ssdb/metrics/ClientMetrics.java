@@ -0,0 +1,166 @@
+package com.hyd.ssdb.metrics;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 内置的 {@link MetricsRecorder} 实现，按命令、服务器和 Cluster 分别汇总响应时间直方图、失败、超时、重发、
+ * 切换服务器的次数以及收发的字节数，服务器还包括借出连接的等待时间。
+ * <p>
+ * 每个命令、服务器或 Cluster 的 {@link EndpointMetrics} 在第一次用到时创建，之后记录数据不会创建任何对象。
+ * 通过 {@link #addListener(Consumer)} 可以在新的 EndpointMetrics 创建时得到通知，{@link JmxMetricsExporter} 就是这样发布到 JMX 的。
+ */
+public class ClientMetrics implements MetricsRecorder {
+
+    private final Map<String, EndpointMetrics> commands = new ConcurrentHashMap<>();
+
+    private final Map<Server, EndpointMetrics> servers = new ConcurrentHashMap<>();
+
+    private final Map<String, EndpointMetrics> clusters = new ConcurrentHashMap<>();
+
+    private final List<Consumer<EndpointMetrics>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void requestCompleted(String command, Server server, Cluster cluster, long latencyNanos, boolean success) {
+        getCommandMetrics(command).recordRequest(latencyNanos, success);
+        getServerMetrics(server).recordRequest(latencyNanos, success);
+        if (cluster != null) {
+            getClusterMetrics(cluster).recordRequest(latencyNanos, success);
+        }
+    }
+
+    @Override
+    public void bytesTransferred(String command, Server server, long bytesSent, long bytesReceived) {
+        getCommandMetrics(command).recordBytes(bytesSent, bytesReceived);
+        getServerMetrics(server).recordBytes(bytesSent, bytesReceived);
+    }
+
+    @Override
+    public void connectionBorrowed(Server server, long waitNanos) {
+        getServerMetrics(server).recordBorrowWait(waitNanos);
+    }
+
+    @Override
+    public void requestRetried(String command, Server server) {
+        getCommandMetrics(command).recordRetry();
+        getServerMetrics(server).recordRetry();
+    }
+
+    @Override
+    public void requestTimedOut(String command, Server server) {
+        getCommandMetrics(command).recordTimeout();
+        getServerMetrics(server).recordTimeout();
+    }
+
+    @Override
+    public void clusterTimedOut(String command, Cluster cluster) {
+        getCommandMetrics(command).recordTimeout();
+        getClusterMetrics(cluster).recordTimeout();
+    }
+
+    @Override
+    public void serverFailedOver(Cluster cluster, Server server) {
+        getServerMetrics(server).recordFailover();
+        getClusterMetrics(cluster).recordFailover();
+    }
+
+    @Override
+    public void clusterFailedOver(Cluster cluster) {
+        getClusterMetrics(cluster).recordFailover();
+    }
+
+    public EndpointMetrics getCommandMetrics(String command) {
+        return getOrCreate(commands, command, c -> new EndpointMetrics(EndpointMetrics.TYPE_COMMAND, c));
+    }
+
+    public EndpointMetrics getServerMetrics(Server server) {
+        return getOrCreate(servers, server,
+            s -> new EndpointMetrics(EndpointMetrics.TYPE_SERVER, s.getHost() + ":" + s.getPort()));
+    }
+
+    public EndpointMetrics getClusterMetrics(Cluster cluster) {
+        return getOrCreate(clusters, cluster.getId(), id -> new EndpointMetrics(EndpointMetrics.TYPE_CLUSTER, id));
+    }
+
+    /**
+     * @return 所有命令的统计数据，key 为命令名称
+     */
+    public Map<String, EndpointMetrics> getAllCommandMetrics() {
+        return Collections.unmodifiableMap(commands);
+    }
+
+    /**
+     * @return 所有服务器的统计数据
+     */
+    public Map<Server, EndpointMetrics> getAllServerMetrics() {
+        return Collections.unmodifiableMap(servers);
+    }
+
+    /**
+     * @return 所有 Cluster 的统计数据，key 为 Cluster 的 id
+     */
+    public Map<String, EndpointMetrics> getAllClusterMetrics() {
+        return Collections.unmodifiableMap(clusters);
+    }
+
+    /**
+     * @return 所有已经创建的统计数据
+     */
+    public Collection<EndpointMetrics> getAll() {
+        List<EndpointMetrics> all = new ArrayList<>(commands.values());
+        all.addAll(servers.values());
+        all.addAll(clusters.values());
+        return all;
+    }
+
+    /**
+     * 添加监听器，每当创建新的 EndpointMetrics 时调用。监听器在发送请求的线程中执行
+     *
+     * @param listener 监听器
+     */
+    public void addListener(Consumer<EndpointMetrics> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<EndpointMetrics> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 清除所有统计数据，已经创建的 EndpointMetrics 仍然保留
+     */
+    public void reset() {
+        for (EndpointMetrics metrics : getAll()) {
+            metrics.reset();
+        }
+    }
+
+    // 已经存在时只是一次 get，不会创建对象
+    private <K> EndpointMetrics getOrCreate(Map<K, EndpointMetrics> map, K key, Function<K, EndpointMetrics> creator) {
+        EndpointMetrics metrics = map.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        EndpointMetrics created = creator.apply(key);
+        metrics = map.putIfAbsent(key, created);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        for (Consumer<EndpointMetrics> listener : listeners) {
+            listener.accept(created);
+        }
+        return created;
+    }
+}
@@ -0,0 +1,207 @@
+package com.hyd.ssdb.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个命令、一台服务器或者一个 Cluster 的统计数据，由 {@link ClientMetrics} 创建和更新。
+ * 记录数据只更新原子计数，不创建对象。
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean {
+
+    public static final String TYPE_COMMAND = "Command";
+
+    public static final String TYPE_SERVER = "Server";
+
+    public static final String TYPE_CLUSTER = "Cluster";
+
+    private final String type;
+
+    private final String name;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder failovers = new LongAdder();
+
+    private final LongAdder bytesSent = new LongAdder();
+
+    private final LongAdder bytesReceived = new LongAdder();
+
+    public EndpointMetrics(String type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    void recordRequest(long latencyNanos, boolean success) {
+        latency.record(latencyNanos);
+        if (!success) {
+            failures.increment();
+        }
+    }
+
+    void recordBytes(long sent, long received) {
+        bytesSent.add(sent);
+        bytesReceived.add(received);
+    }
+
+    void recordBorrowWait(long waitNanos) {
+        borrowWait.record(waitNanos);
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordFailover() {
+        failovers.increment();
+    }
+
+    /**
+     * @return 响应时间的直方图（纳秒）
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latency;
+    }
+
+    /**
+     * @return 借出连接等待时间的直方图（纳秒），只有服务器的统计数据包含这一项
+     */
+    public LatencyHistogram getBorrowWaitHistogram() {
+        return borrowWait;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getFailoverCount() {
+        return failovers.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return latency.getMean() / 1000;
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return micros(latency.percentile(50));
+    }
+
+    @Override
+    public long getLatencyP90Micros() {
+        return micros(latency.percentile(90));
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return micros(latency.percentile(99));
+    }
+
+    @Override
+    public long getLatencyP999Micros() {
+        return micros(latency.percentile(99.9));
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return micros(latency.getMax());
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowWait.getCount();
+    }
+
+    @Override
+    public double getBorrowWaitMeanMicros() {
+        return borrowWait.getMean() / 1000;
+    }
+
+    @Override
+    public long getBorrowWaitP99Micros() {
+        return micros(borrowWait.percentile(99));
+    }
+
+    @Override
+    public long getBorrowWaitMaxMicros() {
+        return micros(borrowWait.getMax());
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        borrowWait.reset();
+        failures.reset();
+        timeouts.reset();
+        retries.reset();
+        failovers.reset();
+        bytesSent.reset();
+        bytesReceived.reset();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetrics{" +
+            "type=" + type +
+            ", name=" + name +
+            ", requests=" + getRequestCount() +
+            ", failures=" + getFailureCount() +
+            ", timeouts=" + getTimeoutCount() +
+            ", p99=" + getLatencyP99Micros() + "us" +
+            '}';
+    }
+}
@@ -0,0 +1,52 @@
+package com.hyd.ssdb.metrics;
+
+/**
+ * 通过 JMX 发布的统计数据。时间的单位都是微秒
+ *
+ * @see JmxMetricsExporter
+ */
+public interface EndpointMetricsMXBean {
+
+    String getType();
+
+    String getName();
+
+    long getRequestCount();
+
+    long getFailureCount();
+
+    long getTimeoutCount();
+
+    long getRetryCount();
+
+    long getFailoverCount();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    double getLatencyMeanMicros();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP90Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyP999Micros();
+
+    long getLatencyMaxMicros();
+
+    long getBorrowCount();
+
+    double getBorrowWaitMeanMicros();
+
+    long getBorrowWaitP99Micros();
+
+    long getBorrowWaitMaxMicros();
+
+    /**
+     * 清除所有统计数据
+     */
+    void reset();
+}
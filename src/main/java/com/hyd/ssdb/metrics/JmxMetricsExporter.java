@@ -0,0 +1,119 @@
+package com.hyd.ssdb.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 将 {@link ClientMetrics} 中的统计数据发布到 JMX。每个命令、服务器和 Cluster 对应一个 MXBean，名称为
+ * {@code com.hyd.ssdb:type=<Command|Server|Cluster>,client="<客户端名称>",name="<命令名称|host:port|Cluster id>"}，
+ * 之后新出现的命令、服务器和 Cluster 会自动注册。
+ * <p>
+ * 使用方法：
+ * <pre>
+ * ClientMetrics metrics = new ClientMetrics();
+ * ssdbClient.setMetricsRecorder(metrics);
+ * JmxMetricsExporter exporter = new JmxMetricsExporter(metrics, "main");
+ * exporter.start();
+ * ...
+ * exporter.close();   // 注销所有 MXBean
+ * </pre>
+ * 注册失败只会记录日志，不会影响发送请求。
+ */
+public class JmxMetricsExporter implements Closeable {
+
+    public static final String DOMAIN = "com.hyd.ssdb";
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+    private final ClientMetrics clientMetrics;
+
+    private final String clientName;
+
+    private final MBeanServer mBeanServer;
+
+    private final Map<EndpointMetrics, ObjectName> registered = new ConcurrentHashMap<>();
+
+    private final Consumer<EndpointMetrics> listener = this::register;
+
+    public JmxMetricsExporter(ClientMetrics clientMetrics, String clientName) {
+        this(clientMetrics, clientName, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param clientMetrics 要发布的统计数据
+     * @param clientName    客户端名称，同一个进程中有多个客户端时用于区分
+     * @param mBeanServer   注册到的 MBeanServer
+     */
+    public JmxMetricsExporter(ClientMetrics clientMetrics, String clientName, MBeanServer mBeanServer) {
+        this.clientMetrics = clientMetrics;
+        this.clientName = clientName;
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * 注册已有的统计数据，并开始监听新的统计数据
+     */
+    public void start() {
+        clientMetrics.addListener(listener);
+        for (EndpointMetrics metrics : clientMetrics.getAll()) {
+            register(metrics);
+        }
+    }
+
+    /**
+     * 停止监听并注销所有已注册的 MXBean
+     */
+    @Override
+    public void close() {
+        clientMetrics.removeListener(listener);
+        for (ObjectName objectName : registered.values()) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("Failed to unregister " + objectName, e);
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * 生成 MXBean 的名称
+     *
+     * @param metrics 统计数据
+     *
+     * @return MXBean 的名称
+     *
+     * @throws JMException 如果名称不合法
+     */
+    public ObjectName getObjectName(EndpointMetrics metrics) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + metrics.getType() +
+            ",client=" + ObjectName.quote(clientName) + ",name=" + ObjectName.quote(metrics.getName()));
+    }
+
+    private void register(EndpointMetrics metrics) {
+        if (registered.containsKey(metrics)) {
+            return;
+        }
+
+        try {
+            ObjectName objectName = getObjectName(metrics);
+            if (registered.putIfAbsent(metrics, objectName) == null) {
+                mBeanServer.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            registered.remove(metrics);
+            LOG.warn("Failed to register metrics " + metrics.getType() + " " + metrics.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.hyd.ssdb.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数分级的响应时间直方图，与 HdrHistogram 的分桶方式相同：数值按二进制的最高位分组，
+ * 每组再平均分成 {@link #SUB_BUCKET_COUNT} 个桶，所以任何数值的相对误差都不超过 1/32（约 3%）。
+ * 最大可以记录 2^41 纳秒（约 36 分钟），更大的数值计入最后一个桶。
+ * <p>
+ * 记录样本只更新几个原子计数，不加锁，也不创建任何对象。查询百分位数时遍历所有的桶，
+ * 不要在每个请求中调用。与 {@link com.hyd.ssdb.util.LatencyWindow} 不同，本类统计的是所有样本而不只是最近的样本。
+ */
+public class LatencyHistogram {
+
+    public static final int SUB_BUCKET_BITS = 5;
+
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_EXPONENT = 40;     // 可以记录的最大数值的最高位
+
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个样本
+     *
+     * @param value 数值（纳秒），小于 0 时按 0 记录
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(bucketIndex(v));
+        count.increment();
+        total.add(v);
+
+        long current;
+        while (v > (current = max.get())) {
+            if (max.compareAndSet(current, v)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return 平均值，没有样本时返回 0
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * 计算百分位数。返回的是样本所在桶的上限，并且不超过记录过的最大值
+     *
+     * @param percentile 百分位，取值范围为 (0, 100]
+     *
+     * @return 百分位数（纳秒），没有样本时返回 0
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long n = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * n));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 清除所有样本。清除期间同时记录的样本可能部分丢失
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    // 小于 2 * SUB_BUCKET_COUNT 的数值每个值一个桶，之后每组的桶宽度加倍
+    static int bucketIndex(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    // 桶中可能的最大数值
+    static long highestValue(int index) {
+        int group = index >>> SUB_BUCKET_BITS;
+        if (group == 0) {
+            return index;
+        }
+
+        int shift = group - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,90 @@
+package com.hyd.ssdb.metrics;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+
+/**
+ * 接收客户端运行数据的接口。设置到 {@link com.hyd.ssdb.AbstractClient#setMetricsRecorder(MetricsRecorder)} 之后，
+ * 客户端在发送请求、借出连接、切换服务器时调用对应的方法。所有方法都有空的缺省实现，只需要实现关心的部分。
+ * <p>
+ * 这些方法在发送请求的线程中同步调用，实现类必须是线程安全的，并且应当尽快返回，不要在其中执行 I/O 或者创建大量对象。
+ * 内置的实现是 {@link ClientMetrics}，它按命令、服务器和 Cluster 分别汇总，可以通过 {@link JmxMetricsExporter} 发布到 JMX。
+ */
+public interface MetricsRecorder {
+
+    /**
+     * 一个请求收到回应，或者收发失败
+     *
+     * @param command      命令名称，例如 "get"
+     * @param server       执行请求的服务器
+     * @param cluster      服务器所属的 Cluster，强制指定服务器时可能为 null
+     * @param latencyNanos 从发送到收到回应的时间（纳秒）
+     * @param success      是否成功。服务器返回错误信息也算失败
+     */
+    default void requestCompleted(String command, Server server, Cluster cluster, long latencyNanos, boolean success) {
+    }
+
+    /**
+     * 一个请求收发的字节数
+     *
+     * @param command       命令名称
+     * @param server        执行请求的服务器
+     * @param bytesSent     发送的字节数
+     * @param bytesReceived 接收的字节数
+     */
+    default void bytesTransferred(String command, Server server, long bytesSent, long bytesReceived) {
+    }
+
+    /**
+     * 从连接池借出一个连接，包括需要创建新连接的情况
+     *
+     * @param server    连接池对应的服务器
+     * @param waitNanos 等待的时间（纳秒）
+     */
+    default void connectionBorrowed(Server server, long waitNanos) {
+    }
+
+    /**
+     * 请求因为连接问题失败，将要换一台服务器重新发送
+     *
+     * @param command 命令名称
+     * @param server  失败的服务器
+     */
+    default void requestRetried(String command, Server server) {
+    }
+
+    /**
+     * 请求超时
+     *
+     * @param command 命令名称
+     * @param server  超时的服务器
+     */
+    default void requestTimedOut(String command, Server server) {
+    }
+
+    /**
+     * 同时向多个 Cluster 发送请求时，等待一个 Cluster 的回应超过了 clusterTimeout
+     *
+     * @param command 命令名称
+     * @param cluster 超时的 Cluster
+     */
+    default void clusterTimedOut(String command, Cluster cluster) {
+    }
+
+    /**
+     * 服务器被标记为不可用，之后的请求会发送到同一 Cluster 的其他服务器
+     *
+     * @param cluster 服务器所属的 Cluster
+     * @param server  不可用的服务器
+     */
+    default void serverFailedOver(Cluster cluster, Server server) {
+    }
+
+    /**
+     * Cluster 中所有服务器都不可用，交给 Sharding 处理
+     *
+     * @param cluster 不可用的 Cluster
+     */
+    default void clusterFailedOver(Cluster cluster) {
+    }
+}
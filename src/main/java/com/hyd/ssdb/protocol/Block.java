@@ -1,12 +1,13 @@
 package com.hyd.ssdb.protocol;
 
-import com.hyd.ssdb.util.Bytes;
-
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 /**
  * 一个区块。当发送区块时，按照 '长度\n内容\n' 的格式发送
+ * <p>
+ * 按 UTF-8 解码的字符串在第一次解码后会被缓存，重复调用 toString() 不会重复解码；
+ * 数字可以通过 {@link #toInt()} 和 {@link #toLong()} 直接从 ASCII 字节解析，不需要生成字符串。
  * created at 15-11-30
  *
  * @author Yiding
@@ -15,11 +16,17 @@ public class Block {
 
     private final byte[] data;
 
+    private String utf8String;      // 缓存 UTF-8 解码的结果。String 不可变，多线程下最多重复解码，不会读到不完整的对象
+
     public Block(Object obj, Charset charset) {
         if (obj instanceof byte[]) {
             this.data = (byte[]) obj;
         } else {
-            this.data = obj.toString().getBytes(charset);
+            String string = obj.toString();
+            this.data = string.getBytes(charset);
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                this.utf8String = string;       // 命令名称等字符串之后调用 toString() 时不需要再解码
+            }
         }
     }
 
@@ -33,16 +40,108 @@ public class Block {
      * @return 要发送的字节串
      */
     public byte[] toBytes() {
-        byte[] length = (data.length + "\n").getBytes();
-        return Bytes.concat(length, data, new byte[]{'\n'});
+        byte[] bytes = new byte[RequestEncoder.encodedLength(data)];
+        RequestEncoder.encode(data, bytes, 0);
+        return bytes;
     }
 
     public byte[] getData() {
         return data;
     }
 
+    /**
+     * 复制区块，新区块的内容是一个独立的数组，已缓存的字符串可以共用
+     *
+     * @return 新的区块
+     */
+    public Block copy() {
+        Block block = new Block(this.data.clone());
+        block.utf8String = this.utf8String;
+        return block;
+    }
+
     public String toString(Charset charset) {
-        return new String(this.data, charset);
+        if (!StandardCharsets.UTF_8.equals(charset)) {
+            return new String(this.data, charset);
+        }
+
+        String string = this.utf8String;
+        if (string == null) {
+            string = new String(this.data, StandardCharsets.UTF_8);
+            this.utf8String = string;
+        }
+        return string;
+    }
+
+    /**
+     * 判断内容是否与一个 ASCII 字符串相同，用于检查 "ok"、"not_found" 等状态，不需要解码
+     *
+     * @param ascii 只包含 ASCII 字符的字符串
+     *
+     * @return 内容是否相同
+     */
+    public boolean contentEquals(String ascii) {
+        if (data.length != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 将内容作为十进制整数直接从 ASCII 字节解析
+     *
+     * @return 整数值
+     *
+     * @throws NumberFormatException 如果内容不是整数，或者超出 int 的范围
+     */
+    public int toInt() {
+        long value = toLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range: " + toString());
+        }
+        return (int) value;
+    }
+
+    /**
+     * 将内容作为十进制整数直接从 ASCII 字节解析
+     *
+     * @return 整数值
+     *
+     * @throws NumberFormatException 如果内容不是整数，或者超出 long 的范围
+     */
+    public long toLong() {
+        int length = data.length;
+        if (length == 0) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+
+        boolean negative = data[0] == '-';
+        int start = (negative || data[0] == '+') ? 1 : 0;
+        if (start == length) {
+            throw new NumberFormatException("For input string: \"" + toString() + "\"");
+        }
+
+        // 以负数累加，这样可以表示 Long.MIN_VALUE
+        long result = 0;
+        for (int i = start; i < length; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + toString() + "\"");
+            }
+            result = result * 10 - digit;
+        }
+
+        if (negative) {
+            return result;
+        } else if (result == Long.MIN_VALUE) {
+            throw new NumberFormatException("For input string: \"" + toString() + "\"");
+        }
+        return -result;
     }
 
     @Override
@@ -3,7 +3,6 @@ package com.hyd.ssdb.protocol;
 import com.hyd.ssdb.AbstractClient;
 import com.hyd.ssdb.SsdbException;
 import com.hyd.ssdb.conf.Server;
-import com.hyd.ssdb.util.Bytes;
 
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -99,15 +98,14 @@ public class Request {
         return sb.toString();
     }
 
+    /**
+     * 生成要发送的字节串。通过连接发送时请使用 {@link RequestEncoder}，可以避免每次生成新的数组
+     *
+     * @return 要发送的字节串
+     */
     public byte[] toBytes() {
-        byte[][] byteArrays = new byte[blocks.size() + 2][];
-
-        byteArrays[0] = header.toBytes();
-        for (int i = 0; i < blocks.size(); i++) {
-            byteArrays[i + 1] = blocks.get(i).toBytes();
-        }
-        byteArrays[byteArrays.length - 1] = new byte[]{'\n'};
-
-        return Bytes.concat(byteArrays);
+        byte[] bytes = new byte[RequestEncoder.encodedLength(this)];
+        RequestEncoder.encode(this, bytes, 0);
+        return bytes;
     }
 }
@@ -0,0 +1,225 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.util.BufferPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 请求编码器。将请求按照 '长度\n内容\n' 的格式直接写入一个可重复使用的缓存区，
+ * 长度以 ASCII 数字直接写入，不需要生成 String 或中间数组。
+ * <p>
+ * 每个连接持有一个 RequestEncoder，发送请求时先调用 {@link #encode(Request)}，
+ * 然后调用 {@link #writeTo(OutputStream)} 一次性写出，最后调用 {@link #reset()}。
+ * 缓存区会按需扩大；如果因为发送大的内容而扩大得太多，reset() 时会恢复到初始大小，
+ * 以免每个连接长期占用大量内存。本类不是线程安全的。
+ * <p>
+ * 如果指定了 {@link BufferPool}，缓存区从池中申请，连接关闭时调用 {@link #release()} 归还，
+ * 这样频繁创建和关闭连接时不需要每次都分配新的缓存区。
+ */
+public class RequestEncoder {
+
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final int initialCapacity;
+
+    private final BufferPool bufferPool;    // 为 null 表示直接分配数组
+
+    private ByteBuffer pooledBuffer;        // 从 bufferPool 申请的 ByteBuffer，buffer 是它的数组
+
+    private byte[] buffer;
+
+    private int size;
+
+    public RequestEncoder(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    public RequestEncoder(int initialCapacity, BufferPool bufferPool) {
+        if (bufferPool != null && bufferPool.isDirect()) {
+            throw new IllegalArgumentException("RequestEncoder requires a heap buffer pool");
+        }
+        this.initialCapacity = initialCapacity;
+        this.bufferPool = bufferPool;
+        this.buffer = allocate(initialCapacity);
+    }
+
+    /**
+     * 将请求编码后追加到缓存区
+     *
+     * @param request 请求
+     */
+    public void encode(Request request) {
+        ensureCapacity(size + encodedLength(request));
+        size = encode(request, buffer, size);
+    }
+
+    /**
+     * 将多个请求编码后追加到缓存区
+     *
+     * @param requests 请求
+     */
+    public void encode(List<Request> requests) {
+        int length = size;
+        for (Request request : requests) {
+            length += encodedLength(request);
+        }
+        ensureCapacity(length);
+
+        for (Request request : requests) {
+            size = encode(request, buffer, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, size);
+    }
+
+    /**
+     * 清空缓存区
+     */
+    public void reset() {
+        size = 0;
+        if (buffer.length > Math.max(initialCapacity, MAX_RETAINED_CAPACITY)) {
+            ByteBuffer oldBuffer = pooledBuffer;
+            buffer = allocate(initialCapacity);
+            release(oldBuffer);
+        }
+    }
+
+    /**
+     * 将缓存区归还给 BufferPool，之后不能再使用本对象
+     */
+    public void release() {
+        release(pooledBuffer);
+        pooledBuffer = null;
+        buffer = null;
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            ByteBuffer oldBuffer = pooledBuffer;
+            byte[] newBuffer = allocate(Math.max(capacity, buffer.length * 2));
+            System.arraycopy(buffer, 0, newBuffer, 0, size);
+            buffer = newBuffer;
+            release(oldBuffer);
+        }
+    }
+
+    private byte[] allocate(int capacity) {
+        if (bufferPool == null) {
+            return new byte[capacity];
+        }
+        pooledBuffer = bufferPool.acquire(capacity);
+        return pooledBuffer.array();
+    }
+
+    private void release(ByteBuffer byteBuffer) {
+        if (bufferPool != null && byteBuffer != null) {
+            bufferPool.release(byteBuffer);
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    /**
+     * 将请求编码到从 bufferPool 申请的 ByteBuffer 中，用于非阻塞连接。写出之后需要归还给 bufferPool
+     *
+     * @param request    请求
+     * @param bufferPool 缓存池，可以是堆外的
+     *
+     * @return 包含编码后内容的 ByteBuffer，已经可以读取
+     */
+    public static ByteBuffer encode(Request request, BufferPool bufferPool) {
+        ByteBuffer dest = bufferPool.acquire(encodedLength(request));
+        if (dest.hasArray()) {
+            int end = encode(request, dest.array(), dest.arrayOffset());
+            dest.position(end - dest.arrayOffset());
+        } else {
+            encode(request.getHeader().getData(), dest);
+            List<Block> blocks = request.getBlocks();
+            for (int i = 0; i < blocks.size(); i++) {
+                encode(blocks.get(i).getData(), dest);
+            }
+            dest.put((byte) '\n');
+        }
+        dest.flip();
+        return dest;
+    }
+
+    private static void encode(byte[] data, ByteBuffer dest) {
+        int end = dest.position() + digits(data.length);
+        int position = end;
+        int value = data.length;
+        do {
+            dest.put(--position, (byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        dest.position(end);
+
+        dest.put((byte) '\n');
+        dest.put(data);
+        dest.put((byte) '\n');
+    }
+
+    // 计算请求编码后的长度
+    static int encodedLength(Request request) {
+        int length = encodedLength(request.getHeader().getData());
+        List<Block> blocks = request.getBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            length += encodedLength(blocks.get(i).getData());
+        }
+        return length + 1;   // 最后的空行
+    }
+
+    static int encodedLength(byte[] data) {
+        return digits(data.length) + 1 + data.length + 1;
+    }
+
+    // 将请求编码到 dest 中，返回写入后的位置
+    static int encode(Request request, byte[] dest, int offset) {
+        offset = encode(request.getHeader().getData(), dest, offset);
+        List<Block> blocks = request.getBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            offset = encode(blocks.get(i).getData(), dest, offset);
+        }
+        dest[offset++] = '\n';
+        return offset;
+    }
+
+    static int encode(byte[] data, byte[] dest, int offset) {
+        offset = writeInt(data.length, dest, offset);
+        dest[offset++] = '\n';
+        System.arraycopy(data, 0, dest, offset, data.length);
+        offset += data.length;
+        dest[offset++] = '\n';
+        return offset;
+    }
+
+    // 将非负整数以 ASCII 数字写入 dest，返回写入后的位置
+    private static int writeInt(int value, byte[] dest, int offset) {
+        int end = offset + digits(value);
+        int position = end;
+        do {
+            dest[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return end;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -1,7 +1,9 @@
 package com.hyd.ssdb.protocol;
 
 import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.IdScoreList;
 import com.hyd.ssdb.util.KeyValue;
+import com.hyd.ssdb.util.KeyValueBatch;
 
 import java.nio.charset.Charset;
 import java.util.*;
@@ -9,7 +11,8 @@ import java.util.stream.Collectors;
 
 
 /**
- * (description)
+ * 服务器的回应，包含一个表示状态的头部区块和若干内容区块。
+ * 状态直接按字节判断，数字直接从字节解析，字符串在区块中缓存，所以重复读取不会重复解码。
  * created at 16/06/15
  *
  * @author yiding_he
@@ -46,6 +49,43 @@ public class Response {
         this.body.add(block);
     }
 
+    /**
+     * 复制回应，新回应的区块内容都是独立的数组，修改它们不会影响原来的回应
+     *
+     * @return 新的回应
+     */
+    public Response copy() {
+        Response response = new Response(this.charset);
+        response.head = this.head == null ? null : this.head.copy();
+        List<Block> blocks = new ArrayList<>(this.body.size());
+        for (Block block : this.body) {
+            blocks.add(block.copy());
+        }
+        response.body = blocks;
+        return response;
+    }
+
+    /**
+     * @return 状态是否为 "ok"
+     */
+    public boolean isOk() {
+        return this.head.contentEquals("ok");
+    }
+
+    /**
+     * @return 状态是否为 "not_found"
+     */
+    public boolean isNotFound() {
+        return this.head.contentEquals("not_found");
+    }
+
+    /**
+     * @return 状态是否为 "error"
+     */
+    public boolean isError() {
+        return this.head.contentEquals("error");
+    }
+
     public String firstBlock() {
         return this.body.isEmpty() ? null : this.body.get(0).toString();
     }
@@ -77,10 +117,10 @@ public class Response {
     }
 
     public Integer getIntResult() {
-        if (this.head.toString().equals("not_found")) {
+        if (isNotFound()) {
             return null;
         }
-        return this.body.isEmpty() ? 0 : Integer.parseInt(this.body.get(0).toString());
+        return this.body.isEmpty() ? 0 : this.body.get(0).toInt();
     }
 
     public int getIntResult(int defaultValue) {
@@ -89,10 +129,10 @@ public class Response {
     }
 
     public Long getLongResult() {
-        if (this.head.toString().equals("not_found")) {
+        if (isNotFound()) {
             return null;
         }
-        return this.body.isEmpty() ? 0 : Long.parseLong(this.body.get(0).toString());
+        return this.body.isEmpty() ? 0 : this.body.get(0).toLong();
     }
 
     public long getLongResult(long defaultValue) {
@@ -101,17 +141,23 @@ public class Response {
     }
 
     public List<String> getBlocks() {
-        return this.body.stream()
-            .map(block -> block.toString(charset))
-            .collect(Collectors.toList());
+        List<String> blocks = new ArrayList<>(body.size());
+        for (int i = 0; i < body.size(); i++) {
+            blocks.add(body.get(i).toString(charset));
+        }
+        return blocks;
     }
 
     public List<byte[]> getByteBlocks() {
-        return this.body.stream().map(Block::getData).collect(Collectors.toList());
+        List<byte[]> blocks = new ArrayList<>(body.size());
+        for (int i = 0; i < body.size(); i++) {
+            blocks.add(body.get(i).getData());
+        }
+        return blocks;
     }
 
     public List<KeyValue> getKeyValues() {
-        List<KeyValue> keyValues = new ArrayList<>();
+        List<KeyValue> keyValues = new ArrayList<>(body.size() / 2);
 
         for (int i = 0; i + 1 < body.size(); i += 2) {
             keyValues.add(new KeyValue(
@@ -123,23 +169,39 @@ public class Response {
     }
 
     public List<IdScore> getIdScores() {
-        List<IdScore> idScores = new ArrayList<>();
+        List<IdScore> idScores = new ArrayList<>(body.size() / 2);
 
         for (int i = 0; i + 1 < body.size(); i += 2) {
-            String key = body.get(i).toString();
-            String value = body.get(i + 1).toString();
-            idScores.add(new IdScore(key, Long.parseLong(value)));
+            idScores.add(new IdScore(body.get(i).toString(), body.get(i + 1).toLong()));
         }
 
         return idScores;
     }
 
+    /**
+     * 以紧凑的方式返回 id - score 列表，id 的内容直接复制到一个连续的数组中，score 直接从字节解析
+     *
+     * @return id - score 列表
+     */
+    public IdScoreList getIdScoreList() {
+        int count = body.size() / 2;
+        int idBytes = 0;
+        for (int i = 0; i < count; i++) {
+            idBytes += body.get(i * 2).getData().length;
+        }
+
+        IdScoreList.Builder builder = new IdScoreList.Builder(count, idBytes);
+        for (int i = 0; i < count; i++) {
+            builder.add(body.get(i * 2).getData(), body.get(i * 2 + 1).toLong());
+        }
+        return builder.build();
+    }
+
     public List<String> getIds() {
-        List<String> ids = new ArrayList<>();
+        List<String> ids = new ArrayList<>(body.size() / 2);
 
         for (int i = 0; i + 1 < body.size(); i += 2) {
-            String key = body.get(i).toString();
-            ids.add(key);
+            ids.add(body.get(i).toString());
         }
 
         return ids;
@@ -147,11 +209,10 @@ public class Response {
 
     public Map<byte[], byte[]> getBlocksAsMap() {
 
-        Map<byte[], byte[]> map = new HashMap<>();
-        List<KeyValue> keyValues = getKeyValues();
+        Map<byte[], byte[]> map = new HashMap<>(Math.max(16, body.size() * 2 / 3 + 1));
 
-        for (KeyValue keyValue : keyValues) {
-            map.put(keyValue.getKey(), keyValue.getValue());
+        for (int i = 0; i + 1 < body.size(); i += 2) {
+            map.put(body.get(i).getData(), body.get(i + 1).getData());
         }
 
         return map;
@@ -159,16 +220,31 @@ public class Response {
 
     public Map<String, String> getBlocksAsStringMap(Charset charset) {
 
-        Map<String, String> map = new HashMap<>();
-        List<KeyValue> keyValues = getKeyValues();
+        Map<String, String> map = new HashMap<>(Math.max(16, body.size() * 2 / 3 + 1));
 
-        for (KeyValue keyValue : keyValues) {
-            map.put(
-                new String(keyValue.getKey(), charset).intern(),
-                new String(keyValue.getValue(), charset).intern()
-            );
+        for (int i = 0; i + 1 < body.size(); i += 2) {
+            map.put(body.get(i).toString(charset), body.get(i + 1).toString(charset));
         }
 
         return map;
     }
+
+    /**
+     * 以紧凑的方式返回键值对列表，所有 key 和 value 的内容直接复制到一个连续的数组中
+     *
+     * @return 键值对列表
+     */
+    public KeyValueBatch getKeyValueBatch() {
+        int count = body.size() / 2;
+        int bytes = 0;
+        for (int i = 0; i < count * 2; i++) {
+            bytes += body.get(i).getData().length;
+        }
+
+        KeyValueBatch.Builder builder = new KeyValueBatch.Builder(count, bytes, charset);
+        for (int i = 0; i < count; i++) {
+            builder.add(body.get(i * 2).getData(), body.get(i * 2 + 1).getData());
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,114 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.SsdbException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 增量式的回应解析器，用于非阻塞连接：每次收到一段数据就交给 {@link #decode(ByteBuffer)}，
+ * 解析出完整的回应后返回，数据不够时返回 null 并保存当前的解析状态。
+ * <p>
+ * 回应的格式为若干个 '长度\n内容\n' 区块，最后以一个空行结束。
+ * 本类不是线程安全的，一个连接对应一个 ResponseDecoder。
+ */
+public class ResponseDecoder {
+
+    private static final int STATE_LINE_START = 0;  // 等待区块长度或回应结束的空行
+
+    private static final int STATE_LENGTH = 1;      // 正在读取区块长度
+
+    private static final int STATE_DATA = 2;        // 正在读取区块内容
+
+    private static final int STATE_DATA_END = 3;    // 区块内容读取完毕，等待 \n
+
+    private final Charset charset;
+
+    private Response response;
+
+    private int state = STATE_LINE_START;
+
+    private int length;
+
+    private byte[] data;
+
+    private int dataPosition;
+
+    public ResponseDecoder(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * 从 buffer 中读取内容，直到解析出一个完整的回应或者 buffer 中的内容读完为止
+     *
+     * @param buffer 收到的数据
+     *
+     * @return 解析出的回应，如果数据还不完整则返回 null
+     */
+    public Response decode(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b;
+            switch (state) {
+                case STATE_LINE_START:
+                    b = buffer.get();
+                    if (b == '\n') {
+                        if (response != null) {
+                            Response result = this.response;
+                            this.response = null;
+                            return result;
+                        }
+                    } else if (b >= '0' && b <= '9') {
+                        length = b - '0';
+                        state = STATE_LENGTH;
+                    } else if (b != '\r') {
+                        throw new SsdbException("Illegal packet: unexpected byte " + b);
+                    }
+                    break;
+
+                case STATE_LENGTH:
+                    b = buffer.get();
+                    if (b == '\n') {
+                        data = new byte[length];
+                        dataPosition = 0;
+                        state = length == 0 ? STATE_DATA_END : STATE_DATA;
+                    } else if (b >= '0' && b <= '9') {
+                        if (length > (Integer.MAX_VALUE - 9) / 10) {
+                            throw new SsdbException("Illegal packet: block too large");
+                        }
+                        length = length * 10 + (b - '0');
+                    } else if (b != '\r') {
+                        throw new SsdbException("Illegal packet: unexpected byte " + b + " in block length");
+                    }
+                    break;
+
+                case STATE_DATA:
+                    int count = Math.min(buffer.remaining(), length - dataPosition);
+                    buffer.get(data, dataPosition, count);
+                    dataPosition += count;
+                    if (dataPosition == length) {
+                        state = STATE_DATA_END;
+                    }
+                    break;
+
+                default:  // STATE_DATA_END
+                    b = buffer.get();
+                    if (b != '\n') {
+                        throw new SsdbException("Illegal packet: block not terminated by '\\n'");
+                    }
+                    addBlock(new Block(data));
+                    data = null;
+                    state = STATE_LINE_START;
+            }
+        }
+        return null;
+    }
+
+    private void addBlock(Block block) {
+        if (response == null) {
+            response = new Response(charset);
+            response.setHead(block);
+        } else {
+            response.addBodyBlock(block);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.SsdbException;
+import com.hyd.ssdb.util.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 从输入流中读取回应。先解析区块的长度，然后按长度整块读取内容：
+ * 缓存区中已有的部分直接复制到目标数组，剩余部分较大时不经过缓存区，直接从输入流读入目标数组，
+ * 这样每个区块的内容只需要复制一次（大的区块大部分都不需要经过缓存区）。
+ * <p>
+ * 缓存区中读取多余的内容会保留给下一次读取，所以可以连续读取管道方式发送的多个回应。
+ * 本类不是线程安全的，一个连接对应一个 ResponseReader。
+ * <p>
+ * 如果指定了 {@link BufferPool}，缓存区从池中申请，连接关闭时调用 {@link #release()} 归还。
+ */
+public class ResponseReader {
+
+    private final InputStream inputStream;
+
+    private final BufferPool bufferPool;    // 为 null 表示直接分配数组
+
+    private ByteBuffer pooledBuffer;
+
+    private byte[] buffer;
+
+    private int position;      // 缓存区中下一个未处理字节的位置
+
+    private int limit;         // 缓存区中有效数据的长度
+
+    private long bytesRead;    // 从输入流读取的字节总数
+
+    private final int bufferLength;     // 缓存区的可用长度
+
+    public ResponseReader(InputStream inputStream, int bufferSize) {
+        this(inputStream, bufferSize, null);
+    }
+
+    public ResponseReader(InputStream inputStream, int bufferSize, BufferPool bufferPool) {
+        if (bufferPool != null && bufferPool.isDirect()) {
+            throw new IllegalArgumentException("ResponseReader requires a heap buffer pool");
+        }
+        this.inputStream = inputStream;
+        this.bufferPool = bufferPool;
+        if (bufferPool == null) {
+            this.buffer = new byte[bufferSize];
+        } else {
+            // 池中的缓存区可能比 bufferSize 大，只使用 bufferSize 的部分，保持与不使用缓存池时相同的读取行为
+            this.pooledBuffer = bufferPool.acquire(bufferSize);
+            this.buffer = pooledBuffer.array();
+        }
+        this.bufferLength = bufferSize;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * 将缓存区归还给 BufferPool，之后不能再使用本对象。缓存区中未处理的内容会被丢弃
+     */
+    public void release() {
+        if (bufferPool != null && pooledBuffer != null) {
+            bufferPool.release(pooledBuffer);
+        }
+        pooledBuffer = null;
+        buffer = null;
+        position = 0;
+        limit = 0;
+    }
+
+    /**
+     * 读取一个完整的回应
+     *
+     * @param charset 回应的字符编码
+     *
+     * @return 回应
+     *
+     * @throws IOException   如果读取失败或者连接已关闭
+     * @throws SsdbException 如果回应的格式不正确
+     */
+    public Response readResponse(Charset charset) throws IOException {
+        Response response = new Response(charset);
+        boolean headReceived = false;
+
+        int length;
+        while ((length = readLength()) >= 0) {
+            Block block = new Block(readData(length));
+            if (!headReceived) {
+                response.setHead(block);
+                headReceived = true;
+            } else {
+                response.addBodyBlock(block);
+            }
+        }
+
+        return response;
+    }
+
+    // 读取区块长度，如果读到的是回应结束的空行则返回 -1
+    private int readLength() throws IOException {
+        int b = readByte();
+        if (b == '\n') {
+            return -1;
+        }
+
+        int length = 0;
+        while (b != '\n') {
+            if (b >= '0' && b <= '9') {
+                if (length > (Integer.MAX_VALUE - 9) / 10) {
+                    throw new SsdbException("Illegal packet: block too large");
+                }
+                length = length * 10 + (b - '0');
+            } else if (b != '\r') {
+                throw new SsdbException("Illegal packet: unexpected byte " + b + " in block length");
+            }
+            b = readByte();
+        }
+        return length;
+    }
+
+    private byte[] readData(int length) throws IOException {
+        byte[] data = new byte[length];
+
+        int offset = Math.min(limit - position, length);
+        System.arraycopy(buffer, position, data, 0, offset);
+        position += offset;
+
+        while (offset < length) {
+            int remaining = length - offset;
+            int count;
+            if (remaining >= bufferLength) {
+                // 剩余内容比缓存区大，直接读到目标数组中
+                count = inputStream.read(data, offset, remaining);
+                if (count == -1) {
+                    throw new EOFException("Connection closed by server");
+                }
+                bytesRead += count;
+            } else {
+                fill();
+                count = Math.min(limit - position, remaining);
+                System.arraycopy(buffer, position, data, offset, count);
+                position += count;
+            }
+            offset += count;
+        }
+
+        if (readByte() != '\n') {
+            throw new SsdbException("Illegal packet: block not terminated by '\\n'");
+        }
+        return data;
+    }
+
+    private int readByte() throws IOException {
+        if (position >= limit) {
+            fill();
+        }
+        return buffer[position++];
+    }
+
+    private void fill() throws IOException {
+        int count = inputStream.read(buffer, 0, bufferLength);
+        if (count == -1) {
+            throw new EOFException("Connection closed by server");
+        }
+        bytesRead += count;
+        position = 0;
+        limit = count;
+    }
+}
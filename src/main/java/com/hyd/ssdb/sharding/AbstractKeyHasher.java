@@ -0,0 +1,79 @@
+package com.hyd.ssdb.sharding;
+
+/**
+ * KeyHasher 的基类。计算字符串的哈希值时，先将字符串按照 UTF-8 编码到当前线程的缓存区中，
+ * 然后计算缓存区的哈希值，这样不需要每次都生成新的字节数组。
+ */
+public abstract class AbstractKeyHasher implements KeyHasher {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    @Override
+    public int hash(String key) {
+        int maxLength = key.length() * 3;
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < maxLength) {
+            buffer = new byte[maxLength];
+            if (maxLength <= MAX_RETAINED_BUFFER_SIZE) {
+                BUFFER.set(buffer);     // 太大的缓存区不保留
+            }
+        }
+
+        int length = encodeUtf8(key, buffer);
+        return hash(buffer, 0, length);
+    }
+
+    /**
+     * 将字符串按照 UTF-8 编码写入 dest，结果与 String.getBytes(UTF_8) 相同（不成对的代理字符编码为 '?'）
+     *
+     * @param str  字符串
+     * @param dest 目标数组，长度至少为字符串长度的 3 倍
+     *
+     * @return 写入的字节数
+     */
+    static int encodeUtf8(String str, byte[] dest) {
+        int length = str.length();
+        int position = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                dest[position++] = (byte) c;
+
+            } else if (c < 0x800) {
+                dest[position++] = (byte) (0xC0 | (c >> 6));
+                dest[position++] = (byte) (0x80 | (c & 0x3F));
+
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                    dest[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    dest[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    dest[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    dest[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    dest[position++] = '?';
+                }
+
+            } else {
+                dest[position++] = (byte) (0xE0 | (c >> 12));
+                dest[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dest[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return position;
+    }
+
+    // 按照 little-endian 读取 4 个字节
+    static int getIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+            | (data[offset + 1] & 0xFF) << 8
+            | (data[offset + 2] & 0xFF) << 16
+            | (data[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -7,19 +7,23 @@ import com.hyd.ssdb.conf.Cluster;
 import com.hyd.ssdb.conf.SPOFStrategy;
 import com.hyd.ssdb.conf.Sharding;
 import com.hyd.ssdb.util.DebugLogger;
-import com.hyd.ssdb.util.MD5;
 import com.hyd.ssdb.util.Range;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 基于一致性哈希的分片策略。这是 hydrogen-ssdb 实现的缺省分片策略。
  * ConsistentHashSharding 有一个属性叫做 {@link #spofStrategy}，用于决定当出现单点故障时如何处理。
+ * <p>
+ * 查询 key 所属的 Cluster 时使用预先生成的路由表（{@link RoutingTable}）进行二分查找，不需要加锁。
+ * 添加、删除 Cluster 或者 Cluster 的可用状态发生变化时，会重新生成路由表。
  *
  * @author Yiding
  */
@@ -32,6 +36,16 @@ public class ConsistentHashSharding extends Sharding {
      */
     private SPOFStrategy spofStrategy = SPOFStrategy.AutoExpandStrategy;
 
+    /**
+     * 计算 key 的哈希值，缺省为 {@link Md5KeyHasher}
+     */
+    private KeyHasher keyHasher = new Md5KeyHasher();
+
+    private volatile RoutingTable routingTable = new RoutingTable(Collections.<Cluster>emptyList());
+
+    // Cluster 的可用状态变化时重新生成路由表
+    private final Consumer<Cluster> clusterStateListener = cluster -> rebuildRoutingTable();
+
     public ConsistentHashSharding(Cluster cluster) {
         super(cluster);
     }
@@ -54,6 +68,23 @@ public class ConsistentHashSharding extends Sharding {
         this.spofStrategy = spofStrategy;
     }
 
+    public KeyHasher getKeyHasher() {
+        return keyHasher;
+    }
+
+    /**
+     * 设置计算 key 哈希值的方式。注意更换之后大部分 key 所属的 Cluster 都会改变，
+     * 所以只能在使用之前设置，已有数据的集群请先用 {@link KeyHasherMigration} 评估影响
+     *
+     * @param keyHasher 计算 key 哈希值的方式
+     */
+    public void setKeyHasher(KeyHasher keyHasher) {
+        if (keyHasher == null) {
+            throw new IllegalArgumentException("Argument keyHasher cannot be null");
+        }
+        this.keyHasher = keyHasher;
+    }
+
     public Map<String, Range<Integer>> getRangeMap() {
         HashMap<String, Range<Integer>> map = new HashMap<String, Range<Integer>>();
         for (Cluster cluster : clusters) {
@@ -63,7 +94,7 @@ public class ConsistentHashSharding extends Sharding {
         return map;
     }
 
-    public void removeCluster(String clusterId) {
+    public synchronized void removeCluster(String clusterId) {
 
         DebugLogger.trace("Removing cluster {}, current clusters: {}", clusterId, clusters);
 
@@ -79,15 +110,20 @@ public class ConsistentHashSharding extends Sharding {
         boolean isFirstCluster = minHash == Integer.MIN_VALUE;
 
         if (isFirstCluster) {
+            if (clusters.size() < 2) {
+                throw new SsdbClientException("Cannot remove the only cluster " + clusterId);
+            }
             Cluster secondCluster = clusters.get(1);
             secondCluster.getHashRange().setMin(minHash);
             LOG.debug("Expand cluster " + secondCluster.getId() + " left to ring start.");
+            detachCluster(cluster);
             return;
         } else {
             for (Cluster c : clusters) {
                 if (c.getHashRange().getMax() + 1 == minHash) {   // 找到上一个 cluster
                     c.getHashRange().setMax(maxHash);
-                    LOG.debug("Expand cluster " + cluster.getId() + " right to " + maxHash);
+                    LOG.debug("Expand cluster " + c.getId() + " right to " + maxHash);
+                    detachCluster(cluster);
                     return;
                 }
             }
@@ -96,6 +132,24 @@ public class ConsistentHashSharding extends Sharding {
         throw new SsdbClientException("should not be here");
     }
 
+    // 将已经被相邻 Cluster 吸收了哈希段的 Cluster 从列表中去掉
+    private void detachCluster(Cluster cluster) {
+        clusters.remove(cluster);
+        cluster.removeStateListener(clusterStateListener);
+
+        // 被去掉的 Cluster 可能接管了其他失效 Cluster 的哈希段
+        for (Cluster c : clusters) {
+            if (c.getTakenOverBy() == cluster) {
+                c.setTakenOverBy(null);
+                if (c.isInvalid()) {
+                    autoExpand(c);
+                }
+            }
+        }
+
+        rebuildRoutingTable();
+    }
+
     /**
      * 添加一个 Cluster
      *
@@ -129,6 +183,9 @@ public class ConsistentHashSharding extends Sharding {
 
         // newCluster 和 prevCluster 的哈希段分配仍然依据各自的 weight 权重
         splitRangeToRight(newCluster, prevCluster);
+
+        newCluster.addStateListener(clusterStateListener);
+        rebuildRoutingTable();
     }
 
     // 将 toSplitCluster 的右边部分划分给 newCluster
@@ -153,8 +210,13 @@ public class ConsistentHashSharding extends Sharding {
             setClusterIdsIfDefault();
         }
 
+        for (Cluster cluster : clusters) {
+            cluster.addStateListener(clusterStateListener);
+        }
+
         if (clusters.size() == 1) {
             setClusterRange(clusters.get(0), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            rebuildRoutingTable();
             return;
         }
 
@@ -192,6 +254,16 @@ public class ConsistentHashSharding extends Sharding {
                 setClusterRange(cluster, min, max);
             }
         }
+
+        rebuildRoutingTable();
+    }
+
+    /**
+     * 根据当前的 Cluster 列表和状态重新生成路由表。生成新表后直接替换旧表，
+     * 正在使用旧表查询的线程不受影响。
+     */
+    private synchronized void rebuildRoutingTable() {
+        this.routingTable = new RoutingTable(clusters);
     }
 
     private void setClusterIdsIfDefault() {
@@ -220,6 +292,7 @@ public class ConsistentHashSharding extends Sharding {
         if (this.spofStrategy == SPOFStrategy.AutoExpandStrategy) {
             invalidCluster.setInvalid(true);
             autoExpand(invalidCluster);
+            rebuildRoutingTable();
             return true;
         } else {
             // 保留 key 空间，直到 Cluster 恢复上线
@@ -292,22 +365,29 @@ public class ConsistentHashSharding extends Sharding {
 
     @Override
     public Cluster getClusterByKey(String key) {
-
-        if (noClusterAvailable()) {
-            throw new SsdbNoClusterAvailableException();
-        }
-
-        int hash = MD5.md5Hash(key);
-
-        for (Cluster cluster : clusters) {
-            Cluster hostingCluster = cluster.getHashHostingCluster(hash);
-            if (hostingCluster != null) {
-                return hostingCluster;
-            }
+        Cluster hostingCluster = getClusterByHash(keyHasher.hash(key));
+        if (hostingCluster != null) {
+            return hostingCluster;
         }
 
         // 理论上 clusters 列表一定会包含 Integer 的所有值，
         // 所以执行到这里表示所有的 Cluster 都不可用
         throw new SsdbException("Unable to choose a cluster for key '" + key + "'");
     }
+
+    /**
+     * 根据哈希值获取所对应的 Cluster
+     *
+     * @param hash 哈希值
+     *
+     * @return 对应的 Cluster，如果没有哈希段包含该值则返回 null
+     */
+    public Cluster getClusterByHash(int hash) {
+        RoutingTable routingTable = this.routingTable;
+        if (!routingTable.isAvailable()) {
+            throw new SsdbNoClusterAvailableException();
+        }
+
+        return routingTable.lookup(hash);
+    }
 }
@@ -0,0 +1,33 @@
+package com.hyd.ssdb.sharding;
+
+/**
+ * 计算 key 的哈希值，{@link ConsistentHashSharding} 根据哈希值决定 key 所属的 Cluster。
+ * <p>
+ * 缺省实现为 {@link Md5KeyHasher}，与以前版本的分片结果一致。{@link Murmur3KeyHasher} 和
+ * {@link XxHashKeyHasher} 计算速度更快，但是换用之后大部分 key 所属的 Cluster 都会改变，
+ * 所以只适合新部署的集群，或者在迁移数据之后使用。可以用 {@link KeyHasherMigration} 评估影响的范围。
+ * <p>
+ * 实现类必须是线程安全的。
+ */
+public interface KeyHasher {
+
+    /**
+     * 计算 key 的哈希值，key 按照 UTF-8 编码
+     *
+     * @param key 键
+     *
+     * @return 哈希值
+     */
+    int hash(String key);
+
+    /**
+     * 计算字节数组中指定部分的哈希值
+     *
+     * @param data   数据
+     * @param offset 开始位置
+     * @param length 长度
+     *
+     * @return 哈希值
+     */
+    int hash(byte[] data, int offset, int length);
+}
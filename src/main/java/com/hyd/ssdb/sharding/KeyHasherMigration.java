@@ -0,0 +1,141 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 评估更换 {@link KeyHasher} 的影响：对于给定的 key，统计有多少会被分配到不同的 Cluster，
+ * 以及在各个 Cluster 之间如何移动。本工具只计算哈希值，不会连接服务器。
+ * <p>
+ * 命令行用法：
+ * <pre>
+ * java com.hyd.ssdb.sharding.KeyHasherMigration &lt;keys-file&gt; &lt;md5|murmur3|xxhash&gt; &lt;host:port[:weight]&gt;...
+ * </pre>
+ * keys-file 为 UTF-8 编码的文本文件，每行一个 key；服务器按照在集群中的顺序列出，每台服务器为一个 Cluster。
+ */
+public class KeyHasherMigration {
+
+    private final ConsistentHashSharding sharding;
+
+    private final KeyHasher targetHasher;
+
+    // 原 Cluster -> 新 Cluster -> 移动的 key 数量
+    private final Map<String, Map<String, Long>> moves = new TreeMap<>();
+
+    private long totalKeys;
+
+    private long movedKeys;
+
+    /**
+     * 构造方法
+     *
+     * @param sharding     当前的分片策略，已经调用过 initClusters()，使用其中的 KeyHasher 作为原来的哈希方式
+     * @param targetHasher 要更换的哈希方式
+     */
+    public KeyHasherMigration(ConsistentHashSharding sharding, KeyHasher targetHasher) {
+        this.sharding = sharding;
+        this.targetHasher = targetHasher;
+    }
+
+    public void add(String key) {
+        Cluster source = sharding.getClusterByKey(key);
+        Cluster target = sharding.getClusterByHash(targetHasher.hash(key));
+
+        totalKeys++;
+        if (source != target) {
+            movedKeys++;
+            moves.computeIfAbsent(source.getId(), id -> new TreeMap<>())
+                .merge(target.getId(), 1L, Long::sum);
+        }
+    }
+
+    public void addAll(Iterable<String> keys) {
+        for (String key : keys) {
+            add(key);
+        }
+    }
+
+    public long getTotalKeys() {
+        return totalKeys;
+    }
+
+    public long getMovedKeys() {
+        return movedKeys;
+    }
+
+    public double getMovedRatio() {
+        return totalKeys == 0 ? 0 : (double) movedKeys / totalKeys;
+    }
+
+    public Map<String, Map<String, Long>> getMoves() {
+        return moves;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s -> %s: %d of %d keys move (%.2f%%)%n",
+            sharding.getKeyHasher().getClass().getSimpleName(), targetHasher.getClass().getSimpleName(),
+            movedKeys, totalKeys, getMovedRatio() * 100));
+
+        for (Map.Entry<String, Map<String, Long>> entry : moves.entrySet()) {
+            for (Map.Entry<String, Long> target : entry.getValue().entrySet()) {
+                sb.append(String.format("  %s -> %s: %d%n", entry.getKey(), target.getKey(), target.getValue()));
+            }
+        }
+        return sb.toString();
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: KeyHasherMigration <keys-file> <md5|murmur3|xxhash> <host:port[:weight]>...");
+            System.exit(1);
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            String[] parts = args[i].split(":");
+            int weight = parts.length > 2 ? Integer.parseInt(parts[2]) : Cluster.DEFAULT_WEIGHT;
+            clusters.add(new Cluster(new Server(parts[0], Integer.parseInt(parts[1])), weight));
+        }
+
+        ConsistentHashSharding sharding = new ConsistentHashSharding(clusters);
+        sharding.initClusters();
+
+        KeyHasherMigration migration = new KeyHasherMigration(sharding, parseHasher(args[1]));
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    migration.add(line);
+                }
+            }
+        }
+
+        System.out.print(migration.report());
+    }
+
+    private static KeyHasher parseHasher(String name) {
+        switch (name.toLowerCase()) {
+            case "md5":
+                return new Md5KeyHasher();
+            case "murmur3":
+                return new Murmur3KeyHasher();
+            case "xxhash":
+                return new XxHashKeyHasher();
+            default:
+                throw new IllegalArgumentException("Unknown key hasher: " + name);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.util.MD5;
+
+/**
+ * 取 MD5 摘要的前 4 个字节作为哈希值。这是缺省的实现，与以前版本的 {@link MD5#md5Hash(String)} 结果相同。
+ */
+public class Md5KeyHasher extends AbstractKeyHasher {
+
+    @Override
+    public int hash(byte[] data, int offset, int length) {
+        return MD5.md5Hash(data, offset, length);
+    }
+}
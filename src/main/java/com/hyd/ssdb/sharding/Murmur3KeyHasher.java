@@ -0,0 +1,54 @@
+package com.hyd.ssdb.sharding;
+
+/**
+ * MurmurHash3 的 32 位版本（x86_32），种子为 0
+ */
+public class Murmur3KeyHasher extends AbstractKeyHasher {
+
+    private static final int C1 = 0xcc9e2d51;
+
+    private static final int C2 = 0x1b873593;
+
+    @Override
+    @SuppressWarnings("fallthrough")
+    public int hash(byte[] data, int offset, int length) {
+        int h1 = 0;
+        int end = offset + (length & ~3);
+
+        for (int i = offset; i < end; i += 4) {
+            h1 ^= mixK1(getIntLE(data, i));
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+
+        // 剩余不足 4 个字节的部分
+        int k1 = 0;
+        switch (length & 3) {
+            case 3:
+                k1 ^= (data[end + 2] & 0xFF) << 16;
+                // fall through
+            case 2:
+                k1 ^= (data[end + 1] & 0xFF) << 8;
+                // fall through
+            case 1:
+                k1 ^= data[end] & 0xFF;
+                h1 ^= mixK1(k1);
+                break;
+            default:
+        }
+
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * C2;
+    }
+}
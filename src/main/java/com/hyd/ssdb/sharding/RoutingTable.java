@@ -0,0 +1,69 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.conf.Cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 哈希环的路由表，创建之后不再修改。拓扑结构变化时由 {@link ConsistentHashSharding}
+ * 重新生成一个新的路由表替换旧的，所以查询时不需要加锁。
+ * <p>
+ * 各个 Cluster 的哈希段按顺序排列，{@link #bounds} 为每个哈希段的最大值，
+ * {@link #targets} 为每个哈希段实际对应的 Cluster（已经考虑了 Cluster 失效后被其他 Cluster 接管的情况）。
+ */
+class RoutingTable {
+
+    private final int[] bounds;
+
+    private final Cluster[] targets;
+
+    private final boolean available;     // 是否还有可用的 Cluster
+
+    RoutingTable(List<Cluster> clusters) {
+        List<Cluster> sorted = new ArrayList<>(clusters);
+        sorted.sort(Comparator.comparing(cluster -> cluster.getHashRange().getMin()));
+
+        this.bounds = new int[sorted.size()];
+        this.targets = new Cluster[sorted.size()];
+
+        boolean available = false;
+        for (int i = 0; i < sorted.size(); i++) {
+            Cluster cluster = sorted.get(i);
+            this.bounds[i] = cluster.getHashRange().getMax();
+            this.targets[i] = hostingCluster(cluster, sorted.size());
+            available |= !cluster.isInvalid();
+        }
+        this.available = available;
+    }
+
+    // 沿着接管关系找到实际负责的 Cluster。如果失效的 Cluster 尚未被接管，则仍然返回它自己
+    private static Cluster hostingCluster(Cluster cluster, int maxDepth) {
+        Cluster result = cluster;
+        for (int i = 0; i < maxDepth && result.isInvalid() && result.getTakenOverBy() != null; i++) {
+            result = result.getTakenOverBy();
+        }
+        return result;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 查找哈希值对应的 Cluster
+     *
+     * @param hash 哈希值
+     *
+     * @return 对应的 Cluster，如果没有哈希段包含该值则返回 null
+     */
+    Cluster lookup(int hash) {
+        int index = Arrays.binarySearch(bounds, hash);
+        if (index < 0) {
+            index = -index - 1;     // 第一个大于 hash 的最大值
+        }
+        return index < targets.length ? targets[index] : null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.conf.Cluster;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 虚拟节点构成的哈希环，创建之后不再修改。拓扑结构或 Cluster 状态变化时由
+ * {@link VirtualNodeSharding} 重新生成一个新的哈希环替换旧的，所以查询时不需要加锁。
+ * <p>
+ * {@link #positions} 为排好序的虚拟节点位置，{@link #targets} 为每个虚拟节点实际对应的 Cluster：
+ * 如果虚拟节点所属的 Cluster 不可用，则对应到顺时针方向下一个可用的虚拟节点所属的 Cluster。
+ * 因为不可用 Cluster 的虚拟节点分散在环上各处，所以它的 key 会分散到其他各个 Cluster。
+ */
+class VirtualNodeRing {
+
+    private final int[] positions;
+
+    private final Cluster[] targets;
+
+    private final boolean available;     // 是否还有可用的 Cluster
+
+    /**
+     * 构造方法
+     *
+     * @param clusters    Cluster 列表
+     * @param nodeCounts  每个 Cluster 的虚拟节点数
+     * @param keyHasher   计算虚拟节点位置的方式
+     */
+    VirtualNodeRing(List<Cluster> clusters, int[] nodeCounts, KeyHasher keyHasher) {
+        int total = 0;
+        for (int nodeCount : nodeCounts) {
+            total += nodeCount;
+        }
+
+        // 高 32 位为位置，低 32 位为 Cluster 序号，排序后位置相同的按 Cluster 序号排列
+        long[] nodes = new long[total];
+        int n = 0;
+        for (int i = 0; i < clusters.size(); i++) {
+            String id = clusters.get(i).getId();
+            for (int j = 0; j < nodeCounts[i]; j++) {
+                nodes[n++] = (long) keyHasher.hash(id + "#" + j) << 32 | i;
+            }
+        }
+        Arrays.sort(nodes);
+
+        this.positions = new int[total];
+        Cluster[] owners = new Cluster[total];
+        for (int i = 0; i < total; i++) {
+            this.positions[i] = (int) (nodes[i] >> 32);
+            owners[i] = clusters.get((int) nodes[i]);
+        }
+
+        // 从后向前找每个虚拟节点之后第一个可用的 Cluster。
+        // 环是首尾相接的，所以走两遍：第一遍只是为了让最后几个节点能找到环开头的可用 Cluster
+        this.targets = new Cluster[total];
+        Cluster next = null;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = total - 1; i >= 0; i--) {
+                if (!owners[i].isInvalid()) {
+                    next = owners[i];
+                }
+                if (pass == 1) {
+                    this.targets[i] = next;
+                }
+            }
+        }
+        this.available = next != null;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    int size() {
+        return positions.length;
+    }
+
+    /**
+     * 查找哈希值对应的 Cluster，即顺时针方向第一个虚拟节点对应的 Cluster
+     *
+     * @param hash 哈希值
+     *
+     * @return 对应的 Cluster，如果没有可用的 Cluster 则返回 null
+     */
+    Cluster lookup(int hash) {
+        if (positions.length == 0) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(positions, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return targets[index == positions.length ? 0 : index];
+    }
+}
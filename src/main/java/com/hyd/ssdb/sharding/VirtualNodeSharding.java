@@ -0,0 +1,206 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.SsdbClientException;
+import com.hyd.ssdb.SsdbException;
+import com.hyd.ssdb.SsdbNoClusterAvailableException;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.SPOFStrategy;
+import com.hyd.ssdb.conf.Sharding;
+import com.hyd.ssdb.util.DebugLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 基于虚拟节点的一致性哈希分片策略。每个 Cluster 按照权重在哈希环上拥有多个虚拟节点，
+ * key 属于顺时针方向第一个虚拟节点所在的 Cluster。
+ * <p>
+ * 与 {@link ConsistentHashSharding} 把整个哈希段交给相邻的一个 Cluster 不同，
+ * 一个 Cluster 下线时，它的各个虚拟节点分别由环上的下一个节点接管，所以负载会大致平均地分散到其他所有 Cluster；
+ * 添加一个 Cluster 时，也是从每个现有 Cluster 各分走一小部分 key。
+ * <p>
+ * 虚拟节点的位置由 Cluster 的 id 计算得出，所以 Cluster 的 id 和添加的顺序无关，
+ * 但是修改 Cluster 的 id 会改变 key 的分布。
+ */
+public class VirtualNodeSharding extends Sharding {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualNodeSharding.class);
+
+    /**
+     * 权重为 {@link Cluster#DEFAULT_WEIGHT} 的 Cluster 缺省拥有的虚拟节点数
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * 单点故障处理策略，参考 {@link SPOFStrategy}
+     */
+    private SPOFStrategy spofStrategy = SPOFStrategy.AutoExpandStrategy;
+
+    private KeyHasher keyHasher = new Md5KeyHasher();
+
+    private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+
+    private volatile VirtualNodeRing ring = new VirtualNodeRing(Collections.<Cluster>emptyList(), new int[0], keyHasher);
+
+    // Cluster 的可用状态变化时重新生成哈希环
+    private final Consumer<Cluster> clusterStateListener = cluster -> rebuildRing();
+
+    public VirtualNodeSharding(Cluster cluster) {
+        super(cluster);
+    }
+
+    public VirtualNodeSharding(List<Cluster> clusters) {
+        super(clusters);
+    }
+
+    public VirtualNodeSharding(Cluster... clusters) {
+        super(Arrays.asList(clusters));
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    public SPOFStrategy getSpofStrategy() {
+        return spofStrategy;
+    }
+
+    public void setSpofStrategy(SPOFStrategy spofStrategy) {
+        this.spofStrategy = spofStrategy;
+    }
+
+    public KeyHasher getKeyHasher() {
+        return keyHasher;
+    }
+
+    /**
+     * 设置计算 key 和虚拟节点哈希值的方式，需要在 {@link #initClusters()} 之前设置
+     *
+     * @param keyHasher 计算哈希值的方式
+     */
+    public void setKeyHasher(KeyHasher keyHasher) {
+        if (keyHasher == null) {
+            throw new IllegalArgumentException("Argument keyHasher cannot be null");
+        }
+        this.keyHasher = keyHasher;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * 设置权重为 {@link Cluster#DEFAULT_WEIGHT} 的 Cluster 拥有的虚拟节点数，其他 Cluster 按照权重的比例计算。
+     * 虚拟节点越多，key 的分布越均匀，但是哈希环占用的内存越多。需要在 {@link #initClusters()} 之前设置
+     *
+     * @param virtualNodes 虚拟节点数
+     */
+    public void setVirtualNodes(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Argument virtualNodes must be positive");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    @Override
+    public synchronized void initClusters() {
+        for (Cluster cluster : clusters) {
+            cluster.addStateListener(clusterStateListener);
+        }
+        rebuildRing();
+    }
+
+    /**
+     * 添加一个 Cluster，它会从现有的每个 Cluster 分走一部分 key
+     *
+     * @param newCluster 要加入的 Cluster
+     */
+    public synchronized void addCluster(Cluster newCluster) {
+
+        DebugLogger.trace("Adding cluster {}, current clusters: {}", newCluster, clusters);
+
+        if (clusters.contains(newCluster)) {
+            return;
+        }
+
+        if (getClusterById(newCluster.getId()) != null) {
+            throw new IllegalArgumentException("Cluster " + newCluster.getId() + " already exists");
+        }
+
+        clusters.add(newCluster);
+        newCluster.addStateListener(clusterStateListener);
+        rebuildRing();
+    }
+
+    /**
+     * 删除一个 Cluster，它的 key 会分散到其他 Cluster
+     *
+     * @param clusterId 要删除的 Cluster 的 id
+     */
+    public synchronized void removeCluster(String clusterId) {
+
+        DebugLogger.trace("Removing cluster {}, current clusters: {}", clusterId, clusters);
+
+        Cluster cluster = getClusterById(clusterId);
+        if (cluster == null) {
+            throw new SsdbNoClusterAvailableException("Cluster " + clusterId + " not found.");
+        }
+
+        if (clusters.size() < 2) {
+            throw new SsdbClientException("Cannot remove the only cluster " + clusterId);
+        }
+
+        clusters.remove(cluster);
+        cluster.removeStateListener(clusterStateListener);
+        rebuildRing();
+    }
+
+    @Override
+    public synchronized boolean clusterFailed(Cluster invalidCluster) {
+
+        DebugLogger.trace("Cluster {} reporting failure, current clusters: {}", invalidCluster, clusters);
+
+        if (invalidCluster == null) {
+            return true;
+        }
+
+        if (this.spofStrategy == SPOFStrategy.AutoExpandStrategy) {
+            // 状态变化会触发重新生成哈希环，该 Cluster 的虚拟节点由各自的下一个节点接管
+            invalidCluster.setInvalid(true);
+            LOG.debug("Cluster " + invalidCluster.getId() + " failed, its virtual nodes are taken over by neighbours");
+            return true;
+        } else {
+            // 保留 key 空间，直到 Cluster 恢复上线
+            // 在此之前，对该 Cluster 的读写都将失败
+            return false;
+        }
+    }
+
+    @Override
+    public Cluster getClusterByKey(String key) {
+        VirtualNodeRing ring = this.ring;
+        if (!ring.isAvailable()) {
+            throw new SsdbNoClusterAvailableException();
+        }
+
+        Cluster cluster = ring.lookup(keyHasher.hash(key));
+        if (cluster == null) {
+            throw new SsdbException("Unable to choose a cluster for key '" + key + "'");
+        }
+        return cluster;
+    }
+
+    // 根据当前的 Cluster 列表和状态重新生成哈希环，生成新的之后直接替换旧的
+    private synchronized void rebuildRing() {
+        int[] nodeCounts = new int[clusters.size()];
+        for (int i = 0; i < clusters.size(); i++) {
+            long count = (long) virtualNodes * clusters.get(i).getWeight() / Cluster.DEFAULT_WEIGHT;
+            nodeCounts[i] = (int) Math.max(1, count);
+        }
+        this.ring = new VirtualNodeRing(clusters, nodeCounts, keyHasher);
+    }
+}
@@ -0,0 +1,72 @@
+package com.hyd.ssdb.sharding;
+
+/**
+ * xxHash 的 32 位版本（XXH32），种子为 0
+ */
+public class XxHashKeyHasher extends AbstractKeyHasher {
+
+    private static final int PRIME1 = 0x9E3779B1;
+
+    private static final int PRIME2 = 0x85EBCA77;
+
+    private static final int PRIME3 = 0xC2B2AE3D;
+
+    private static final int PRIME4 = 0x27D4EB2F;
+
+    private static final int PRIME5 = 0x165667B1;
+
+    @Override
+    public int hash(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int position = offset;
+        int h;
+
+        if (length >= 16) {
+            int v1 = PRIME1 + PRIME2;
+            int v2 = PRIME2;
+            int v3 = 0;
+            int v4 = -PRIME1;
+
+            int limit = end - 16;
+            do {
+                v1 = round(v1, getIntLE(data, position));
+                v2 = round(v2, getIntLE(data, position + 4));
+                v3 = round(v3, getIntLE(data, position + 8));
+                v4 = round(v4, getIntLE(data, position + 12));
+                position += 16;
+            } while (position <= limit);
+
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7)
+                + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = PRIME5;
+        }
+
+        h += length;
+
+        while (position + 4 <= end) {
+            h += getIntLE(data, position) * PRIME3;
+            h = Integer.rotateLeft(h, 17) * PRIME4;
+            position += 4;
+        }
+
+        while (position < end) {
+            h += (data[position] & 0xFF) * PRIME5;
+            h = Integer.rotateLeft(h, 11) * PRIME1;
+            position++;
+        }
+
+        h ^= h >>> 15;
+        h *= PRIME2;
+        h ^= h >>> 13;
+        h *= PRIME3;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int round(int acc, int input) {
+        acc += input * PRIME2;
+        acc = Integer.rotateLeft(acc, 13);
+        return acc * PRIME1;
+    }
+}
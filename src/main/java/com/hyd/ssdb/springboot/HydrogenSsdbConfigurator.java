@@ -35,10 +35,12 @@ public class HydrogenSsdbConfigurator {
         Server server = new Server();
         server.setPoolConfig(serverConf.getPool());
         server.setSocketConfig(serverConf.getSocket());
+        server.setValidationConfig(serverConf.getValidation());
         server.setMaster(serverConf.isMaster());
         server.setHost(serverConf.getHost());
         server.setPort(serverConf.getPort());
         server.setPass(serverConf.getPass());
+        server.setWeight(serverConf.getWeight());
         return server;
     }
 }
@@ -3,6 +3,7 @@ package com.hyd.ssdb.springboot;
 import com.hyd.ssdb.conf.ConnectionPoolConfig;
 import com.hyd.ssdb.conf.Server;
 import com.hyd.ssdb.conf.SocketConfig;
+import com.hyd.ssdb.conf.ValidationConfig;
 import lombok.Data;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
@@ -17,10 +18,15 @@ public class ServerConf {
 
     private String pass;
 
+    private int weight = Server.DEFAULT_WEIGHT;
+
     @NestedConfigurationProperty
     private ConnectionPoolConfig pool = Server.createDefaultPoolConfig();     // 连接池配置参数
 
     @NestedConfigurationProperty
     private SocketConfig socket = new SocketConfig();     // 网络配置参数
 
+    @NestedConfigurationProperty
+    private ValidationConfig validation = new ValidationConfig();     // 连接检查配置
+
 }
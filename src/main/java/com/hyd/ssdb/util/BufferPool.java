@@ -0,0 +1,156 @@
+package com.hyd.ssdb.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按大小分级的 ByteBuffer 池。容量从 {@link #MIN_CAPACITY} 到 {@link #MAX_CAPACITY}，
+ * 每级是上一级的两倍，申请时取不小于所需容量的最小一级。每级最多保留 maxBuffersPerClass 个空闲的 ByteBuffer，
+ * 并且每级保留的总容量不超过 {@link #MAX_RETAINED_BYTES_PER_CLASS}，多余的归还会被丢弃，交给 GC 回收。超过最大一级的申请每次都分配新的堆内 ByteBuffer，归还时直接丢弃。
+ * <p>
+ * 归还之后不能再使用该 ByteBuffer，同一个 ByteBuffer 也不能归还两次，否则会被两个使用者同时持有。
+ * 本类是线程安全的。
+ */
+public class BufferPool {
+
+    public static final int MIN_CAPACITY = 1024;
+
+    public static final int MAX_CAPACITY = 1024 * 1024;
+
+    public static final int DEFAULT_MAX_BUFFERS_PER_CLASS = 256;
+
+    public static final int MAX_RETAINED_BYTES_PER_CLASS = 4 * 1024 * 1024;
+
+    private static final BufferPool HEAP_POOL = new BufferPool(false, DEFAULT_MAX_BUFFERS_PER_CLASS);
+
+    private static final BufferPool DIRECT_POOL = new BufferPool(true, DEFAULT_MAX_BUFFERS_PER_CLASS);
+
+    private final boolean direct;
+
+    private final List<ArrayBlockingQueue<ByteBuffer>> classes;
+
+    private final AtomicLong allocatedCount = new AtomicLong();
+
+    private final AtomicLong reusedCount = new AtomicLong();
+
+    /**
+     * 构造方法
+     *
+     * @param direct             是否分配堆外内存
+     * @param maxBuffersPerClass 每级最多保留的空闲 ByteBuffer 个数
+     */
+    public BufferPool(boolean direct, int maxBuffersPerClass) {
+        if (maxBuffersPerClass <= 0) {
+            throw new IllegalArgumentException("maxBuffersPerClass must be positive");
+        }
+
+        this.direct = direct;
+        int classCount = sizeClass(MAX_CAPACITY) + 1;
+        this.classes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            int retained = Math.max(1, MAX_RETAINED_BYTES_PER_CLASS / (MIN_CAPACITY << i));
+            classes.add(new ArrayBlockingQueue<>(Math.min(maxBuffersPerClass, retained)));
+        }
+    }
+
+    /**
+     * 共享的堆内缓存池，用于阻塞方式的连接（需要通过 {@link ByteBuffer#array()} 读写）
+     *
+     * @return 堆内缓存池
+     */
+    public static BufferPool getHeapPool() {
+        return HEAP_POOL;
+    }
+
+    /**
+     * 共享的堆外缓存池，用于非阻塞连接写入 SocketChannel，可以省去一次复制
+     *
+     * @return 堆外缓存池
+     */
+    public static BufferPool getDirectPool() {
+        return DIRECT_POOL;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 申请一个 ByteBuffer。返回的 ByteBuffer 位置为 0，limit 等于容量，内容是未定义的
+     *
+     * @param capacity 最小容量
+     *
+     * @return 容量不小于 capacity 的 ByteBuffer
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocate(capacity);
+        }
+
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = classes.get(sizeClass).poll();
+        if (buffer != null) {
+            reusedCount.incrementAndGet();
+            buffer.clear();
+            return buffer;
+        }
+
+        allocatedCount.incrementAndGet();
+        int classCapacity = MIN_CAPACITY << sizeClass;
+        return direct ? ByteBuffer.allocateDirect(classCapacity) : ByteBuffer.allocate(classCapacity);
+    }
+
+    /**
+     * 归还一个 ByteBuffer。容量不符合分级或者类型（堆内、堆外）不同的 ByteBuffer 会被忽略
+     *
+     * @param buffer 要归还的 ByteBuffer，可以为 null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != direct || buffer.isReadOnly()) {
+            return;
+        }
+
+        int capacity = buffer.capacity();
+        if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        classes.get(sizeClass(capacity)).offer(buffer);
+    }
+
+    /**
+     * @return 新分配的 ByteBuffer 个数
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    /**
+     * @return 从池中取出重复使用的次数
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * @return 池中空闲的 ByteBuffer 个数
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (ArrayBlockingQueue<ByteBuffer> queue : classes) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    // 容量所属的级别，0 表示 MIN_CAPACITY
+    private static int sizeClass(int capacity) {
+        if (capacity <= MIN_CAPACITY) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+}
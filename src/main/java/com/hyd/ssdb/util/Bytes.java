@@ -52,6 +52,25 @@ public class Bytes {
         return result;
     }
 
+    /**
+     * 按照无符号字节的字典顺序比较两个字节串，与 SSDB 中 key 的排序方式一致
+     *
+     * @param a 要比较的字节串
+     * @param b 要比较的字节串
+     *
+     * @return 如果 a 排在 b 之前则返回负数，相等则返回 0，否则返回正数
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
     /**
      * 字节串生成16进制字符串（最笨但最快的办法）
      *
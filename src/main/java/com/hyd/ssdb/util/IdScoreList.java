@@ -0,0 +1,258 @@
+package com.hyd.ssdb.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 紧凑存储的 id - score 列表，用于 zrange、zscan 等可能返回大量成员的命令。
+ * 所有 id 按 UTF-8 编码连续存放在一个字节数组中，score 存放在一个 long 数组中，
+ * 每个成员只占用 id 的字节数加上 12 个字节，而 {@code List<IdScore>} 中每个成员还需要一个 IdScore 对象和一个 String 对象。
+ * <p>
+ * 按下标遍历并读取 score（{@link #getScore(int)}）不会创建任何对象，比较 id 时直接比较字节，不需要解码；
+ * {@link #getId(int)} 每次都会解码生成新的 String。本类是不可变的。
+ */
+public class IdScoreList implements Iterable<IdScore> {
+
+    private static final IdScoreList EMPTY = new IdScoreList(new byte[0], new int[]{0}, new long[0], 0);
+
+    private final byte[] ids;
+
+    private final int[] offsets;    // 第 i 个 id 在 ids 中的范围是 [offsets[i], offsets[i + 1])
+
+    private final long[] scores;
+
+    private final int size;
+
+    private IdScoreList(byte[] ids, int[] offsets, long[] scores, int size) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    public static IdScoreList empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getScore(int index) {
+        checkIndex(index);
+        return scores[index];
+    }
+
+    public String getId(int index) {
+        checkIndex(index);
+        return new String(ids, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    public byte[] getIdBytes(int index) {
+        checkIndex(index);
+        byte[] bytes = new byte[offsets[index + 1] - offsets[index]];
+        System.arraycopy(ids, offsets[index], bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * 返回第 index 个 id 的只读视图，不复制内容
+     *
+     * @param index 下标
+     *
+     * @return 只读的 ByteBuffer，position 到 limit 为 id 的内容
+     */
+    public ByteBuffer getIdBuffer(int index) {
+        checkIndex(index);
+        return ByteBuffer.wrap(ids, offsets[index], offsets[index + 1] - offsets[index]).asReadOnlyBuffer();
+    }
+
+    /**
+     * 判断第 index 个 id 是否等于 id，不需要解码
+     *
+     * @param index 下标
+     * @param id    要比较的 id
+     *
+     * @return 是否相等
+     */
+    public boolean idEquals(int index, String id) {
+        checkIndex(index);
+        return idEquals(index, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean idEquals(int index, byte[] bytes) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (ids[start + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查找 id 所在的下标
+     *
+     * @param id 要查找的 id
+     *
+     * @return 下标，找不到时返回 -1
+     */
+    public int indexOf(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            if (idEquals(i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public IdScore get(int index) {
+        return new IdScore(getId(index), getScore(index));
+    }
+
+    /**
+     * @return 包含所有成员的 {@code List<IdScore>}，与 zrange 等方法的返回值相同
+     */
+    public List<IdScore> toList() {
+        List<IdScore> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    /**
+     * @return 只读的 {@code List<IdScore>} 视图，每次访问元素时生成新的 IdScore
+     */
+    public List<IdScore> asList() {
+        return new AbstractList<IdScore>() {
+            @Override
+            public IdScore get(int index) {
+                return IdScoreList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 遍历所有成员，每个成员生成一个新的 IdScore。如果只需要 score 或者需要避免创建对象，请按下标访问
+     */
+    @Override
+    public Iterator<IdScore> iterator() {
+        return new Iterator<IdScore>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public IdScore next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("IdScoreList{size=").append(size).append(", [");
+        for (int i = 0; i < Math.min(size, 10); i++) {
+            sb.append(i == 0 ? "" : ", ").append(getId(i)).append('=').append(scores[i]);
+        }
+        return sb.append(size > 10 ? ", ...]}" : "]}").toString();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    /**
+     * 逐个添加成员来构建 IdScoreList
+     */
+    public static class Builder {
+
+        private byte[] ids;
+
+        private int[] offsets;
+
+        private long[] scores;
+
+        private int size;
+
+        public Builder(int expectedSize, int expectedIdBytes) {
+            this.ids = new byte[Math.max(16, expectedIdBytes)];
+            this.offsets = new int[Math.max(1, expectedSize) + 1];
+            this.scores = new long[Math.max(1, expectedSize)];
+        }
+
+        public Builder add(byte[] id, long score) {
+            return add(id, 0, id.length, score);
+        }
+
+        public Builder add(String id, long score) {
+            return add(id.getBytes(StandardCharsets.UTF_8), score);
+        }
+
+        public Builder add(byte[] id, int offset, int length, long score) {
+            if (size == scores.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+
+            int start = offsets[size];
+            if (start + length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(start + length, ids.length * 2));
+            }
+
+            System.arraycopy(id, offset, ids, start, length);
+            scores[size] = score;
+            offsets[size + 1] = start + length;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return 构建好的 IdScoreList，多余的空间会被去掉。之后不能再使用本 Builder
+         */
+        public IdScoreList build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            int idLength = offsets[size];
+            return new IdScoreList(
+                idLength == ids.length ? ids : Arrays.copyOf(ids, idLength),
+                offsets.length == size + 1 ? offsets : Arrays.copyOf(offsets, size + 1),
+                scores.length == size ? scores : Arrays.copyOf(scores, size),
+                size
+            );
+        }
+    }
+}
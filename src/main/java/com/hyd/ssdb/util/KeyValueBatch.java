@@ -0,0 +1,351 @@
+package com.hyd.ssdb.util;
+
+import com.hyd.ssdb.AbstractClient;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 紧凑存储的键值对列表，用于 scan、hgetall、multi_get 等可能返回大量键值对的命令。
+ * 所有的 key 和 value 依次连续存放在一个字节数组中，另用一个 int 数组记录每段内容的起始位置，
+ * 而 {@code List<KeyValue>} 中每个键值对需要一个 KeyValue 对象和两个字节数组。
+ * <p>
+ * {@link #getKeyBuffer(int)} 和 {@link #getValueBuffer(int)} 返回只读视图，不复制内容；
+ * {@link #getKey(int)} 和 {@link #getValue(int)} 每次都按 charset 解码生成新的 String，不会缓存，也不会 intern。
+ * 本类是不可变的。
+ */
+public class KeyValueBatch implements Iterable<KeyValue> {
+
+    private static final KeyValueBatch EMPTY =
+        new KeyValueBatch(new byte[0], new int[]{0}, 0, AbstractClient.DEFAULT_CHARSET);
+
+    private final byte[] data;
+
+    private final int[] offsets;    // 第 i 个 key 的范围是 [offsets[2i], offsets[2i + 1])，value 的范围是 [offsets[2i + 1], offsets[2i + 2])
+
+    private final int size;
+
+    private final Charset charset;
+
+    private KeyValueBatch(byte[] data, int[] offsets, int size, Charset charset) {
+        this.data = data;
+        this.offsets = offsets;
+        this.size = size;
+        this.charset = charset;
+    }
+
+    public static KeyValueBatch empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return 所有 key 和 value 的总字节数
+     */
+    public int getDataLength() {
+        return offsets[size * 2];
+    }
+
+    public String getKey(int index) {
+        checkIndex(index);
+        return decode(index * 2);
+    }
+
+    public String getValue(int index) {
+        checkIndex(index);
+        return decode(index * 2 + 1);
+    }
+
+    public byte[] getKeyBytes(int index) {
+        checkIndex(index);
+        return copy(index * 2);
+    }
+
+    public byte[] getValueBytes(int index) {
+        checkIndex(index);
+        return copy(index * 2 + 1);
+    }
+
+    /**
+     * 返回第 index 个 key 的只读视图，不复制内容
+     *
+     * @param index 下标
+     *
+     * @return 只读的 ByteBuffer，position 到 limit 为 key 的内容
+     */
+    public ByteBuffer getKeyBuffer(int index) {
+        checkIndex(index);
+        return view(index * 2);
+    }
+
+    /**
+     * 返回第 index 个 value 的只读视图，不复制内容
+     *
+     * @param index 下标
+     *
+     * @return 只读的 ByteBuffer，position 到 limit 为 value 的内容
+     */
+    public ByteBuffer getValueBuffer(int index) {
+        checkIndex(index);
+        return view(index * 2 + 1);
+    }
+
+    public int getValueLength(int index) {
+        checkIndex(index);
+        return offsets[index * 2 + 2] - offsets[index * 2 + 1];
+    }
+
+    /**
+     * 判断第 index 个 key 是否等于 key，不需要解码
+     *
+     * @param index 下标
+     * @param key   要比较的 key
+     *
+     * @return 是否相等
+     */
+    public boolean keyEquals(int index, String key) {
+        checkIndex(index);
+        return keyEquals(index, key.getBytes(charset));
+    }
+
+    private boolean keyEquals(int index, byte[] bytes) {
+        int start = offsets[index * 2];
+        if (offsets[index * 2 + 1] - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data[start + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查找 key 所在的下标
+     *
+     * @param key 要查找的 key
+     *
+     * @return 下标，找不到时返回 -1
+     */
+    public int indexOfKey(String key) {
+        byte[] bytes = key.getBytes(charset);
+        for (int i = 0; i < size; i++) {
+            if (keyEquals(i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找 key 对应的 value
+     *
+     * @param key 要查找的 key
+     *
+     * @return value，找不到时返回 null
+     */
+    public String findValue(String key) {
+        int index = indexOfKey(key);
+        return index == -1 ? null : decode(index * 2 + 1);
+    }
+
+    public KeyValue get(int index) {
+        checkIndex(index);
+        return new KeyValue(copy(index * 2), copy(index * 2 + 1), charset);
+    }
+
+    /**
+     * @return 包含所有键值对的 {@code List<KeyValue>}，与 hgetall 等方法的返回值相同
+     */
+    public List<KeyValue> toList() {
+        List<KeyValue> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    /**
+     * @return 只读的 {@code List<KeyValue>} 视图，每次访问元素时生成新的 KeyValue
+     */
+    public List<KeyValue> asList() {
+        return new AbstractList<KeyValue>() {
+            @Override
+            public KeyValue get(int index) {
+                return KeyValueBatch.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return 按原有顺序解码所有键值对得到的 Map
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>(Math.max(16, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            map.put(decode(i * 2), decode(i * 2 + 1));
+        }
+        return map;
+    }
+
+    /**
+     * 遍历所有键值对，每个键值对生成一个新的 KeyValue。如果需要避免创建对象，请按下标访问
+     */
+    @Override
+    public Iterator<KeyValue> iterator() {
+        return new Iterator<KeyValue>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public KeyValue next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("KeyValueBatch{size=").append(size).append(", [");
+        for (int i = 0; i < Math.min(size, 10); i++) {
+            sb.append(i == 0 ? "" : ", ").append(decode(i * 2)).append('=').append(decode(i * 2 + 1));
+        }
+        return sb.append(size > 10 ? ", ...]}" : "]}").toString();
+    }
+
+    private String decode(int segment) {
+        return new String(data, offsets[segment], offsets[segment + 1] - offsets[segment], charset);
+    }
+
+    private byte[] copy(int segment) {
+        return Arrays.copyOfRange(data, offsets[segment], offsets[segment + 1]);
+    }
+
+    private ByteBuffer view(int segment) {
+        return ByteBuffer.wrap(data, offsets[segment], offsets[segment + 1] - offsets[segment]).asReadOnlyBuffer();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    //////////////////////////////////////////////////////////////
+
+    /**
+     * 逐个添加键值对来构建 KeyValueBatch
+     */
+    public static class Builder {
+
+        private final Charset charset;
+
+        private byte[] data;
+
+        private int[] offsets;
+
+        private int size;
+
+        public Builder(int expectedSize, int expectedBytes, Charset charset) {
+            this.charset = charset == null ? AbstractClient.DEFAULT_CHARSET : charset;
+            this.data = new byte[Math.max(16, expectedBytes)];
+            this.offsets = new int[Math.max(1, expectedSize) * 2 + 1];
+        }
+
+        public Builder add(byte[] key, byte[] value) {
+            return add(key, 0, key.length, value, 0, value.length);
+        }
+
+        public Builder add(String key, String value) {
+            return add(key.getBytes(charset), value.getBytes(charset));
+        }
+
+        public Builder add(KeyValue keyValue) {
+            return add(keyValue.getKey(), keyValue.getValue());
+        }
+
+        public Builder add(byte[] key, int keyOffset, int keyLength, byte[] value, int valueOffset, int valueLength) {
+            if (size * 2 + 2 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 4 + 1);
+            }
+
+            int start = offsets[size * 2];
+            int end = start + keyLength + valueLength;
+            if (end > data.length) {
+                data = Arrays.copyOf(data, Math.max(end, data.length * 2));
+            }
+
+            System.arraycopy(key, keyOffset, data, start, keyLength);
+            System.arraycopy(value, valueOffset, data, start + keyLength, valueLength);
+            offsets[size * 2 + 1] = start + keyLength;
+            offsets[size * 2 + 2] = end;
+            size++;
+            return this;
+        }
+
+        /**
+         * 添加另一个 KeyValueBatch 的全部键值对
+         *
+         * @param batch 要添加的键值对
+         *
+         * @return 本 Builder
+         */
+        public Builder addAll(KeyValueBatch batch) {
+            for (int i = 0; i < batch.size; i++) {
+                int keyStart = batch.offsets[i * 2], valueStart = batch.offsets[i * 2 + 1];
+                add(batch.data, keyStart, valueStart - keyStart,
+                    batch.data, valueStart, batch.offsets[i * 2 + 2] - valueStart);
+            }
+            return this;
+        }
+
+        /**
+         * @return 构建好的 KeyValueBatch，多余的空间会被去掉。之后不能再使用本 Builder
+         */
+        public KeyValueBatch build() {
+            if (size == 0) {
+                return charset.equals(EMPTY.charset) ? EMPTY : new KeyValueBatch(EMPTY.data, EMPTY.offsets, 0, charset);
+            }
+
+            int length = offsets[size * 2];
+            return new KeyValueBatch(
+                length == data.length ? data : Arrays.copyOf(data, length),
+                offsets.length == size * 2 + 1 ? offsets : Arrays.copyOf(offsets, size * 2 + 1),
+                size, charset
+            );
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.hyd.ssdb.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 保存最近若干次请求的响应时间，用于计算百分位数。
+ * 样本存放在一个环形数组中，新样本覆盖最旧的样本。记录样本不需要加锁，
+ * 计算百分位数时会复制一份样本并排序，所以不要在每个请求中都调用 {@link #percentile(double)}。
+ */
+public class LatencyWindow {
+
+    private final AtomicLongArray samples;
+
+    private final AtomicLong count = new AtomicLong();
+
+    public LatencyWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Argument size must be positive");
+        }
+        this.samples = new AtomicLongArray(size);
+    }
+
+    public void record(long latencyNanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), latencyNanos);
+    }
+
+    /**
+     * 获取记录过的样本总数（包括已经被覆盖的）
+     *
+     * @return 样本总数
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 计算窗口内样本的百分位数
+     *
+     * @param percentile 百分位，取值范围为 (0, 100]
+     *
+     * @return 响应时间（纳秒），如果没有样本则返回 -1
+     */
+    public long percentile(double percentile) {
+        int size = (int) Math.min(count.get(), samples.length());
+        if (size == 0) {
+            return -1;
+        }
+
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = samples.get(i);
+        }
+        Arrays.sort(values);
+
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return values[Math.max(0, Math.min(size - 1, index))];
+    }
+}
@@ -1,11 +1,25 @@
 package com.hyd.ssdb.util;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public class MD5 {
 
+    private static final int DIGEST_LENGTH = 16;
+
+    // MessageDigest 不是线程安全的，每个线程使用自己的实例，避免每次调用 getInstance()
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private static final ThreadLocal<byte[]> DIGEST_BUFFER = ThreadLocal.withInitial(() -> new byte[DIGEST_LENGTH]);
+
     /**
      * 利用 md5 生成字符串的 hashCode
      *
@@ -14,13 +28,28 @@ public class MD5 {
      * @return 签名的 hash
      */
     public static int md5Hash(String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        return md5Hash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 利用 md5 生成字节数组中指定部分的 hashCode，不会生成新的数组
+     *
+     * @param data   要签名的数据
+     * @param offset 开始位置
+     * @param length 长度
+     *
+     * @return 签名的 hash
+     */
+    public static int md5Hash(byte[] data, int offset, int length) {
+        MessageDigest digest = DIGEST.get();
+        byte[] buffer = DIGEST_BUFFER.get();
         try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            byte[] bytes = digest.digest(str.getBytes("UTF-8"));
-            return b2i(bytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        } catch (UnsupportedEncodingException e) {
+            digest.update(data, offset, length);
+            digest.digest(buffer, 0, DIGEST_LENGTH);
+            return b2i(buffer);
+        } catch (DigestException e) {
+            digest.reset();
             throw new RuntimeException(e);
         }
     }
@@ -0,0 +1,222 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.RoundRobinServerSelector;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.SocketConfig;
+import com.hyd.ssdb.sharding.ConsistentHashSharding;
+import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncSsdbClientTest extends BaseTest {
+
+    private static AsyncSsdbClient asyncClient;
+
+    @BeforeClass
+    public static void initAsyncClient() {
+        String hostStr = System.getProperty("h", "127.0.0.1");
+        String portStr = System.getProperty("p", "8888");
+        String passStr = System.getProperty("ps");
+        asyncClient = new AsyncSsdbClient(hostStr, Integer.parseInt(portStr), passStr);
+    }
+
+    @AfterClass
+    public static void closeAsyncClient() {
+        asyncClient.close();
+    }
+
+    @Test
+    public void testSetGet() throws Exception {
+        asyncClient.set("async_key", "async_value").get();
+        assertEquals("async_value", asyncClient.get("async_key").get());
+        assertEquals("async_value", ssdbClient.get("async_key"));
+
+        asyncClient.del("async_key").get();
+        assertNull(asyncClient.get("async_key").get());
+        assertFalse(asyncClient.exists("async_key").get());
+    }
+
+    @Test
+    public void testManyConcurrentRequests() throws Exception {
+        List<CompletableFuture<Void>> setFutures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            setFutures.add(asyncClient.set("async_key" + i, "value" + i));
+        }
+        CompletableFuture.allOf(setFutures.toArray(new CompletableFuture[0])).get();
+
+        List<CompletableFuture<String>> getFutures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            getFutures.add(asyncClient.get("async_key" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value" + i, getFutures.get(i).get());
+        }
+    }
+
+    @Test
+    public void testRetryUsesExecutor() throws Exception {
+        // 接受第一个连接后立即关闭，然后停止监听，以免 ServerMonitorDaemon 认为服务器已经恢复
+        ServerSocket closingServer = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try {
+                closingServer.accept().close();
+                closingServer.close();
+            } catch (IOException e) {
+                // 服务器已关闭
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        Server closing = new Server("localhost", closingServer.getLocalPort(), false);
+        Server normal = new Server("localhost", 8888, true);
+        AsyncSsdbClient client = new AsyncSsdbClient(new ConsistentHashSharding(new Cluster(Arrays.asList(closing, normal))));
+        client.getSharding().getClusters().get(0).setServerSelector(new RoundRobinServerSelector());
+
+        AtomicInteger retries = new AtomicInteger();
+        Executor executor = Executors.newSingleThreadExecutor();
+        client.setExecutor(runnable -> {
+            retries.incrementAndGet();
+            executor.execute(runnable);
+        });
+
+        try {
+            ssdbClient.set("async_retry_key", "value");
+            assertEquals("value", client.get("async_retry_key").get(5, TimeUnit.SECONDS));
+            assertEquals(1, retries.get());
+        } finally {
+            client.close();
+            closingServer.close();
+            ((ExecutorService) executor).shutdownNow();
+            ssdbClient.del("async_retry_key");
+        }
+    }
+
+    @Test
+    public void testZeroTimeoutMeansNoTimeout() throws Exception {
+        try (StuckServer stuckServer = new StuckServer()) {
+            AsyncSsdbClient client = new AsyncSsdbClient(new Server("localhost", stuckServer.getPort(), new SocketConfig(0)));
+            try {
+                // soTimeout 为 0 时请求一直等待回应，连接不会因为超时被关闭
+                CompletableFuture<String> future = client.get("async_key");
+                Thread.sleep(300);
+                assertFalse(future.isDone());
+                assertTrue(client.getSharding().getClusters().get(0).getInvalidServers().isEmpty());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testMultiAndRange() throws Exception {
+        try {
+            asyncClient.multiSet(Arrays.asList(
+                new KeyValue("async_m1", "v1"), new KeyValue("async_m2", "v2"), new KeyValue("async_m3", "v3"))).get();
+            assertEquals(Arrays.asList("v1", null, "v3"), asyncClient.multiGet("async_m1", "async_mx", "async_m3").get());
+            assertEquals(Arrays.asList("async_m1", "async_m2"), asyncClient.keys("async_m", "async_m2", 10).get());
+            assertEquals("v3", asyncClient.rscan("async_m4", "async_m", 1).get().get(0).getValueString());
+
+            asyncClient.multiHset("async_multi_hash", Arrays.asList(new KeyValue("a", "1"), new KeyValue("b", "2"))).get();
+            assertEquals("2", asyncClient.hgetallmap("async_multi_hash").get().get("b"));
+            assertEquals(Arrays.asList("a", "b"), asyncClient.hkeys("async_multi_hash", "", "", 10).get());
+            assertEquals("1", asyncClient.multiHget("async_multi_hash", "a", "c").get().get(0).getValueString());
+            assertEquals(1, asyncClient.hscan("async_multi_hash", "a", "", 10).get().size());
+
+            asyncClient.zset("async_zset", "id1", 10).get();
+            asyncClient.zset("async_zset", "id2", 20).get();
+            List<IdScore> idScores = asyncClient.zrrange("async_zset", 0, 10).get();
+            assertEquals("id2", idScores.get(0).getId());
+            assertEquals(20, idScores.get(0).getScore());
+            assertEquals(1, asyncClient.zscan("async_zset", "", 15L, null, 10).get().size());
+
+            asyncClient.qpushBack("async_queue", "q1").get();
+            asyncClient.qpushBack("async_queue", "q2").get();
+            assertEquals(Arrays.asList("q1", "q2"), asyncClient.qrange("async_queue", 0, 10).get());
+            assertEquals(Collections.singletonList("q2"), asyncClient.qslice("async_queue", 1, 1).get());
+        } finally {
+            ssdbClient.del("async_m1", "async_m2", "async_m3");
+            ssdbClient.hclear("async_multi_hash");
+            ssdbClient.zclear("async_zset");
+            ssdbClient.qclear("async_queue");
+        }
+    }
+
+    @Test
+    public void testAcrossClusters() throws Exception {
+        AsyncSsdbClient client = new AsyncSsdbClient(new ConsistentHashSharding(Arrays.asList(
+            Cluster.fromSingleServer("127.0.0.1", 8881), Cluster.fromSingleServer("127.0.0.1", 8882))));
+        List<String> keys = new ArrayList<>();
+        List<KeyValue> keyValues = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("async_c" + String.format("%02d", i));
+            keyValues.add(new KeyValue(keys.get(i), "value" + i));
+        }
+
+        try {
+            client.multiSet(keyValues).get();
+            List<String> values = client.multiGet(keys).get();
+            assertEquals("value0", values.get(0));
+            assertEquals("value19", values.get(19));
+
+            // 各个 Cluster 的结果按 key 的顺序合并
+            assertEquals(keys.subList(0, 15), client.keys("async_c", "async_d", 15).get());
+            assertEquals("async_c19", client.rscan("async_d", "async_c", 5).get().get(0).getKeyString());
+        } finally {
+            for (String key : keys) {
+                client.del(key).get();
+            }
+            client.close();
+        }
+    }
+
+    @Test
+    public void testIncrAndHash() throws Exception {
+        ssdbClient.del("async_counter");
+        CompletableFuture<Long> first = asyncClient.incr("async_counter", 1);
+        CompletableFuture<Long> second = asyncClient.incr("async_counter", 2);
+        assertEquals(1L, first.get().longValue());
+        assertEquals(3L, second.get().longValue());
+
+        asyncClient.hset("async_hash", "name", "value").get();
+        assertEquals("value", asyncClient.hget("async_hash", "name").get());
+        assertTrue(asyncClient.hsize("async_hash").get() > 0);
+    }
+
+    @Test
+    public void testServerError() throws Exception {
+        try {
+            asyncClient.sendRequest("no_such_command", "key").get();
+            fail("should throw exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SsdbException);
+        }
+
+        // 出错之后连接仍然可以使用
+        asyncClient.set("async_key", "1").get();
+        assertEquals("1", asyncClient.get("async_key").get());
+    }
+}
@@ -0,0 +1,156 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.protocol.Block;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BatchingSsdbClientTest {
+
+    private SsdbClient ssdbClient;
+
+    private BatchingSsdbClient batchingClient;
+
+    @Before
+    public void setUp() {
+        ssdbClient = new SsdbClient("localhost", 8888);
+        batchingClient = new BatchingSsdbClient(ssdbClient, 10000, 50);
+    }
+
+    @After
+    public void tearDown() {
+        batchingClient.close();
+        for (int i = 0; i < 10; i++) {
+            ssdbClient.del("batch_key" + i);
+        }
+        ssdbClient.hclear("batch_hash");
+        ssdbClient.zclear("batch_zset");
+        ssdbClient.qclear("batch_queue");
+        ssdbClient.close();
+    }
+
+    @Test
+    public void testMergedWrites() throws Exception {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(batchingClient.set("batch_key" + i, "value" + i));
+            futures.add(batchingClient.hset("batch_hash", "prop" + i, "value" + i));
+            futures.add(batchingClient.zset("batch_zset", "id" + i, i));
+        }
+        for (CompletableFuture<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, batchingClient.getBatchCount());
+        assertEquals(30, batchingClient.getOperationCount());
+        assertEquals("value3", ssdbClient.get("batch_key3"));
+        assertEquals(10, ssdbClient.hgetall("batch_hash").size());
+        assertEquals(10, ssdbClient.zsize("batch_zset"));
+        assertEquals(Long.valueOf(7), ssdbClient.zget("batch_zset", "id7"));
+    }
+
+    @Test
+    public void testSameKeyKeepsOrder() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            batchingClient.set("batch_key0", "value" + i);
+            batchingClient.hset("batch_hash", "prop", "value" + i);
+        }
+        batchingClient.flush();
+
+        assertEquals("value19", ssdbClient.get("batch_key0"));
+        List<KeyValue> props = ssdbClient.hgetall("batch_hash");
+        assertEquals(1, props.size());
+        assertEquals("value19", props.get(0).getValueString());
+    }
+
+    @Test
+    public void testQpushBackSizes() throws Exception {
+        ssdbClient.qpushBack("batch_queue", "existing");
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(batchingClient.qpushBack("batch_queue", "value" + i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i + 2), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("value4", ssdbClient.qback("batch_queue"));
+    }
+
+    @Test
+    public void testFlushByCount() throws Exception {
+        BatchingSsdbClient client = new BatchingSsdbClient(ssdbClient, TimeUnit.SECONDS.toMicros(60), 5);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(client.set("batch_key" + i, "value" + i));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                future.get(5, TimeUnit.SECONDS);    // 没有等到 60 秒的时间窗口
+            }
+            assertEquals(1, client.getBatchCount());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testErrorFanBack() throws Exception {
+        // 模拟服务器对 hash "batch_bad" 的写入返回错误
+        SsdbClient failingClient = new SsdbClient("localhost", 8888) {
+            @Override
+            protected List<Response> sendPipelineUnchecked(List<Request> requests) {
+                List<Response> responses = new ArrayList<>(super.sendPipelineUnchecked(requests));
+                for (int i = 0; i < requests.size(); i++) {
+                    if ("batch_bad".equals(requests.get(i).getKey())) {
+                        Response error = new Response(AbstractClient.DEFAULT_CHARSET);
+                        error.setHead(new Block("error".getBytes()));
+                        responses.set(i, error);
+                    }
+                }
+                return responses;
+            }
+        };
+
+        BatchingSsdbClient client = new BatchingSsdbClient(failingClient, 10000, 100);
+        try {
+            CompletableFuture<Void> ok = client.hset("batch_hash", "prop", "value");
+            CompletableFuture<Void> failed1 = client.hset("batch_bad", "prop1", "value");
+            CompletableFuture<Void> failed2 = client.hset("batch_bad", "prop2", "value");
+            client.flush();
+
+            ok.get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<Void> future : Arrays.asList(failed1, failed2)) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail("Should have thrown");
+                } catch (ExecutionException e) {
+                    assertEquals("error", ((SsdbException) e.getCause()).getServerErrorCode());
+                }
+            }
+        } finally {
+            client.close();
+            failingClient.del("batch_bad");
+            failingClient.close();
+        }
+    }
+
+    @Test(expected = SsdbClientException.class)
+    public void testClosed() {
+        batchingClient.close();
+        batchingClient.set("batch_key0", "value");
+    }
+}
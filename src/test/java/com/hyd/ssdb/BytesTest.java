@@ -5,6 +5,9 @@ import org.junit.Test;
 
 import java.util.Arrays;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * (description)
  * created at 15-12-2
@@ -20,4 +23,12 @@ public class BytesTest {
         byte[] arr3 = {7, 8, 9};
         System.out.println(Arrays.toString(Bytes.concat(arr1, arr2, arr3)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompare() throws Exception {
+        assertEquals(0, Bytes.compare(new byte[]{1, 2}, new byte[]{1, 2}));
+        assertTrue(Bytes.compare(new byte[]{1, 2}, new byte[]{1, 2, 0}) < 0);
+        assertTrue(Bytes.compare(new byte[]{1, 3}, new byte[]{1, 2, 0}) > 0);
+        assertTrue(Bytes.compare(new byte[]{(byte) 0xFF}, new byte[]{0x7F}) > 0);   // 按无符号比较
+    }
+}
@@ -1,9 +1,13 @@
 package com.hyd.ssdb;
 
 import com.hyd.ssdb.util.KeyValue;
+import com.hyd.ssdb.util.KeyValueBatch;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
 import static junit.framework.TestCase.*;
 
@@ -23,6 +27,36 @@ public class ClusterSsdbClientTest extends ClusterBaseTest {
         assertEquals("value3", ssdbClient.get("key3"));
     }
 
+    @Test
+    public void testMultiGetAcrossClusters() throws Exception {
+        List<String> keys = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String key = "multi_get_key" + i;
+            keys.add(key);
+            if (i % 3 == 0) {
+                ssdbClient.del(key);
+                expected.add(null);
+            } else {
+                ssdbClient.set(key, "value" + i);
+                expected.add("value" + i);
+            }
+        }
+
+        assertEquals(expected, ssdbClient.multiGet(keys));
+
+        List<byte[]> bytes = ssdbClient.multiGetBytes(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(expected.get(i), bytes.get(i) == null ? null : new String(bytes.get(i)));
+        }
+
+        KeyValueBatch batch = ssdbClient.multiGetBatch(keys);
+        assertEquals(expected.stream().filter(Objects::nonNull).count(), batch.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(expected.get(i), batch.findValue(keys.get(i)));
+        }
+    }
+
     @Test
     public void testMultiGetSet2() throws Exception {
         ssdbClient.multiSet(Arrays.asList(
@@ -1,44 +1,64 @@
-package com.hyd.ssdb;
-
-import com.hyd.ssdb.conn.Connection;
-import com.hyd.ssdb.protocol.Request;
-import com.hyd.ssdb.protocol.Response;
-import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-/**
- * (description)
- * created at 15-12-2
- *
- * @author Yiding
- */
-public class ConnectionTest {
-
-    private static final Logger LOG = LoggerFactory.getLogger(ConnectionTest.class);
-
-    @Test
-    public void testReceive2() throws Exception {
-        Connection connection = new Connection("localhost", 18801, null, 1000, 8192);
-
-        connection.send(new Request("set name hydrogen-ssdb").toBytes());
-        Response response1 = connection.receivePacket();
-        System.out.println(response1.getHead().toString());
-        System.out.println(response1.getBody());
-
-        connection.send(new Request("get name").toBytes());
-        Response response2 = connection.receivePacket();
-        System.out.println(response2.getHead().toString());
-        System.out.println(response2.getBody());
-    }
-
-    @Test
-    public void testConnectionFail() throws Exception {
-        try {
-            SsdbClient ssdbClient = new SsdbClient("localhost", 999);
-            ssdbClient.set("name", "value");
-        } catch (SsdbException e) {
-            LOG.error("", e);
-        }
-    }
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conn.Connection;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.util.BufferPool;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * (description)
+ * created at 15-12-2
+ *
+ * @author Yiding
+ */
+public class ConnectionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionTest.class);
+
+    @Test
+    public void testReceive2() throws Exception {
+        Connection connection = new Connection("localhost", 18801, null, 1000, 8192);
+
+        connection.send(new Request("set name hydrogen-ssdb").toBytes());
+        Response response1 = connection.receivePacket();
+        System.out.println(response1.getHead().toString());
+        System.out.println(response1.getBody());
+
+        connection.send(new Request("get name").toBytes());
+        Response response2 = connection.receivePacket();
+        System.out.println(response2.getHead().toString());
+        System.out.println(response2.getBody());
+    }
+
+    @Test
+    public void testAuthFailReleasesBuffers() throws Exception {
+        // 先建立一个连接再关闭，保证缓存池中有闲置的缓存区
+        new Connection("localhost", 18801, null, 1000, 8192).close();
+        int idleCount = BufferPool.getHeapPool().getIdleCount();
+
+        try (StuckServer stuckServer = new StuckServer()) {
+            new Connection("localhost", stuckServer.getPort(), "pass", 200, 8192);
+            fail("Authentication should time out");
+        } catch (SsdbException e) {
+            // 认证超时，构造方法应当归还缓存区
+        }
+
+        assertEquals(idleCount, BufferPool.getHeapPool().getIdleCount());
+    }
+
+    @Test
+    public void testConnectionFail() throws Exception {
+        try {
+            SsdbClient ssdbClient = new SsdbClient("localhost", 999);
+            ssdbClient.set("name", "value");
+        } catch (SsdbException e) {
+            LOG.error("", e);
+        }
+    }
 }
\ No newline at end of file
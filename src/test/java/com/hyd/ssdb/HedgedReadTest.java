@@ -0,0 +1,113 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.RoundRobinServerSelector;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.util.LatencyWindow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedReadTest {
+
+    private StuckServer stuckServer;
+
+    @Before
+    public void startStuckServer() throws IOException {
+        stuckServer = new StuckServer();
+    }
+
+    @After
+    public void stopStuckServer() throws IOException {
+        stuckServer.close();
+    }
+
+    @Test
+    public void testSlowReplicaIsHedged() throws Exception {
+        Server stuck = new Server("localhost", stuckServer.getPort(), false);
+        Server normal = new Server("localhost", 8888, true);
+        SsdbClient client = SsdbClient.fromSingleCluster(Arrays.asList(stuck, normal));
+
+        try {
+            // 第一个读取请求先发送给不回应的服务器
+            Cluster cluster = client.getSharding().getClusters().get(0);
+            cluster.setServerSelector(new RoundRobinServerSelector());
+
+            HedgePolicy hedgePolicy = new HedgePolicy(95, 1, 50);
+            client.setHedgePolicy(hedgePolicy);
+
+            client.set("hedge-key", "value");
+
+            long start = System.nanoTime();
+            assertEquals("value", client.get("hedge-key"));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("elapsed " + elapsed + "ms", elapsed < 800);
+            assertEquals(1, hedgePolicy.getHedgedRequests());
+            assertEquals(1, hedgePolicy.getHedgeWins());
+
+            assertNull(client.get("hedge-missing-key"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testHedgeInsideClientExecutor() throws Exception {
+        Server stuck = new Server("localhost", stuckServer.getPort(), false);
+        Server normal = new Server("localhost", 8888, true);
+        SsdbClient client = SsdbClient.fromSingleCluster(Arrays.asList(stuck, normal));
+
+        // 客户端线程池只有一个线程，对冲读取如果也使用它就会死锁
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            client.getSharding().getClusters().get(0).setServerSelector(new RoundRobinServerSelector());
+            client.setExecutor(executor);
+            client.setHedgePolicy(new HedgePolicy(95, 1, 50));
+            client.set("hedge-key", "value");
+
+            Future<String> future = executor.submit(() -> client.get("hedge-key"));
+            assertEquals("value", future.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testDelayFollowsPercentile() throws Exception {
+        HedgePolicy hedgePolicy = new HedgePolicy(90, 1, 1000);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), hedgePolicy.getDelayNanos());
+
+        for (int i = 1; i <= 100; i++) {
+            hedgePolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Thread.sleep(150);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(90), hedgePolicy.getDelayNanos());
+    }
+
+    @Test
+    public void testLatencyWindow() throws Exception {
+        LatencyWindow window = new LatencyWindow(10);
+        assertEquals(-1, window.percentile(50));
+
+        for (int i = 1; i <= 20; i++) {
+            window.record(i);
+        }
+        assertEquals(20, window.getCount());
+        assertEquals(11, window.percentile(1));     // 只保留最近的 10 个样本
+        assertEquals(15, window.percentile(50));
+        assertEquals(20, window.percentile(100));
+    }
+}
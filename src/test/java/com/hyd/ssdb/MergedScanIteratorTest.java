@@ -0,0 +1,72 @@
+package com.hyd.ssdb;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MergedScanIteratorTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testMergeInOrder() {
+        List<PagedScanIterator<Integer>> sources = Arrays.asList(
+            source(Arrays.asList(1, 4, 7, 10, 13), 2, new AtomicInteger()),
+            source(Arrays.asList(2, 5, 8), 2, new AtomicInteger()),
+            source(Collections.emptyList(), 2, new AtomicInteger()),
+            source(Arrays.asList(3, 6, 9, 11, 12), 2, new AtomicInteger())
+        );
+
+        try (ScanIterator<Integer> iterator = new MergedScanIterator<>(sources, Comparator.naturalOrder())) {
+            List<Integer> result = iterator.stream().collect(Collectors.toList());
+            assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13), result);
+        }
+    }
+
+    @Test
+    public void testLazyLoading() {
+        List<Integer> big = new ArrayList<>();
+        for (int i = 100; i < 200; i++) {
+            big.add(i);
+        }
+
+        AtomicInteger smallLoads = new AtomicInteger();
+        AtomicInteger bigLoads = new AtomicInteger();
+        List<PagedScanIterator<Integer>> sources = Arrays.asList(
+            source(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 3, smallLoads),
+            source(big, 3, bigLoads)
+        );
+
+        ScanIterator<Integer> iterator = new MergedScanIterator<>(sources, Comparator.naturalOrder());
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(Integer.valueOf(i), iterator.next());
+        }
+
+        // 只取了第二个数据源的第一个元素，只会读取它的第一页和预读的第二页
+        assertEquals(Integer.valueOf(100), iterator.next());
+        assertEquals(2, bigLoads.get());
+        assertEquals(4, smallLoads.get());
+
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    private static PagedScanIterator<Integer> source(List<Integer> values, int batchSize, AtomicInteger loads) {
+        return new PagedScanIterator<>((last, position) -> {
+            loads.incrementAndGet();
+            int from = (int) Math.min(position, values.size());
+            int to = (int) Math.min(position + batchSize, values.size());
+            return new ArrayList<>(values.subList(from, to));
+        }, batchSize, DIRECT);
+    }
+}
@@ -0,0 +1,171 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NearCacheTest {
+
+    private SsdbClient client;
+
+    private SsdbClient otherClient;     // 不经过缓存的另一个客户端，模拟其他应用的写入
+
+    private NearCache nearCache;
+
+    @Before
+    public void setUp() {
+        client = new SsdbClient("localhost", 8888);
+        otherClient = new SsdbClient("localhost", 8888);
+        nearCache = new NearCache();
+        client.setNearCache(nearCache);
+    }
+
+    @After
+    public void tearDown() {
+        client.del("nc_key1", "nc_key2", "nc_missing");
+        client.hclear("nc_hash");
+        client.close();
+        otherClient.close();
+    }
+
+    @Test
+    public void testGetIsCached() {
+        client.set("nc_key1", "value1");
+        assertEquals("value1", client.get("nc_key1"));
+
+        otherClient.set("nc_key1", "value2");
+        assertEquals("value1", client.get("nc_key1"));
+        assertArrayEquals("value1".getBytes(), client.getBytes("nc_key1"));
+        assertEquals(2, nearCache.getHitCount());
+        assertEquals(1, nearCache.getMissCount());
+    }
+
+    @Test
+    public void testNotFoundIsCached() {
+        assertNull(client.get("nc_missing"));
+        otherClient.set("nc_missing", "value");
+        assertNull(client.get("nc_missing"));
+        assertEquals(0, client.getBytes("nc_missing").length);
+    }
+
+    @Test
+    public void testWriteInvalidates() {
+        client.set("nc_key1", "value1");
+        client.set("nc_key2", "value2");
+        assertEquals("value1", client.get("nc_key1"));
+        assertEquals("value2", client.get("nc_key2"));
+
+        client.setx("nc_key1", "value3", 100);
+        assertEquals("value3", client.get("nc_key1"));
+
+        client.multiSet("nc_key1", "value4", "nc_key2", "value5");
+        assertEquals("value4", client.get("nc_key1"));
+        assertEquals("value5", client.get("nc_key2"));
+
+        client.multiSet(Arrays.asList(new KeyValue("nc_key1", "value6"), new KeyValue("nc_key2", "value7")));
+        assertEquals("value6", client.get("nc_key1"));
+        assertEquals("value7", client.get("nc_key2"));
+
+        client.pipelined(p -> p.set("nc_key1", "value8"));
+        assertEquals("value8", client.get("nc_key1"));
+
+        client.del("nc_key1", "nc_key2");
+        assertNull(client.get("nc_key1"));
+        assertNull(client.get("nc_key2"));
+    }
+
+    @Test
+    public void testHashInvalidates() {
+        client.hset("nc_hash", "a", "1");
+        client.hset("nc_hash", "b", "2");
+        assertEquals("1", client.hget("nc_hash", "a"));
+        assertEquals(2, client.hgetall("nc_hash").size());
+
+        client.hset("nc_hash", "c", "3");
+        assertEquals(3, client.hgetall("nc_hash").size());
+        assertEquals("1", client.hget("nc_hash", "a"));
+
+        client.hdel("nc_hash", "a");
+        assertNull(client.hget("nc_hash", "a"));
+        List<KeyValue> all = client.hgetall("nc_hash");
+        assertEquals(2, all.size());
+
+        all.get(0).getValue()[0] = 'x';     // 修改返回的列表和内容都不影响缓存
+        all.get(1).setValue("changed".getBytes());
+        all.clear();
+        all = client.hgetall("nc_hash");
+        assertEquals(2, all.size());
+        assertEquals("2", all.get(0).getValueString());
+        assertEquals("3", all.get(1).getValueString());
+        assertEquals("3", client.hgetallBatch("nc_hash").findValue("c"));
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        nearCache.setTtlPolicy(key -> key.equals("nc_key1") ? 50 : 0);
+
+        client.set("nc_key1", "value1");
+        client.set("nc_key2", "value2");
+        client.get("nc_key1");
+        client.get("nc_key2");
+        assertEquals(1, nearCache.size());      // nc_key2 不缓存
+
+        otherClient.set("nc_key1", "value3");
+        assertEquals("value1", client.get("nc_key1"));
+        Thread.sleep(100);
+        assertEquals("value3", client.get("nc_key1"));
+        assertEquals(1, nearCache.getExpirationCount());
+    }
+
+    @Test
+    public void testEvictByEntries() {
+        NearCache cache = new NearCache(2, Long.MAX_VALUE, 10000);
+        cache.getOrLoad(NearCache.VALUE, "k1", null, () -> "v1".getBytes());
+        cache.getOrLoad(NearCache.VALUE, "k2", null, () -> "v2".getBytes());
+        cache.getOrLoad(NearCache.VALUE, "k1", null, () -> "v1".getBytes());    // k1 最近被访问
+        cache.getOrLoad(NearCache.VALUE, "k3", null, () -> "v3".getBytes());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.getHitCount());
+
+        byte[] value = cache.getOrLoad(NearCache.VALUE, "k1", null, () -> "new".getBytes());
+        assertEquals("v1", new String(value));
+        value = cache.getOrLoad(NearCache.VALUE, "k2", null, () -> "new".getBytes());
+        assertEquals("new", new String(value));
+    }
+
+    @Test
+    public void testEvictByBytes() {
+        NearCache cache = new NearCache(1000, 1000, 10000);
+        for (int i = 0; i < 10; i++) {
+            cache.getOrLoad(NearCache.VALUE, "k" + i, null, () -> new byte[200]);
+        }
+
+        assertTrue(cache.getBytes() <= 1000);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(10 - cache.getEvictionCount(), cache.size());
+
+        cache.getOrLoad(NearCache.VALUE, "large", null, () -> new byte[2000]);   // 超过上限的内容不缓存
+        assertTrue(cache.getBytes() <= 1000);
+    }
+
+    @Test
+    public void testStaleLoadIsDiscarded() {
+        NearCache cache = new NearCache();
+        cache.getOrLoad(NearCache.VALUE, "k1", null, () -> {
+            cache.invalidate("k1");     // 读取期间发生了写入
+            return "stale".getBytes();
+        });
+        assertEquals(0, cache.size());
+    }
+}
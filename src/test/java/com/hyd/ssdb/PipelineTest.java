@@ -0,0 +1,47 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.protocol.Response;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PipelineTest extends BaseTest {
+
+    @Test
+    public void testPipelined() {
+        List<Response> responses = ssdbClient.pipelined(p -> {
+            for (int i = 0; i < 100; i++) {
+                p.set("pipeline_key" + i, "value" + i);
+            }
+            for (int i = 0; i < 100; i++) {
+                p.get("pipeline_key" + i);
+            }
+            p.del("pipeline_key0");
+            p.get("pipeline_key0");
+        });
+
+        assertEquals(202, responses.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, responses.get(100 + i).firstBlock());
+        }
+        assertNull(responses.get(201).firstBlock());
+    }
+
+    @Test
+    public void testMixedWithNormalRequests() {
+        ssdbClient.set("pipeline_counter", 0);
+        List<Response> responses = ssdbClient.pipelined(p -> {
+            p.incr("pipeline_counter", 1);
+            p.incr("pipeline_counter", 2);
+            p.hset("pipeline_hash", "name", "value");
+            p.hget("pipeline_hash", "name");
+        });
+
+        assertEquals(3, responses.get(1).getLongResult().longValue());
+        assertEquals("value", responses.get(3).firstBlock());
+        assertEquals("3", ssdbClient.get("pipeline_counter"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.protocol.Block;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.protocol.Response;
+import com.hyd.ssdb.protocol.WriteRequest;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 20;
+
+    @Test
+    public void testConcurrentIdenticalReadsShareOneCall() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> coalescer.send(new Request("get", "key1"), request -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    Response response = new Response(StandardCharsets.UTF_8);
+                    response.setHead(new Block("ok".getBytes(StandardCharsets.UTF_8)));
+                    response.addBodyBlock(new Block("value1".getBytes(StandardCharsets.UTF_8)));
+                    return response;
+                })));
+            }
+
+            waitUntil(() -> coalescer.getCoalescedRequests() == THREADS - 1);
+            release.countDown();
+
+            List<Response> responses = new ArrayList<>();
+            for (Future<Response> future : futures) {
+                responses.add(future.get(5, TimeUnit.SECONDS));
+            }
+
+            // 每个调用者得到各自的字节数组，修改其中一个不影响其他调用者
+            Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Response response : responses) {
+                assertTrue(response.isOk());
+                assertEquals("value1", new String(response.getBytes(), StandardCharsets.UTF_8));
+                assertTrue(arrays.add(response.getBytes()));
+                response.getBytes()[0] = 'x';
+            }
+            assertEquals(1, calls.get());
+            assertEquals(0, coalescer.getInFlightRequests());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExceptionIsShared() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(() -> coalescer.send(new Request("get", "key1"), request -> {
+                    await(release);
+                    throw new SsdbSocketFailedException("Socket timed out");
+                })));
+            }
+
+            waitUntil(() -> coalescer.getCoalescedRequests() == 1);
+            release.countDown();
+
+            for (Future<Response> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail("Should have thrown");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof SsdbSocketFailedException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadAfterWriteIsNotCoalesced() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> stale = executor.submit(() -> coalescer.send(new Request("get", "key1"), request -> {
+                calls.incrementAndGet();
+                await(release);
+                return new Response(StandardCharsets.UTF_8);
+            }));
+            waitUntil(() -> coalescer.getInFlightRequests() == 1);
+
+            coalescer.writeCompleted();
+            Response fresh = coalescer.send(new Request("get", "key1"), request -> {
+                calls.incrementAndGet();
+                return new Response(StandardCharsets.UTF_8);
+            });
+
+            release.countDown();
+            assertFalse(fresh == stale.get(5, TimeUnit.SECONDS));
+            assertEquals(2, calls.get());
+            assertEquals(0, coalescer.getCoalescedRequests());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCoalescableCommands() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        assertTrue(coalescer.isCoalescable(new Request("get", "key1")));
+        assertTrue(coalescer.isCoalescable(new Request("hgetall", "key1")));
+        assertFalse(coalescer.isCoalescable(new WriteRequest("set", "key1", "value1")));
+        assertFalse(coalescer.isCoalescable(new Request("qpop_front", "key1", 1)));
+    }
+
+    @Test
+    public void testClient() throws Exception {
+        SsdbClient client = new SsdbClient("localhost", 8888);
+        client.setRequestCoalescer(new RequestCoalescer());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            client.set("coalesce_key", "value1");
+
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * 10; i++) {
+                futures.add(executor.submit(() -> client.get("coalesce_key")));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("value1", future.get(5, TimeUnit.SECONDS));
+            }
+
+            client.set("coalesce_key", "value2");
+            assertEquals("value2", client.get("coalesce_key"));
+        } finally {
+            executor.shutdownNow();
+            client.del("coalesce_key");
+            client.close();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new SsdbException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanIteratorTest extends BaseTest {
+
+    private static final int COUNT = 250;
+
+    @BeforeClass
+    public static void prepare() {
+        for (int i = 0; i < COUNT; i++) {
+            String suffix = String.format("%04d", i);
+            ssdbClient.set("scan_it_" + suffix, "value" + suffix);
+            ssdbClient.hset("scan_it_hash", "prop" + suffix, "value" + suffix);
+            ssdbClient.zset("scan_it_zset", "id" + suffix, i / 3);    // 分数有重复
+            ssdbClient.qpushBack("scan_it_queue", "value" + suffix);
+        }
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        for (int i = 0; i < COUNT; i++) {
+            ssdbClient.del("scan_it_" + String.format("%04d", i));
+        }
+        ssdbClient.hclear("scan_it_hash");
+        ssdbClient.zclear("scan_it_zset");
+        ssdbClient.qclear("scan_it_queue");
+    }
+
+    @Test
+    public void testScanIterator() {
+        List<String> keys;
+        try (ScanIterator<KeyValue> iterator = ssdbClient.scanIterator("scan_it_", "scan_it_9999", 30)) {
+            keys = iterator.stream().map(KeyValue::getKeyString).collect(Collectors.toList());
+        }
+
+        assertEquals(COUNT, keys.size());
+        List<String> sorted = new ArrayList<>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals("scan_it_0000", keys.get(0));
+    }
+
+    @Test
+    public void testScanWithProcessor() {
+        List<KeyValue> result = new ArrayList<>();
+        ssdbClient.scan("scan_it_", 50, result::add);
+        assertEquals(COUNT, result.size());
+        assertEquals("value0249", result.get(COUNT - 1).getValueString());
+    }
+
+    @Test
+    public void testHscanIterator() {
+        try (ScanIterator<KeyValue> iterator = ssdbClient.hscanIterator("scan_it_hash", "", "", 25)) {
+            int count = 0;
+            while (iterator.hasNext()) {
+                KeyValue keyValue = iterator.next();
+                assertEquals("prop" + String.format("%04d", count), keyValue.getKeyString());
+                count++;
+            }
+            assertEquals(COUNT, count);
+        }
+    }
+
+    @Test
+    public void testZscanIterator() {
+        List<IdScore> idScores;
+        try (ScanIterator<IdScore> iterator = ssdbClient.zscanIterator("scan_it_zset", null, null, 7)) {
+            idScores = iterator.stream().collect(Collectors.toList());
+        }
+
+        assertEquals(COUNT, idScores.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals("id" + String.format("%04d", i), idScores.get(i).getId());
+            assertEquals(i / 3, idScores.get(i).getScore());
+        }
+
+        try (ScanIterator<IdScore> iterator = ssdbClient.zscanIterator("scan_it_zset", 10L, 19L, 4)) {
+            assertEquals(30, iterator.stream().count());
+        }
+    }
+
+    @Test
+    public void testQrangeIterator() {
+        try (ScanIterator<String> iterator = ssdbClient.qrangeIterator("scan_it_queue", 40)) {
+            List<String> values = iterator.stream().collect(Collectors.toList());
+            assertEquals(COUNT, values.size());
+            assertEquals("value0000", values.get(0));
+            assertEquals("value0249", values.get(COUNT - 1));
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        CountDownLatch secondPageRequested = new CountDownLatch(1);
+        List<Long> positions = Collections.synchronizedList(new ArrayList<>());
+
+        ScanIterator<Integer> iterator = new PagedScanIterator<>((last, position) -> {
+            positions.add(position);
+            if (position > 0) {
+                secondPageRequested.countDown();
+            }
+            List<Integer> page = new ArrayList<>();
+            for (int i = 0; i < 10 && position + i < 25; i++) {
+                page.add((int) position + i);
+            }
+            return page;
+        }, 10, ssdbClient.getExecutor());
+
+        assertEquals(Integer.valueOf(0), iterator.next());
+        assertTrue(secondPageRequested.await(5, TimeUnit.SECONDS));    // 第一页还没有处理完，第二页已经开始读取
+
+        int expected = 1;
+        while (iterator.hasNext()) {
+            assertEquals(Integer.valueOf(expected++), iterator.next());
+        }
+        assertEquals(25, expected);
+        assertEquals(3, positions.size());      // 最后一页不满，不会再读取
+    }
+
+    @Test
+    public void testClose() {
+        ScanIterator<KeyValue> iterator = ssdbClient.scanIterator("scan_it_", "scan_it_9999", 10);
+        iterator.next();
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+}
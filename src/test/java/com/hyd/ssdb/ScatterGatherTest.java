@@ -0,0 +1,112 @@
+package com.hyd.ssdb;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.sharding.ConsistentHashSharding;
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScatterGatherTest extends ClusterBaseTest {
+
+    @Test
+    public void testKeysInOrder() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String key = String.format("scatter_%03d", i);
+            ssdbClient.set(key, "value" + i);
+            expected.add(key);
+        }
+
+        assertEquals(expected, ssdbClient.keys("scatter_", "scatter_z", 100));
+
+        List<KeyValue> keyValues = ssdbClient.scan("scatter_", "scatter_z", 100);
+        assertEquals(50, keyValues.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(expected.get(i), keyValues.get(i).getKeyString());
+        }
+    }
+
+    @Test
+    public void testLimitAcrossClusters() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String key = String.format("merge_%03d", i);
+            ssdbClient.set(key, "value" + i);
+            expected.add(key);
+        }
+
+        try {
+            // 各个 Cluster 都返回了 10 个，合并后只能取最小的 10 个
+            assertEquals(expected.subList(0, 10), ssdbClient.keys("merge_", "merge_z", 10));
+            assertEquals(expected.subList(0, 10), keysOf(ssdbClient.scan("merge_", "merge_z", 10)));
+
+            List<String> reversed = new ArrayList<>(expected);
+            Collections.reverse(reversed);
+            assertEquals(reversed.subList(0, 10), ssdbClient.rkeys("merge_z", "merge_", 10));
+            assertEquals(reversed.subList(0, 10), keysOf(ssdbClient.rscan("merge_z", "merge_", 10)));
+
+            // 按最后一个 key 翻页不会遗漏
+            List<String> paged = new ArrayList<>();
+            String start = "merge_";
+            List<String> page;
+            while (!(page = ssdbClient.keys(start, "merge_z", 7)).isEmpty()) {
+                paged.addAll(page);
+                start = page.get(page.size() - 1);
+            }
+            assertEquals(expected, paged);
+
+            List<String> iterated;
+            try (ScanIterator<KeyValue> iterator = ssdbClient.scanIterator("merge_", "merge_z", 4)) {
+                iterated = keysOf(iterator.stream().collect(Collectors.toList()));
+            }
+            assertEquals(expected, iterated);
+        } finally {
+            for (String key : expected) {
+                ssdbClient.del(key);
+            }
+        }
+    }
+
+    private static List<String> keysOf(List<KeyValue> keyValues) {
+        return keyValues.stream().map(KeyValue::getKeyString).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPartialResults() throws Exception {
+        SsdbClient client = new SsdbClient(new ConsistentHashSharding(Arrays.asList(
+            Cluster.fromSingleServer("127.0.0.1", 8881),
+            Cluster.fromSingleServer("127.0.0.1", 8882),
+            Cluster.fromSingleServer("127.0.0.1", 1)     // 无法连接的服务器
+        )));
+
+        try {
+            ScatterResult result = client.sendRequestToAllClusters(new Request("dbsize"));
+            assertFalse(result.isComplete());
+            assertEquals(2, result.getResponses().size());
+            assertEquals(1, result.getFailures().size());
+
+            try {
+                client.keys("", "", 10);
+                fail("should throw exception");
+            } catch (SsdbException e) {
+                // expected
+            }
+
+            client.setAllowPartialResults(true);
+            assertTrue(client.keys("", "", 10).size() <= 20);
+        } finally {
+            client.close();
+        }
+    }
+}
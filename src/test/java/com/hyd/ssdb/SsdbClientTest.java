@@ -5,7 +5,9 @@ import com.hyd.ssdb.protocol.Request;
 import com.hyd.ssdb.protocol.Response;
 import com.hyd.ssdb.util.Bytes;
 import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.IdScoreList;
 import com.hyd.ssdb.util.KeyValue;
+import com.hyd.ssdb.util.KeyValueBatch;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -57,6 +59,15 @@ public class SsdbClientTest extends BaseTest {
         assertEquals(Arrays.asList("value1", "value2", "value3"), values);
     }
 
+    @Test
+    public void testMultiGetWithMissingKeys() {
+        ssdbClient.multiSet("key1", "value1", "key3", "value3");
+        ssdbClient.del("key2");
+
+        List<String> values = ssdbClient.multiGet("key3", "key2", "key1");
+        assertEquals(Arrays.asList("value3", null, "value1"), values);
+    }
+
     @Test
     public void testMultiGetBytes() {
         String key = "sample-binary-data";
@@ -473,6 +484,45 @@ public class SsdbClientTest extends BaseTest {
         assertEquals(456, keyValues.get(1).getScore());
     }
 
+    @Test
+    public void testHgetallBatch() {
+        ssdbClient.hclear("batch_hash");
+        ssdbClient.multiHset("batch_hash", "prop1", "value1", "属性2", "值2", "prop3", "");
+
+        KeyValueBatch batch = ssdbClient.hgetallBatch("batch_hash");
+        assertEquals(3, batch.size());
+        assertEquals("值2", batch.findValue("属性2"));
+        assertEquals("", batch.findValue("prop3"));
+        assertEquals(ssdbClient.hgetallmap("batch_hash"), batch.toMap());
+
+        assertEquals("prop3", ssdbClient.hscanBatch("batch_hash", "prop1", "", 10).getKey(0));
+        assertEquals(2, ssdbClient.multiHgetBatch("batch_hash", Arrays.asList("prop1", "prop3", "none")).size());
+        ssdbClient.hclear("batch_hash");
+    }
+
+    @Test
+    public void testZrangeList() {
+        ssdbClient.zclear("zkey");
+        ssdbClient.zset("zkey", "user1", 123);
+        ssdbClient.zset("zkey", "用户2", -456);
+        ssdbClient.zset("zkey", "user3", 789);
+
+        IdScoreList idScores = ssdbClient.zrangeList("zkey", 0, 10);
+        assertEquals(3, idScores.size());
+        assertEquals("用户2", idScores.getId(0));
+        assertEquals(-456, idScores.getScore(0));
+        assertEquals(2, idScores.indexOf("user3"));
+        assertEquals(ssdbClient.zrange("zkey", 0, 10).toString(), idScores.toList().toString());
+
+        assertEquals("user3", ssdbClient.zrrangeList("zkey", 0, 1).getId(0));
+        assertEquals(1, ssdbClient.zscanList("zkey", null, 0L, 200L, 10).size());
+
+        IdScoreList popped = ssdbClient.zpopFrontList("zkey", 2);
+        assertEquals(2, popped.size());
+        assertEquals(123, popped.getScore(1));
+        assertEquals(1, ssdbClient.zsize("zkey"));
+    }
+
     @Test
     public void testZcount() {
         ssdbClient.zclear("zkey");
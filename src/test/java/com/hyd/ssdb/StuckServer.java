@@ -0,0 +1,50 @@
+package com.hyd.ssdb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 接受连接但从不回应的服务器，用于模拟变慢的服务器
+ */
+public class StuckServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final List<Socket> sockets = new ArrayList<>();
+
+    public StuckServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                }
+            } catch (IOException e) {
+                // 服务器已关闭
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
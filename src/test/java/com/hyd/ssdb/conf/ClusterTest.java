@@ -0,0 +1,156 @@
+package com.hyd.ssdb.conf;
+
+import com.hyd.ssdb.conn.Connection;
+import com.hyd.ssdb.conn.DefaultConnectionPool;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterTest {
+
+    private static List<Server> createServers(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            servers.add(new Server("localhost", 9000 + i));
+        }
+        return servers;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        List<Server> servers = createServers(3);
+        Cluster cluster = new Cluster(servers);
+        cluster.setServerSelector(new RoundRobinServerSelector());
+
+        Map<Server, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            counts.merge(cluster.getRandomServer(), 1, Integer::sum);
+        }
+        for (Server server : servers) {
+            assertEquals(100, counts.get(server).intValue());
+        }
+    }
+
+    @Test
+    public void testWeightedRandom() throws Exception {
+        List<Server> servers = createServers(3);
+        servers.get(0).setWeight(100);
+        servers.get(1).setWeight(300);
+        servers.get(2).setWeight(0);
+        Cluster cluster = new Cluster(servers);
+        cluster.setServerSelector(new WeightedRandomServerSelector());
+
+        Map<Server, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 40000; i++) {
+            counts.merge(cluster.getRandomServer(), 1, Integer::sum);
+        }
+        assertNull(counts.get(servers.get(2)));
+        double ratio = counts.get(servers.get(1)) / (double) counts.get(servers.get(0));
+        assertTrue("ratio " + ratio, ratio > 2.7 && ratio < 3.3);
+    }
+
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        List<Server> servers = createServers(3);
+        Cluster cluster = new Cluster(servers);
+        cluster.setServerSelector(new LeastOutstandingServerSelector());
+
+        servers.get(0).getStats().requestStarted();
+        servers.get(2).getStats().requestStarted();
+        servers.get(2).getStats().requestStarted();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(servers.get(1), cluster.getRandomServer());
+        }
+
+        servers.get(0).getStats().requestFinished();
+        servers.get(1).getStats().requestStarted();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(servers.get(0), cluster.getRandomServer());
+        }
+    }
+
+    @Test
+    public void testMasters() throws Exception {
+        Server master = new Server("localhost", 9000, true);
+        Server slave = new Server("localhost", 9001, false);
+        Cluster cluster = new Cluster(Arrays.asList(master, slave));
+
+        assertEquals(Arrays.asList(master), cluster.getMasters());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(master, cluster.getMaster());
+        }
+
+        Server master2 = new Server("localhost", 9002, true);
+        cluster.addServer(master2);
+        assertEquals(Arrays.asList(master, master2), cluster.getMasters());
+
+        cluster.removeServer(master);
+        assertEquals(Arrays.asList(slave, master2), cluster.getServers());
+        assertEquals(master2, cluster.getMaster());
+    }
+
+    // 在修改服务器列表的同时选择服务器，不能出错
+    @Test
+    public void testConcurrentModification() throws Exception {
+        List<Server> servers = createServers(4);
+        Cluster cluster = new Cluster(new ArrayList<>(servers.subList(0, 2)));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        cluster.getRandomServer();
+                        cluster.getMaster();
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            thread.start();
+            readers.add(thread);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            Server server = servers.get(2 + i % 2);
+            cluster.addServer(server);
+            cluster.removeServer(server);
+        }
+
+        running.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        assertNull(error.get());
+        assertEquals(servers.subList(0, 2), cluster.getServers());
+    }
+
+    @Test
+    public void testPoolUpdatesOutstandingRequests() throws Exception {
+        Server server = new Server("localhost", 8888);
+        DefaultConnectionPool pool = new DefaultConnectionPool(server);
+        try {
+            Connection connection1 = pool.borrowObject();
+            Connection connection2 = pool.borrowObject();
+            assertEquals(2, server.getStats().getOutstandingRequests());
+
+            pool.returnObject(connection1);
+            pool.returnObject(connection2);
+            assertEquals(0, server.getStats().getOutstandingRequests());
+        } finally {
+            pool.close();
+        }
+    }
+}
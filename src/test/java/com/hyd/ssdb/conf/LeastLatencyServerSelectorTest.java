@@ -0,0 +1,85 @@
+package com.hyd.ssdb.conf;
+
+import com.hyd.ssdb.SsdbClient;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LeastLatencyServerSelectorTest {
+
+    private static List<Server> createServers(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            servers.add(new Server("localhost", 9000 + i));
+        }
+        return servers;
+    }
+
+    @Test
+    public void testPreferFastServer() throws Exception {
+        List<Server> servers = createServers(3);
+        servers.get(0).getStats().recordLatency(1_000_000);
+        servers.get(1).getStats().recordLatency(10_000_000);
+        servers.get(2).getStats().recordLatency(20_000_000);
+
+        ServerSelector selector = new LeastLatencyServerSelector();
+        Map<Server, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(selector.select(servers), 1, Integer::sum);
+        }
+
+        // 最快的服务器只要被抽中就会被选择，最慢的服务器永远不会被选择
+        assertTrue(counts.toString(), counts.get(servers.get(0)) > 1800);
+        assertEquals(null, counts.get(servers.get(2)));
+    }
+
+    @Test
+    public void testOutstandingRequests() throws Exception {
+        List<Server> servers = createServers(2);
+        servers.get(0).getStats().recordLatency(1_000_000);
+        servers.get(1).getStats().recordLatency(3_000_000);
+
+        ServerSelector selector = new LeastLatencyServerSelector();
+        assertEquals(servers.get(0), selector.select(servers));
+
+        // 较快的服务器积压了较多请求之后，选择较慢的服务器
+        for (int i = 0; i < 3; i++) {
+            servers.get(0).getStats().requestStarted();
+        }
+        assertEquals(servers.get(1), selector.select(servers));
+    }
+
+    @Test
+    public void testEwmaAndDecay() throws Exception {
+        ServerStats stats = new ServerStats();
+        assertEquals(0, stats.getLatencyEwma(), 0);
+
+        stats.recordLatency(1000);
+        assertEquals(1000, stats.getLatencyEwma(), 0.001);
+        stats.recordLatency(2000);
+        assertEquals(1200, stats.getLatencyEwma(), 0.001);
+
+        long now = System.nanoTime();
+        assertTrue(stats.getLatencyScore(now + 10_000_000_000L) < 1200 * 0.4);
+    }
+
+    @Test
+    public void testClientRecordsLatency() throws Exception {
+        Server server = new Server("localhost", 8888);
+        SsdbClient client = new SsdbClient(server);
+        try {
+            client.set("latency-key", "value");
+            client.get("latency-key");
+            assertTrue(server.getStats().getLatencyEwma() > 0);
+            assertEquals(0, server.getStats().getOutstandingRequests());
+        } finally {
+            client.close();
+        }
+    }
+}
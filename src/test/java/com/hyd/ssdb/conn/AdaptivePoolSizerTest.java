@@ -0,0 +1,103 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.conf.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptivePoolSizerTest {
+
+    private final Server server = new Server("localhost", 8888);
+
+    private SsdbClient client;
+
+    @Before
+    public void setUp() {
+        client = new SsdbClient(server);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testPoolStats() {
+        ConnectionPool pool = borrowAndReturn(3);
+        ConnectionPoolStats stats = pool.getStats();
+
+        assertEquals(3, stats.getBorrowCount());
+        assertEquals(0, stats.getActiveCount());
+        assertEquals(3, stats.getPeakActiveCount());
+        assertEquals(3, stats.getCreatedCount());
+        assertEquals(1, stats.getIdleCount());
+        assertEquals(2, stats.getIdleOverflowCount());     // 缺省 maxIdle 为 1，多出的两个连接归还时被销毁
+        assertTrue(stats.sampleCreationRate() > 0);
+
+        assertEquals(3, stats.resetPeakActiveCount());
+        assertEquals(0, stats.getPeakActiveCount());
+    }
+
+    @Test
+    public void testAdjust() {
+        ConnectionPool pool = borrowAndReturn(3);
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(1000, 2, 1, 1);
+
+        sizer.adjust(pool);
+        assertEquals(4, pool.getMaxIdle());
+        assertEquals(3, pool.getMinIdle());
+        assertEquals(3, pool.getNumIdle());     // 预先创建了连接
+
+        // 再次出现相同的并发量时不需要创建连接，也不会销毁连接
+        long created = pool.getStats().getCreatedCount();
+        borrowAndReturn(3);
+        assertEquals(created, pool.getStats().getCreatedCount());
+        assertEquals(2, pool.getStats().getIdleOverflowCount());
+
+        // 并发量下降后，窗口中的峰值都过去了才缩小
+        sizer.adjust(pool);
+        sizer.adjust(pool);
+        assertEquals(4, pool.getMaxIdle());
+        sizer.adjust(pool);
+        assertEquals(1, pool.getMaxIdle());
+        assertEquals(1, pool.getMinIdle());
+    }
+
+    @Test
+    public void testBackgroundAdjust() throws Exception {
+        ConnectionPoolManager manager = client.getConnectionPoolManager();
+        ConnectionPool pool = borrowAndReturn(2);
+
+        manager.setAdaptivePoolSizer(new AdaptivePoolSizer(50, 10, 0, 1));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getMaxIdle() != 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, pool.getMaxIdle());
+
+        manager.setAdaptivePoolSizer(null);
+        pool.setMaxIdle(5);
+        Thread.sleep(200);
+        assertEquals(5, pool.getMaxIdle());      // 停止之后不再调整
+    }
+
+    // 同时借出 count 个连接，然后全部归还
+    private ConnectionPool borrowAndReturn(int count) {
+        ConnectionPoolManager manager = client.getConnectionPoolManager();
+        List<PoolAndConnection> borrowed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            borrowed.add(manager.getConnection(server));
+        }
+        for (PoolAndConnection poolAndConnection : borrowed) {
+            poolAndConnection.getConnectionPool().returnObject(poolAndConnection.getConnection());
+        }
+        return borrowed.get(0).getConnectionPool();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.ValidationConfig;
+import com.hyd.ssdb.conf.ValidationPolicy;
+
+/**
+ * 比较不同的连接检查策略下单线程执行 get 命令的吞吐量。需要本地运行 SSDB 服务器。
+ * 参数：[host] [port]
+ */
+public class ValidationPolicyBenchmark {
+
+    private static final long DURATION_NANOS = 5_000_000_000L;
+
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8888;
+
+        for (ValidationPolicy policy : ValidationPolicy.values()) {
+            Server server = new Server(host, port);
+            server.setValidationConfig(new ValidationConfig(policy));
+            SsdbClient client = new SsdbClient(server);
+
+            try {
+                client.set("benchmark_key", "benchmark_value");
+                run(client, DURATION_NANOS / 5);   // 预热
+
+                double opsPerSecond = run(client, DURATION_NANOS);
+                System.out.printf("%-12s %10.1f ops/s%n", policy, opsPerSecond);
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    private static double run(SsdbClient client, long durationNanos) {
+        long start = System.nanoTime();
+        long count = 0;
+        while (System.nanoTime() - start < durationNanos) {
+            client.get("benchmark_key");
+            count++;
+        }
+        return count * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,67 @@
+package com.hyd.ssdb.conn;
+
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.ValidationConfig;
+import com.hyd.ssdb.conf.ValidationPolicy;
+import com.hyd.ssdb.protocol.Request;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ValidationPolicyTest {
+
+    private static SsdbClient createClient(ValidationConfig validationConfig) {
+        Server server = new Server("127.0.0.1", 8888);
+        server.setValidationConfig(validationConfig);
+        return new SsdbClient(server);
+    }
+
+    @Test
+    public void testAllPolicies() {
+        for (ValidationPolicy policy : ValidationPolicy.values()) {
+            SsdbClient client = createClient(new ValidationConfig(policy));
+            try {
+                client.set("validation_key", policy.name());
+                assertEquals(policy.name(), client.get("validation_key"));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testEvictionPolicyEnablesTestWhileIdle() {
+        ValidationConfig config = new ValidationConfig(ValidationPolicy.Eviction);
+        config.setEvictionInterval(500);
+        SsdbClient client = createClient(config);
+
+        try {
+            PoolAndConnection pac = client.getConnectionPoolManager().getConnection(new Request("get", "validation_key"));
+            ConnectionPool pool = pac.getConnectionPool();
+            pool.returnObject(pac.getConnection());
+
+            assertTrue(pool.getTestWhileIdle());
+            assertEquals(500, pool.getTimeBetweenEvictionRunsMillis());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testIdleTimePolicyDoesNotEnableTestWhileIdle() {
+        SsdbClient client = createClient(new ValidationConfig());
+
+        try {
+            PoolAndConnection pac = client.getConnectionPoolManager().getConnection(new Request("get", "validation_key"));
+            ConnectionPool pool = pac.getConnectionPool();
+            pool.returnObject(pac.getConnection());
+
+            assertFalse(pool.getTestWhileIdle());
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.hyd.ssdb.dump;
+
+import com.hyd.ssdb.ClusterBaseTest;
+import com.hyd.ssdb.util.IdScore;
+import com.hyd.ssdb.util.KeyValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DumpTest extends ClusterBaseTest {
+
+    private static final int COUNT = 120;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void prepare() {
+        for (int i = 0; i < COUNT; i++) {
+            String suffix = String.format("%03d", i);
+            ssdbClient.set("dump_key" + suffix, "value" + suffix);
+            ssdbClient.hset("dump_hash", "prop" + suffix, "value" + suffix);
+            ssdbClient.zset("dump_zset", "id" + suffix, i);
+            ssdbClient.qpushBack("dump_queue", "value" + suffix);
+        }
+        ssdbClient.set("dump_binary", new byte[]{0, -1, 10, 13});
+    }
+
+    @After
+    public void cleanUp() {
+        deleteTestData();
+    }
+
+    @Test
+    public void testExportAndImport() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        SsdbExporter exporter = new SsdbExporter(ssdbClient, directory);
+        exporter.setBatchSize(17);
+        exporter.setSplitPoints("dump_key050", "m");
+        assertEquals(4 * 2 * 3, exporter.exportAll());      // 4 种数据 * 2 个 Cluster * 3 个范围
+
+        deleteTestData();
+        assertNull(ssdbClient.get("dump_key001"));
+
+        SsdbImporter importer = new SsdbImporter(ssdbClient, directory);
+        assertEquals(24, importer.importAll());
+
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals("value" + String.format("%03d", i), ssdbClient.get("dump_key" + String.format("%03d", i)));
+        }
+        byte[] binary = ssdbClient.getBytes("dump_binary");
+        assertEquals(4, binary.length);
+        assertEquals(-1, binary[1]);
+
+        List<KeyValue> props = ssdbClient.hgetall("dump_hash");
+        assertEquals(COUNT, props.size());
+        assertEquals("value077", ssdbClient.hget("dump_hash", "prop077"));
+
+        assertEquals(COUNT, ssdbClient.zsize("dump_zset"));
+        List<IdScore> idScores = ssdbClient.zrange("dump_zset", 0, 3);
+        assertEquals("id000", idScores.get(0).getId());
+        assertEquals(Long.valueOf(99), ssdbClient.zget("dump_zset", "id099"));
+
+        List<String> queue = ssdbClient.qrange("dump_queue", 0, COUNT + 1);
+        assertEquals(COUNT, queue.size());
+        assertEquals("value000", queue.get(0));
+        assertEquals("value119", queue.get(COUNT - 1));
+
+        // 再次执行时跳过已经完成的 chunk
+        assertEquals(0, importer.importAll());
+    }
+
+    @Test
+    public void testReimportQueue() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        SsdbExporter exporter = new SsdbExporter(ssdbClient, directory);
+        exporter.setBatchSize(17);
+        exporter.exportAll();
+
+        // 导入到一半中断之后，已经写入的 chunk 会被再次导入
+        SsdbImporter importer = new SsdbImporter(ssdbClient, directory);
+        importer.importAll();
+        importer.setResume(false);
+        importer.importAll();
+
+        List<String> queue = ssdbClient.qrange("dump_queue", 0, COUNT * 2);
+        assertEquals(COUNT, queue.size());
+        assertEquals("value000", queue.get(0));
+        assertEquals("value119", queue.get(COUNT - 1));
+    }
+
+    @Test
+    public void testResumeExport() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        SsdbExporter exporter = new SsdbExporter(ssdbClient, directory);
+        assertEquals(8, exporter.exportAll());
+        assertEquals(0, exporter.exportAll());
+
+        corrupt(new File(directory, "k-0-0.gz"));
+        assertEquals(1, exporter.exportAll());      // 校验失败的 chunk 重新导出
+
+        exporter.setResume(false);
+        assertEquals(8, exporter.exportAll());
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        new SsdbExporter(ssdbClient, directory).exportAll();
+        corrupt(new File(directory, "h-0-0.gz"));
+
+        try {
+            new SsdbImporter(ssdbClient, directory).importAll();
+            fail("should throw exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("h-0-0.gz"));
+        }
+    }
+
+    private void deleteTestData() {
+        for (int i = 0; i < COUNT; i++) {
+            ssdbClient.del("dump_key" + String.format("%03d", i));
+        }
+        ssdbClient.del("dump_binary");
+        ssdbClient.hclear("dump_hash");
+        ssdbClient.zclear("dump_zset");
+        ssdbClient.qclear("dump_queue");
+    }
+
+    private static void corrupt(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long position = randomAccessFile.length() / 2;
+            randomAccessFile.seek(position);
+            int b = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(b ^ 0xFF);
+        }
+    }
+}
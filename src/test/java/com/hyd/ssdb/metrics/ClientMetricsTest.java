@@ -0,0 +1,151 @@
+package com.hyd.ssdb.metrics;
+
+import com.hyd.ssdb.ScatterResult;
+import com.hyd.ssdb.SsdbClient;
+import com.hyd.ssdb.StuckServer;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.RoundRobinServerSelector;
+import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.conf.SocketConfig;
+import com.hyd.ssdb.protocol.Request;
+import com.hyd.ssdb.sharding.ConsistentHashSharding;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClientMetricsTest {
+
+    @Test
+    public void testRecordRequests() throws Exception {
+        SsdbClient client = new SsdbClient("localhost", 8888);
+        ClientMetrics metrics = new ClientMetrics();
+        client.setMetricsRecorder(metrics);
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                client.set("metrics_key", "value" + i);
+            }
+            assertEquals("value9", client.get("metrics_key"));
+
+            EndpointMetrics set = metrics.getAllCommandMetrics().get("set");
+            assertEquals(10, set.getRequestCount());
+            assertEquals(0, set.getFailureCount());
+            assertTrue(set.getBytesSent() > 10 * "set".length());
+            assertTrue(set.getLatencyMaxMicros() > 0);
+            assertTrue(set.getLatencyP50Micros() <= set.getLatencyP99Micros());
+
+            EndpointMetrics get = metrics.getAllCommandMetrics().get("get");
+            assertEquals(1, get.getRequestCount());
+            assertTrue(get.getBytesReceived() >= "value9".length());
+
+            EndpointMetrics server = metrics.getServerMetrics(new Server("localhost", 8888));
+            assertEquals(11, server.getRequestCount());
+            assertEquals(11, server.getBorrowCount());
+            assertEquals(1, metrics.getAllClusterMetrics().size());
+
+            // 服务器返回的错误算作失败
+            client.set("metrics_key", "not a number");
+            try {
+                client.incr("metrics_key", 1);
+            } catch (Exception e) {
+                // 预期的错误
+            }
+            assertEquals(1, metrics.getAllCommandMetrics().get("incr").getFailureCount());
+
+            client.setMetricsRecorder(null);
+            client.get("metrics_key");
+            assertEquals(1, get.getRequestCount());
+        } finally {
+            client.del("metrics_key");
+            client.close();
+        }
+    }
+
+    @Test
+    public void testTimeoutAndFailover() throws Exception {
+        try (StuckServer stuckServer = new StuckServer()) {
+            Server stuck = new Server("localhost", stuckServer.getPort(), null, false, new SocketConfig(200));
+            Server normal = new Server("localhost", 8888, true);
+            SsdbClient client = SsdbClient.fromSingleCluster(Arrays.asList(stuck, normal));
+            ClientMetrics metrics = new ClientMetrics();
+            client.setMetricsRecorder(metrics);
+
+            try {
+                Cluster cluster = client.getSharding().getClusters().get(0);
+                cluster.setServerSelector(new RoundRobinServerSelector());
+                client.set("metrics_key", "value");
+
+                // 第一个读取请求发送给不回应的服务器，超时之后换到另一台服务器
+                assertEquals("value", client.get("metrics_key"));
+
+                EndpointMetrics get = metrics.getCommandMetrics("get");
+                assertEquals(1, get.getTimeoutCount());
+                assertEquals(1, get.getRetryCount());
+                assertEquals(2, get.getRequestCount());
+                assertEquals(1, get.getFailureCount());
+
+                EndpointMetrics stuckMetrics = metrics.getServerMetrics(stuck);
+                assertEquals(1, stuckMetrics.getTimeoutCount());
+                assertEquals(1, stuckMetrics.getFailoverCount());
+                assertEquals(1, metrics.getClusterMetrics(cluster).getFailoverCount());
+            } finally {
+                client.del("metrics_key");
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testClusterTimeout() throws Exception {
+        try (StuckServer stuckServer = new StuckServer()) {
+            Cluster normal = Cluster.fromSingleServer("localhost", 8881);
+            Cluster stuck = new Cluster(new Server("localhost", stuckServer.getPort(), null, true, new SocketConfig(5000)));
+            SsdbClient client = new SsdbClient(new ConsistentHashSharding(Arrays.asList(normal, stuck)));
+            ClientMetrics metrics = new ClientMetrics();
+            client.setMetricsRecorder(metrics);
+            client.setClusterTimeout(200);
+
+            try {
+                ScatterResult result = client.sendRequestToAllClusters(new Request("dbsize"));
+                assertEquals(1, result.getFailures().size());
+
+                // 等待超时记录在命令和超时的 Cluster 上
+                assertEquals(1, metrics.getCommandMetrics("dbsize").getTimeoutCount());
+                assertEquals(1, metrics.getClusterMetrics(stuck).getTimeoutCount());
+                assertEquals(0, metrics.getClusterMetrics(normal).getTimeoutCount());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testJmxExporter() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ClientMetrics metrics = new ClientMetrics();
+        metrics.getCommandMetrics("get").recordRequest(1_500_000, true);
+
+        JmxMetricsExporter exporter = new JmxMetricsExporter(metrics, "test");
+        exporter.start();
+        try {
+            ObjectName getName = exporter.getObjectName(metrics.getCommandMetrics("get"));
+            assertEquals(1L, mBeanServer.getAttribute(getName, "RequestCount"));
+            assertEquals(1500L, mBeanServer.getAttribute(getName, "LatencyMaxMicros"));
+
+            // 之后创建的统计数据自动注册
+            EndpointMetrics server = metrics.getServerMetrics(new Server("localhost", 8888));
+            assertTrue(mBeanServer.isRegistered(exporter.getObjectName(server)));
+            assertEquals("localhost:8888", mBeanServer.getAttribute(exporter.getObjectName(server), "Name"));
+        } finally {
+            exporter.close();
+        }
+        assertFalse(mBeanServer.isRegistered(exporter.getObjectName(metrics.getCommandMetrics("get"))));
+    }
+}
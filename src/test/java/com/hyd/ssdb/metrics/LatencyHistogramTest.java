@@ -0,0 +1,57 @@
+package com.hyd.ssdb.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketIndex() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));      // 小的数值没有误差
+        }
+
+        long[] values = {64, 100, 1000, 123_456, 10_000_000, 999_999_999_999L};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(value + " -> " + highest, highest >= value);
+            assertTrue(value + " -> " + highest, highest - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+            assertEquals(index, LatencyHistogram.bucketIndex(highest));
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(highest + 1));
+        }
+
+        assertEquals(LatencyHistogram.bucketIndex(1L << 45), LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertApproximately(500_000, histogram.percentile(50));
+        assertApproximately(990_000, histogram.percentile(99));
+        assertEquals(1_000_000, histogram.percentile(100));
+
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.01));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    private static void assertApproximately(long expected, long actual) {
+        assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+}
@@ -0,0 +1,80 @@
+package com.hyd.ssdb.protocol;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlockTest {
+
+    private static Block block(String content) {
+        return new Block(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testToLong() {
+        assertEquals(0, block("0").toLong());
+        assertEquals(12345, block("12345").toLong());
+        assertEquals(-42, block("-42").toLong());
+        assertEquals(7, block("+7").toLong());
+        assertEquals(Long.MAX_VALUE, block(String.valueOf(Long.MAX_VALUE)).toLong());
+        assertEquals(Long.MIN_VALUE, block(String.valueOf(Long.MIN_VALUE)).toLong());
+
+        for (String invalid : new String[]{"", "-", "1.5", "abc", " 1", "9223372036854775808", "-9223372036854775809"}) {
+            try {
+                block(invalid).toLong();
+                fail("should throw exception: " + invalid);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testToInt() {
+        assertEquals(Integer.MAX_VALUE, block(String.valueOf(Integer.MAX_VALUE)).toInt());
+        assertEquals(Integer.MIN_VALUE, block(String.valueOf(Integer.MIN_VALUE)).toInt());
+
+        try {
+            block("2147483648").toInt();
+            fail("should throw exception");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testToStringCached() {
+        Block block = block("中文内容");
+        String string = block.toString();
+        assertEquals("中文内容", string);
+        assertSame(string, block.toString());
+        assertSame(string, block.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStatus() {
+        Response response = new Response(StandardCharsets.UTF_8);
+        response.setHead(block("not_found"));
+        assertTrue(response.isNotFound());
+        assertFalse(response.isOk());
+        assertNull(response.getIntResult());
+        assertNull(response.getLongResult());
+
+        response.setHead(block("ok"));
+        response.addBodyBlock(block("-15"));
+        assertTrue(response.isOk());
+        assertFalse(response.isError());
+        assertEquals(Integer.valueOf(-15), response.getIntResult());
+        assertEquals(Long.valueOf(-15), response.getLongResult());
+
+        assertTrue(block("error").contentEquals("error"));
+        assertFalse(block("errors").contentEquals("error"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.util.BufferPool;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestEncoderTest {
+
+    private static String encode(RequestEncoder encoder) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoder.writeTo(bos);
+        encoder.reset();
+        return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        RequestEncoder encoder = new RequestEncoder(4);
+        encoder.encode(new Request("set", "key", "value"));
+        assertEquals("3\nset\n3\nkey\n5\nvalue\n\n", encode(encoder));
+
+        encoder.encode(new Request("get", "key"));
+        assertEquals("3\nget\n3\nkey\n\n", encode(encoder));
+    }
+
+    @Test
+    public void testEncodeLengthDigits() throws Exception {
+        RequestEncoder encoder = new RequestEncoder(16);
+        for (int length : new int[]{0, 9, 10, 99, 100, 12345, 1234567}) {
+            byte[] value = new byte[length];
+            Arrays.fill(value, (byte) 'x');
+            Request request = new Request("set", "key", value);
+
+            encoder.encode(request);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            encoder.writeTo(bos);
+            encoder.reset();
+
+            byte[] expected = ("3\nset\n3\nkey\n" + length + "\n" + new String(value) + "\n\n").getBytes();
+            assertArrayEquals(expected, bos.toByteArray());
+            assertArrayEquals(expected, request.toBytes());
+        }
+    }
+
+    @Test
+    public void testEncodeMultipleRequests() throws Exception {
+        RequestEncoder encoder = new RequestEncoder(8);
+        encoder.encode(Arrays.asList(new Request("get", "a"), new Request("get", "b")));
+        assertEquals("3\nget\n1\na\n\n3\nget\n1\nb\n\n", encode(encoder));
+        assertEquals(0, encoder.size());
+    }
+
+    @Test
+    public void testEncodeWithBufferPool() throws Exception {
+        BufferPool bufferPool = new BufferPool(false, 4);
+        RequestEncoder encoder = new RequestEncoder(16, bufferPool);
+        encoder.encode(new Request("set", "key", new byte[5000]));     // 缓存区扩大，原来的归还到池中
+        assertEquals(1, bufferPool.getIdleCount());
+        assertEquals(5019, encoder.size());
+        encoder.reset();
+
+        encoder.encode(new Request("get", "key"));
+        assertEquals("3\nget\n3\nkey\n\n", encode(encoder));
+
+        encoder.release();
+        assertEquals(2, bufferPool.getIdleCount());
+    }
+
+    @Test
+    public void testEncodeToDirectBuffer() throws Exception {
+        BufferPool bufferPool = new BufferPool(true, 4);
+        Request request = new Request("set", "key", "value");
+
+        ByteBuffer buffer = RequestEncoder.encode(request, bufferPool);
+        assertTrue(buffer.isDirect());
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertArrayEquals(request.toBytes(), bytes);
+
+        bufferPool.release(buffer);
+        assertSame(buffer, RequestEncoder.encode(new Request("get", "key"), bufferPool));
+    }
+}
@@ -0,0 +1,57 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.SsdbException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseDecoderTest {
+
+    private static ByteBuffer buffer(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDecodeMultipleResponses() {
+        ResponseDecoder decoder = new ResponseDecoder(StandardCharsets.UTF_8);
+        ByteBuffer buffer = buffer("2\nok\n5\nhello\n\n9\nnot_found\n\n");
+
+        Response first = decoder.decode(buffer);
+        assertEquals("ok", first.getHead().toString());
+        assertEquals("hello", first.firstBlock());
+
+        Response second = decoder.decode(buffer);
+        assertEquals("not_found", second.getHead().toString());
+        assertEquals(0, second.getBody().size());
+
+        assertNull(decoder.decode(buffer));
+    }
+
+    @Test
+    public void testDecodeByteByByte() {
+        ResponseDecoder decoder = new ResponseDecoder(StandardCharsets.UTF_8);
+        byte[] bytes = "2\nok\n11\nhello\nworld\n0\n\n\n".getBytes(StandardCharsets.UTF_8);
+
+        Response response = null;
+        for (int i = 0; i < bytes.length; i++) {
+            response = decoder.decode(ByteBuffer.wrap(bytes, i, 1));
+            if (i < bytes.length - 1) {
+                assertNull(response);
+            }
+        }
+
+        assertEquals("ok", response.getHead().toString());
+        assertEquals(2, response.getBody().size());
+        assertEquals("hello\nworld", response.firstBlock());
+        assertEquals("", response.getBlocks().get(1));
+    }
+
+    @Test(expected = SsdbException.class)
+    public void testIllegalPacket() {
+        new ResponseDecoder(StandardCharsets.UTF_8).decode(buffer("2\nok\nx\n"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.SsdbException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 比较 {@link ResponseReader} 与原来逐字节解析的方式读取不同大小的回应的速度。
+ * 数据来自内存，所以结果只反映解析本身的开销，不包括网络传输。
+ */
+public class ResponseReaderBenchmark {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final long DURATION_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int[] valueSizes = {10, 1024, 1024 * 1024, 16 * 1024 * 1024};
+
+        for (int valueSize : valueSizes) {
+            byte[] packet = createPacket(valueSize);
+
+            // 预热
+            run(packet, true, DURATION_NANOS / 2);
+            run(packet, false, DURATION_NANOS / 2);
+
+            double legacy = run(packet, true, DURATION_NANOS);
+            double reader = run(packet, false, DURATION_NANOS);
+            System.out.printf("value size %10d: legacy %12.1f ops/s, ResponseReader %12.1f ops/s (x%.1f)%n",
+                valueSize, legacy, reader, reader / legacy);
+        }
+    }
+
+    private static byte[] createPacket(int valueSize) throws IOException {
+        byte[] value = new byte[valueSize];
+        for (int i = 0; i < valueSize; i++) {
+            value[i] = (byte) ('a' + i % 26);
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(new Block("ok".getBytes()).toBytes());
+        bos.write(new Block(value).toBytes());
+        bos.write('\n');
+        return bos.toByteArray();
+    }
+
+    // 返回每秒解析的回应数
+    private static double run(byte[] packet, boolean legacy, long durationNanos) throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        long checksum = 0;
+
+        while (System.nanoTime() - start < durationNanos) {
+            InputStream inputStream = new ByteArrayInputStream(packet);
+            Response response = legacy ?
+                legacyReceivePacket(inputStream, new byte[BUFFER_SIZE], StandardCharsets.UTF_8) :
+                new ResponseReader(inputStream, BUFFER_SIZE).readResponse(StandardCharsets.UTF_8);
+            checksum += response.getBytes().length;
+            count++;
+        }
+
+        if (checksum == 0) {
+            System.out.println("unexpected checksum");
+        }
+        return count * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+
+    // 原来 Connection.receivePacket() 的解析方式
+    private static Response legacyReceivePacket(InputStream inputStream, byte[] bs, Charset charset) throws IOException {
+        Response response = new Response(charset);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(10240);
+        StringBuilder numSb = new StringBuilder();
+
+        byte b;
+        int dataLength = 0, dataCounter = 0;
+        int blockStatus = 0;
+        int responseStatus = 0;
+
+        while (true) {
+            int len = inputStream.read(bs);
+            if (len == -1) {
+                break;
+            }
+
+            for (int i = 0; i < len; i++) {
+                b = bs[i];
+                if (b == '\n') {
+                    if (blockStatus == 0) {
+                        return response;
+
+                    } else if (blockStatus == 1) {
+                        dataLength = Integer.parseInt(numSb.toString());
+                        bos.reset();
+                        numSb.setLength(0);
+                        blockStatus = dataLength == 0 ? 3 : 2;
+
+                    } else if (blockStatus == 2) {
+                        bos.write(b);
+                        dataCounter += 1;
+                        if (dataCounter >= dataLength) {
+                            blockStatus = 3;
+                            dataCounter = 0;
+                        }
+
+                    } else {
+                        blockStatus = 0;
+                        Block block = new Block(bos.toByteArray());
+                        if (responseStatus == 0) {
+                            response.setHead(block);
+                            responseStatus = 1;
+                        } else {
+                            response.addBodyBlock(block);
+                        }
+                    }
+                } else {
+                    bos.write(b);
+
+                    if (blockStatus == 0 || blockStatus == 1) {
+                        blockStatus = 1;
+                        numSb.append((char) b);
+                    } else if (blockStatus == 2) {
+                        dataCounter += 1;
+                        if (dataCounter >= dataLength) {
+                            blockStatus = 3;
+                            dataCounter = 0;
+                        }
+                    } else {
+                        throw new SsdbException("Illegal packet");
+                    }
+                }
+            }
+        }
+
+        throw new SsdbException("Invalid packet");
+    }
+}
@@ -0,0 +1,84 @@
+package com.hyd.ssdb.protocol;
+
+import com.hyd.ssdb.SsdbException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ResponseReaderTest {
+
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private static byte[] packet(byte[]... blocks) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (byte[] block : blocks) {
+            bos.write(new Block(block).toBytes());
+        }
+        bos.write(NEW_LINE);
+        return bos.toByteArray();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadSequentialResponses() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(packet(bytes("ok"), bytes("value1")));
+        bos.write(packet(bytes("not_found")));
+        bos.write(packet(bytes("ok"), bytes(""), bytes("a\nb")));
+
+        ResponseReader reader = new ResponseReader(new ByteArrayInputStream(bos.toByteArray()), 16);
+
+        Response first = reader.readResponse(StandardCharsets.UTF_8);
+        assertEquals("ok", first.getHead().toString());
+        assertEquals("value1", first.firstBlock());
+
+        Response second = reader.readResponse(StandardCharsets.UTF_8);
+        assertEquals("not_found", second.getHead().toString());
+        assertEquals(0, second.getBody().size());
+
+        Response third = reader.readResponse(StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("", "a\nb"), third.getBlocks());
+        assertEquals(bos.size(), reader.getBytesRead());
+    }
+
+    @Test
+    public void testReadLargeBlockInSmallChunks() throws Exception {
+        byte[] value = new byte[100000];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+
+        // 每次最多只返回 7 个字节，模拟网络分段到达
+        InputStream inputStream = new ByteArrayInputStream(packet(bytes("ok"), value)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        Response response = new ResponseReader(inputStream, 64).readResponse(StandardCharsets.UTF_8);
+        assertArrayEquals(value, response.getBytes());
+    }
+
+    @Test(expected = SsdbException.class)
+    public void testIllegalPacket() throws Exception {
+        new ResponseReader(new ByteArrayInputStream(bytes("2\nok\nx\n")), 16).readResponse(StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testIncompletePacket() throws Exception {
+        new ResponseReader(new ByteArrayInputStream(bytes("2\nok\n5\nhel")), 16).readResponse(StandardCharsets.UTF_8);
+    }
+}
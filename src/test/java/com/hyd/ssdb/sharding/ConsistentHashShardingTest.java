@@ -1,9 +1,14 @@
 package com.hyd.ssdb.sharding;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import com.hyd.ssdb.conf.Cluster;
 import com.hyd.ssdb.conf.Server;
+import com.hyd.ssdb.util.MD5;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 
 public class ConsistentHashShardingTest {
@@ -43,4 +48,59 @@ public class ConsistentHashShardingTest {
     cluster3.markValid(cluster2.getMaster());
     assertEquals(cluster3, sharding.getClusterByKey("89"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testLookupMatchesRanges() throws Exception {
+    List<Cluster> clusters = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      clusters.add(new Cluster(new Server("localhost", 9000 + i), 10 + i * 7));
+    }
+    ConsistentHashSharding sharding = new ConsistentHashSharding(clusters);
+    sharding.initClusters();
+
+    sharding.clusterFailed(clusters.get(0));
+    sharding.clusterFailed(clusters.get(5));
+    sharding.clusterFailed(clusters.get(6));
+
+    for (int i = 0; i < 10000; i++) {
+      String key = "key" + i;
+      assertEquals(linearLookup(clusters, MD5.md5Hash(key)), sharding.getClusterByKey(key));
+    }
+  }
+
+  @Test
+  public void testRemoveCluster() throws Exception {
+    Cluster cluster1 = new Cluster(new Server("localhost", 8888), 100);
+    Cluster cluster2 = new Cluster(new Server("localhost", 8889), 100);
+    Cluster cluster3 = new Cluster(new Server("localhost", 8890), 100);
+    ConsistentHashSharding sharding = new ConsistentHashSharding(cluster1, cluster2, cluster3);
+    sharding.initClusters();
+
+    sharding.removeCluster(cluster2.getId());
+    assertNull(sharding.getClusterById(cluster2.getId()));
+    assertEquals(cluster1.getHashRange().getMax() + 1, cluster3.getHashRange().getMin().intValue());
+    assertEquals(cluster1, sharding.getClusterByKey("88"));
+
+    sharding.removeCluster(cluster1.getId());
+    assertEquals(Integer.MIN_VALUE, cluster3.getHashRange().getMin().intValue());
+    assertEquals(cluster3, sharding.getClusterByKey("87"));
+    assertEquals(cluster3, sharding.getClusterByKey("88"));
+
+    // 已经移除的 Cluster 状态变化不再影响路由
+    cluster1.setInvalid(true);
+    cluster1.setInvalid(false);
+    assertFalse(sharding.getClusters().contains(cluster1));
+    assertEquals(cluster3, sharding.getClusterByKey("87"));
+  }
+
+  // 原来逐个检查 Cluster 哈希段的查找方式
+  private Cluster linearLookup(List<Cluster> clusters, int hash) {
+    for (Cluster cluster : clusters) {
+      Cluster hostingCluster = cluster.getHashHostingCluster(hash);
+      if (hostingCluster != null) {
+        return hostingCluster;
+      }
+    }
+    return null;
+  }
+}
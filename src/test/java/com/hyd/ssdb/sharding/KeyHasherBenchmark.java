@@ -0,0 +1,92 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.util.MD5;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 比较各个 {@link KeyHasher} 与原来 MD5.md5Hash()（每次调用 MessageDigest.getInstance()）计算 key 哈希值的速度
+ */
+public class KeyHasherBenchmark {
+
+    private static final long DURATION_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int[] keyLengths = {8, 32, 128};
+
+        KeyHasher legacy = new LegacyMd5KeyHasher();
+        KeyHasher[] hashers = {new Md5KeyHasher(), new Murmur3KeyHasher(), new XxHashKeyHasher()};
+
+        for (int keyLength : keyLengths) {
+            String[] keys = createKeys(keyLength);
+
+            // 预热
+            run(legacy, keys, DURATION_NANOS / 2);
+            for (KeyHasher hasher : hashers) {
+                run(hasher, keys, DURATION_NANOS / 2);
+            }
+
+            double base = run(legacy, keys, DURATION_NANOS);
+            System.out.printf("key length %4d: %-20s %12.1f ops/s%n", keyLength, "legacy MD5", base);
+            for (KeyHasher hasher : hashers) {
+                double result = run(hasher, keys, DURATION_NANOS);
+                System.out.printf("key length %4d: %-20s %12.1f ops/s (x%.1f)%n",
+                    keyLength, hasher.getClass().getSimpleName(), result, result / base);
+            }
+        }
+    }
+
+    private static String[] createKeys(int keyLength) {
+        String[] keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder sb = new StringBuilder("user:").append(i).append(':');
+            while (sb.length() < keyLength) {
+                sb.append((char) ('a' + sb.length() % 26));
+            }
+            keys[i] = sb.toString();
+        }
+        return keys;
+    }
+
+    // 返回每秒计算的次数
+    private static double run(KeyHasher hasher, String[] keys, long durationNanos) {
+        long start = System.nanoTime();
+        long count = 0;
+        int checksum = 0;
+
+        while (System.nanoTime() - start < durationNanos) {
+            for (String key : keys) {
+                checksum += hasher.hash(key);
+            }
+            count += keys.length;
+        }
+
+        if (checksum == 42) {
+            System.out.println("unlikely checksum");
+        }
+        return count * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+
+    // 原来 MD5.md5Hash() 的计算方式
+    private static class LegacyMd5KeyHasher implements KeyHasher {
+
+        @Override
+        public int hash(String key) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            return hash(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public int hash(byte[] data, int offset, int length) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("MD5");
+                digest.update(data, offset, length);
+                return MD5.b2i(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
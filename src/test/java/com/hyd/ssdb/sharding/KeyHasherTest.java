@@ -0,0 +1,108 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyHasherTest {
+
+    private static final String[] KEYS = {
+        "", "a", "abc", "hello", "0123456789abcdef",
+        "The quick brown fox jumps over the lazy dog", "héllo世界😀", "key:1000001"
+    };
+
+    @Test
+    public void testMd5CompatibleWithLegacy() throws Exception {
+        Md5KeyHasher hasher = new Md5KeyHasher();
+        for (String key : KEYS) {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            int expected = (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+            assertEquals(key, expected, hasher.hash(key));
+        }
+    }
+
+    @Test
+    public void testMurmur3() throws Exception {
+        int[] expected = {0, 1009084850, -1277324294, 613153351, 919068895, 776992547, 21193207, 1720542151};
+        assertHashes(new Murmur3KeyHasher(), expected);
+    }
+
+    @Test
+    public void testXxHash() throws Exception {
+        int[] expected = {46947589, 1426945110, 852579327, -83855367, -1027318935, -396450594, 1956998041, -270922603};
+        assertHashes(new XxHashKeyHasher(), expected);
+    }
+
+    private void assertHashes(KeyHasher hasher, int[] expected) {
+        for (int i = 0; i < KEYS.length; i++) {
+            assertEquals(KEYS[i], expected[i], hasher.hash(KEYS[i]));
+
+            // 在数组中间的部分计算结果相同
+            byte[] bytes = KEYS[i].getBytes(StandardCharsets.UTF_8);
+            byte[] padded = new byte[bytes.length + 6];
+            Arrays.fill(padded, (byte) 'x');
+            System.arraycopy(bytes, 0, padded, 3, bytes.length);
+            assertEquals(KEYS[i], expected[i], hasher.hash(padded, 3, bytes.length));
+        }
+    }
+
+    @Test
+    public void testEncodeUtf8() throws Exception {
+        String[] strings = {
+            "abc", "é߿ࠀ￿", "😀", "\ud83d", "a\ude00b", "\ude00\ud83d", "\ud83d😀"
+        };
+        for (String str : strings) {
+            byte[] dest = new byte[str.length() * 3];
+            int length = AbstractKeyHasher.encodeUtf8(str, dest);
+            assertArrayEquals(str, str.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(dest, length));
+        }
+    }
+
+    @Test
+    public void testLongKey() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append((char) ('a' + i % 26)).append('中');
+        }
+        String key = sb.toString();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+        KeyHasher hasher = new XxHashKeyHasher();
+        assertEquals(hasher.hash(bytes, 0, bytes.length), hasher.hash(key));
+        assertEquals(hasher.hash("abc"), hasher.hash("abc"));
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        ConsistentHashSharding sharding = new ConsistentHashSharding(
+            new Cluster(new Server("localhost", 8888)),
+            new Cluster(new Server("localhost", 8889)),
+            new Cluster(new Server("localhost", 8890)));
+        sharding.initClusters();
+
+        KeyHasherMigration same = new KeyHasherMigration(sharding, new Md5KeyHasher());
+        KeyHasherMigration murmur3 = new KeyHasherMigration(sharding, new Murmur3KeyHasher());
+        for (int i = 0; i < 10000; i++) {
+            same.add("key" + i);
+            murmur3.add("key" + i);
+        }
+
+        assertEquals(10000, same.getTotalKeys());
+        assertEquals(0, same.getMovedKeys());
+        assertTrue(same.getMoves().isEmpty());
+
+        // 三个 Cluster 时大约有 2/3 的 key 会移动
+        assertTrue(murmur3.report(), murmur3.getMovedRatio() > 0.6 && murmur3.getMovedRatio() < 0.73);
+        long sum = murmur3.getMoves().values().stream()
+            .flatMap(targets -> targets.values().stream()).mapToLong(Long::longValue).sum();
+        assertEquals(murmur3.getMovedKeys(), sum);
+    }
+}
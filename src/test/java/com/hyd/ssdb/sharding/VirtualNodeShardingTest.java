@@ -0,0 +1,147 @@
+package com.hyd.ssdb.sharding;
+
+import com.hyd.ssdb.SsdbNoClusterAvailableException;
+import com.hyd.ssdb.conf.Cluster;
+import com.hyd.ssdb.conf.Server;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualNodeShardingTest {
+
+    private static final int KEY_COUNT = 100000;
+
+    private static List<Cluster> createClusters(int count) {
+        List<Cluster> clusters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            clusters.add(new Cluster(new Server("localhost", 9000 + i)));
+        }
+        return clusters;
+    }
+
+    private static Map<Cluster, Integer> countKeys(VirtualNodeSharding sharding) {
+        Map<Cluster, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            counts.merge(sharding.getClusterByKey("key" + i), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static Cluster[] route(VirtualNodeSharding sharding) {
+        Cluster[] result = new Cluster[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            result[i] = sharding.getClusterByKey("key" + i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testWeightedDistribution() throws Exception {
+        List<Cluster> clusters = createClusters(3);
+        clusters.get(2).setWeight(Cluster.DEFAULT_WEIGHT * 2);
+        VirtualNodeSharding sharding = new VirtualNodeSharding(clusters);
+        sharding.initClusters();
+
+        Map<Cluster, Integer> counts = countKeys(sharding);
+        assertShare(counts.get(clusters.get(0)), 0.25);
+        assertShare(counts.get(clusters.get(1)), 0.25);
+        assertShare(counts.get(clusters.get(2)), 0.5);
+    }
+
+    @Test
+    public void testFailureSpreadsLoad() throws Exception {
+        List<Cluster> clusters = createClusters(4);
+        VirtualNodeSharding sharding = new VirtualNodeSharding(clusters);
+        sharding.initClusters();
+
+        Cluster failed = clusters.get(1);
+        Cluster[] before = route(sharding);
+        sharding.clusterFailed(failed);
+        Cluster[] after = route(sharding);
+
+        // 只有下线的 Cluster 上的 key 会移动，而且大致平均地分散到其他各个 Cluster
+        Map<Cluster, Integer> receivers = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (before[i] != failed) {
+                assertEquals(before[i], after[i]);
+            } else {
+                assertNotEquals(failed, after[i]);
+                receivers.merge(after[i], 1, Integer::sum);
+                moved++;
+            }
+        }
+
+        assertEquals(3, receivers.size());
+        for (int count : receivers.values()) {
+            double share = (double) count / moved;
+            assertTrue("share " + share, share > 0.2 && share < 0.47);
+        }
+
+        // 恢复之后回到原来的分布
+        failed.markValid(failed.getMaster());
+        Cluster[] restored = route(sharding);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            assertEquals(before[i], restored[i]);
+        }
+    }
+
+    @Test
+    public void testAddAndRemoveCluster() throws Exception {
+        List<Cluster> clusters = createClusters(4);
+        VirtualNodeSharding sharding = new VirtualNodeSharding(clusters);
+        sharding.initClusters();
+
+        Map<Cluster, Integer> before = countKeys(sharding);
+        Cluster[] routeBefore = route(sharding);
+
+        Cluster newCluster = new Cluster(new Server("localhost", 9100));
+        sharding.addCluster(newCluster);
+        Cluster[] routeAfter = route(sharding);
+
+        // 移动的 key 都去了新的 Cluster，而且每个现有 Cluster 各分走大约 1/5
+        Map<Cluster, Integer> given = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (routeBefore[i] != routeAfter[i]) {
+                assertEquals(newCluster, routeAfter[i]);
+                given.merge(routeBefore[i], 1, Integer::sum);
+            }
+        }
+        assertShare(given.values().stream().mapToInt(Integer::intValue).sum(), 0.2);
+        for (Cluster cluster : clusters) {
+            double ratio = (double) given.get(cluster) / before.get(cluster);
+            assertTrue("ratio " + ratio, ratio > 0.1 && ratio < 0.3);
+        }
+
+        sharding.removeCluster(newCluster.getId());
+        Cluster[] routeRemoved = route(sharding);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            assertEquals(routeBefore[i], routeRemoved[i]);
+        }
+    }
+
+    @Test(expected = SsdbNoClusterAvailableException.class)
+    public void testNoClusterAvailable() throws Exception {
+        List<Cluster> clusters = createClusters(2);
+        VirtualNodeSharding sharding = new VirtualNodeSharding(clusters);
+        sharding.initClusters();
+
+        sharding.clusterFailed(clusters.get(0));
+        assertEquals(clusters.get(1), sharding.getClusterByKey("key"));
+
+        sharding.clusterFailed(clusters.get(1));
+        sharding.getClusterByKey("key");
+    }
+
+    private static void assertShare(int count, double expected) {
+        double share = (double) count / KEY_COUNT;
+        assertTrue("share " + share + ", expected " + expected, Math.abs(share - expected) < expected * 0.2);
+    }
+}
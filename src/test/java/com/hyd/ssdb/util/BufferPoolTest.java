@@ -0,0 +1,59 @@
+package com.hyd.ssdb.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool bufferPool = new BufferPool(false, 4);
+        assertEquals(BufferPool.MIN_CAPACITY, bufferPool.acquire(1).capacity());
+        assertEquals(1024, bufferPool.acquire(1024).capacity());
+        assertEquals(2048, bufferPool.acquire(1025).capacity());
+        assertEquals(8192, bufferPool.acquire(8000).capacity());
+        assertEquals(BufferPool.MAX_CAPACITY, bufferPool.acquire(BufferPool.MAX_CAPACITY).capacity());
+        assertEquals(BufferPool.MAX_CAPACITY + 1, bufferPool.acquire(BufferPool.MAX_CAPACITY + 1).capacity());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool bufferPool = new BufferPool(true, 4);
+        ByteBuffer buffer = bufferPool.acquire(3000);
+        assertTrue(buffer.isDirect());
+        buffer.putInt(1);
+        bufferPool.release(buffer);
+
+        ByteBuffer reused = bufferPool.acquire(4096);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertEquals(1, bufferPool.getReusedCount());
+        assertEquals(1, bufferPool.getAllocatedCount());
+
+        assertNotSame(reused, bufferPool.acquire(4096));    // 池中已经没有空闲的了
+    }
+
+    @Test
+    public void testReleaseIgnored() {
+        BufferPool bufferPool = new BufferPool(false, 2);
+        bufferPool.release(null);
+        bufferPool.release(ByteBuffer.allocate(1000));          // 不是分级的容量
+        bufferPool.release(ByteBuffer.allocateDirect(1024));    // 类型不同
+        bufferPool.release(bufferPool.acquire(BufferPool.MAX_CAPACITY * 2));
+        assertEquals(0, bufferPool.getIdleCount());
+
+        for (int i = 0; i < 5; i++) {
+            bufferPool.release(ByteBuffer.allocate(1024));
+        }
+        assertEquals(2, bufferPool.getIdleCount());             // 超过上限的被丢弃
+        assertFalse(bufferPool.isDirect());
+    }
+}
@@ -0,0 +1,63 @@
+package com.hyd.ssdb.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IdScoreListTest {
+
+    @Test
+    public void testBuild() {
+        IdScoreList.Builder builder = new IdScoreList.Builder(1, 1);     // 容量不够时自动扩大
+        for (int i = 0; i < 100; i++) {
+            builder.add("id" + i, i * 10L);
+        }
+        builder.add("", -1);
+        IdScoreList list = builder.build();
+
+        assertEquals(101, list.size());
+        assertEquals("id0", list.getId(0));
+        assertEquals(990, list.getScore(99));
+        assertEquals("", list.getId(100));
+        assertEquals(-1, list.getScore(100));
+        assertEquals(57, list.indexOf("id57"));
+        assertEquals(-1, list.indexOf("id100"));
+        assertTrue(list.idEquals(3, "id3"));
+        assertFalse(list.idEquals(3, "id30"));
+
+        ByteBuffer buffer = list.getIdBuffer(12);
+        assertTrue(buffer.isReadOnly());
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertEquals("id12", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals("id12", new String(list.getIdBytes(12), StandardCharsets.UTF_8));
+
+        int count = 0;
+        for (IdScore idScore : list) {
+            assertEquals(list.getScore(count), idScore.getScore());
+            count++;
+        }
+        assertEquals(101, count);
+        assertEquals(101, list.toList().size());
+        assertEquals("id5", list.asList().get(5).getId());
+    }
+
+    @Test
+    public void testEmpty() {
+        IdScoreList list = new IdScoreList.Builder(10, 100).build();
+        assertTrue(list.isEmpty());
+        assertSame(IdScoreList.empty(), list);
+        assertFalse(list.iterator().hasNext());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new IdScoreList.Builder(2, 8).add("a", 1).build().getScore(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.hyd.ssdb.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KeyValueBatchTest {
+
+    @Test
+    public void testBuild() {
+        KeyValueBatch.Builder builder = new KeyValueBatch.Builder(1, 1, StandardCharsets.UTF_8);     // 容量不够时自动扩大
+        for (int i = 0; i < 100; i++) {
+            builder.add("key" + i, "value" + i);
+        }
+        builder.add("空值", "");
+        KeyValueBatch batch = builder.build();
+
+        assertEquals(101, batch.size());
+        assertEquals("key0", batch.getKey(0));
+        assertEquals("value99", batch.getValue(99));
+        assertEquals("", batch.getValue(100));
+        assertEquals(0, batch.getValueLength(100));
+        assertEquals(57, batch.indexOfKey("key57"));
+        assertEquals(-1, batch.indexOfKey("value57"));
+        assertEquals("", batch.findValue("空值"));
+        assertNull(batch.findValue("key100"));
+        assertTrue(batch.keyEquals(3, "key3"));
+        assertFalse(batch.keyEquals(3, "key30"));
+
+        ByteBuffer buffer = batch.getValueBuffer(12);
+        assertTrue(buffer.isReadOnly());
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertEquals("value12", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals("key12", new String(batch.getKeyBytes(12), StandardCharsets.UTF_8));
+        assertEquals(5, batch.getKeyBuffer(12).remaining());
+
+        int count = 0;
+        for (KeyValue keyValue : batch) {
+            assertEquals(batch.getKey(count), keyValue.getKeyString());
+            assertEquals(batch.getValue(count), keyValue.getValueString());
+            count++;
+        }
+        assertEquals(101, count);
+        assertEquals(101, batch.toList().size());
+        assertEquals("value5", batch.asList().get(5).getValueString());
+
+        Map<String, String> map = batch.toMap();
+        assertEquals(101, map.size());
+        assertEquals("key0", map.keySet().iterator().next());
+    }
+
+    @Test
+    public void testAddAll() {
+        KeyValueBatch first = new KeyValueBatch.Builder(2, 16, StandardCharsets.UTF_8)
+            .add("a", "1").add("b", "22").build();
+        KeyValueBatch second = new KeyValueBatch.Builder(1, 16, StandardCharsets.UTF_8)
+            .add("c", "333").build();
+
+        KeyValueBatch merged = new KeyValueBatch.Builder(0, 0, StandardCharsets.UTF_8)
+            .addAll(first).addAll(second).build();
+        assertEquals(3, merged.size());
+        assertEquals("b", merged.getKey(1));
+        assertEquals("22", merged.getValue(1));
+        assertEquals("333", merged.getValue(2));
+    }
+
+    @Test
+    public void testEmpty() {
+        KeyValueBatch batch = new KeyValueBatch.Builder(10, 100, StandardCharsets.UTF_8).build();
+        assertTrue(batch.isEmpty());
+        assertSame(KeyValueBatch.empty(), batch);
+        assertFalse(batch.iterator().hasNext());
+        assertTrue(batch.toMap().isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new KeyValueBatch.Builder(2, 8, StandardCharsets.UTF_8).add("a", "b").build().getValue(1);
+    }
+}